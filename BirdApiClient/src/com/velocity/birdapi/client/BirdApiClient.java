@@ -6,9 +6,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
 import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -17,30 +21,89 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Service client for interacting with the Bird REST API.
+ * <p>
+ * Every endpoint has a blocking method and a non-blocking {@code ...Async} variant that
+ * returns a CompletableFuture. Async calls share the client's HTTP/2 connection, so many
+ * of them can be in flight at once without a thread per request.
  */
 public class BirdApiClient {
 
     private static final String API_BASE_URL = "http://localhost:8080/api/v1";
+
+    // List responses kept for conditional (If-None-Match) requests, bounded both in number and
+    // in the items they hold together; a list larger than the item bound is not kept at all
+    private static final int CONDITIONAL_CACHE_SIZE = 64;
+    private static final int CONDITIONAL_CACHE_MAX_ITEMS = 50_000;
+
+    // Default number of requests a bulk call keeps in flight at once; matches the server's
+    // HTTP/2 concurrent stream limit (Tomcat defaults to 100)
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 100;
+
+    // Sighting writes are retried on timeouts, connection failures and 502/503/504/429 answers,
+    // and on a 409 with Retry-After (an earlier attempt is still being written); other errors,
+    // such as a 500, would fail the same way again. Every attempt carries the same
+    // Idempotency-Key, so the server creates the sighting at most once.
+    private static final int MAX_SIGHTING_ATTEMPTS = 4;
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofMillis(250);
+    private static final Duration SIGHTING_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final int maxConcurrentRequests;
+
+    // Last ETag and parsed body per list URI, evicted least-recently-used; guarded by itself
+    private final LinkedHashMap<String, CachedList<?>> conditionalCache = new LinkedHashMap<>(16, 0.75f, true);
+    private int conditionalCacheItems;
 
     public BirdApiClient() {
-        this.httpClient = HttpClient.newBuilder()
+        this(null, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * @param executor Runs the HTTP client's I/O and the async completion stages; null uses
+     *                 the HTTP client's default executor.
+     * @param maxConcurrentRequests The number of requests bulk calls keep in flight at once.
+     */
+    public BirdApiClient(Executor executor, int maxConcurrentRequests) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-        
+                .connectTimeout(Duration.ofSeconds(10));
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.httpClient = builder.build();
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+
         this.objectMapper = new ObjectMapper()
                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        
+
         // Register a custom serializer and deserializer for LocalDateTime
         SimpleModule module = new SimpleModule();
-        
+
         // Custom Serializer (Object -> JSON)
         module.addSerializer(LocalDateTime.class, new JsonSerializer<LocalDateTime>() {
             @Override
@@ -48,7 +111,7 @@ public class BirdApiClient {
                 gen.writeString(value.toString());
             }
         });
-        
+
         // Custom Deserializer (JSON -> Object)
         module.addDeserializer(LocalDateTime.class, new JsonDeserializer<LocalDateTime>() {
             @Override
@@ -56,7 +119,7 @@ public class BirdApiClient {
                 return LocalDateTime.parse(p.getText());
             }
         });
-        
+
         objectMapper.registerModule(module);
     }
 
@@ -69,36 +132,44 @@ public class BirdApiClient {
      * @throws Exception If the API call fails.
      */
     public BirdDto addBird(BirdDto bird) throws Exception {
-        String json = objectMapper.writeValueAsString(bird);
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(HttpRequest.BodyPublishers.ofString(json))
-                .uri(URI.create(API_BASE_URL + "/birds"))
-                .header("Content-Type", "application/json")
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 201) {
-            throw new RuntimeException("Failed to add bird: " + response.body());
+        return await(addBirdAsync(bird));
+    }
+
+    /**
+     * Asynchronously adds a new bird to the database.
+     * @param bird The bird data to add.
+     * @return A future completing with the created BirdDto object.
+     */
+    public CompletableFuture<BirdDto> addBirdAsync(BirdDto bird) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(bird)))
+                    .uri(URI.create(API_BASE_URL + "/birds"))
+                    .header("Content-Type", "application/json")
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return objectMapper.readValue(response.body(), BirdDto.class);
+        return sendAsync(request, 201, "Failed to add bird")
+                .thenApply(body -> read(body, BirdDto.class));
     }
-    
+
     /**
      * Fetches all birds from the API.
      * @return A list of BirdDto objects.
      * @throws Exception If the API call fails.
      */
     public List<BirdDto> getAllBirds() throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(API_BASE_URL + "/birds"))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch birds: " + response.body());
-        }
-        return objectMapper.readValue(response.body(), objectMapper.getTypeFactory().constructCollectionType(List.class, BirdDto.class));
+        return await(getAllBirdsAsync());
+    }
+
+    /**
+     * Asynchronously fetches all birds from the API.
+     * @return A future completing with a list of BirdDto objects.
+     */
+    public CompletableFuture<List<BirdDto>> getAllBirdsAsync() {
+        return getListAsync(URI.create(API_BASE_URL + "/birds"), BirdDto.class, "Failed to fetch birds");
     }
 
     /**
@@ -108,18 +179,59 @@ public class BirdApiClient {
      * @throws Exception If the API call fails or bird not found.
      */
     public BirdDto getBirdById(Long id) throws Exception {
+        return await(getBirdByIdAsync(id));
+    }
+
+    /**
+     * Asynchronously fetches a bird by its ID.
+     * @param id The ID of the bird to fetch.
+     * @return A future completing with the BirdDto object; it fails if the bird is not found.
+     */
+    public CompletableFuture<BirdDto> getBirdByIdAsync(Long id) {
         HttpRequest request = HttpRequest.newBuilder()
                 .GET()
                 .uri(URI.create(API_BASE_URL + "/birds/" + id))
                 .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch bird: " + response.body());
+        return sendAsync(request, 200, "Failed to fetch bird")
+                .thenApply(body -> read(body, BirdDto.class));
+    }
+
+    /**
+     * Asynchronously fetches many birds by ID. Up to maxConcurrentRequests lookups are
+     * multiplexed over the shared HTTP/2 connection at once, so the total time is a handful
+     * of round trips rather than one per id.
+     * @param ids The IDs of the birds to fetch.
+     * @return A future completing with the birds, in the order of the given IDs.
+     */
+    public CompletableFuture<List<BirdDto>> getBirdsByIdAsync(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        if (idList.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
-        return objectMapper.readValue(response.body(), BirdDto.class);
+        BirdDto[] birds = new BirdDto[idList.size()];
+
+        // The first request goes out alone so the connection is upgraded to HTTP/2 before the
+        // rest fan out; otherwise each of them would open its own HTTP/1.1 connection.
+        return getBirdByIdAsync(idList.get(0)).thenCompose(first -> {
+            birds[0] = first;
+            int remaining = idList.size() - 1;
+            int lanes = Math.min(maxConcurrentRequests, remaining);
+
+            // Each lane fetches every lanes-th id, one after another
+            CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+            for (int lane = 0; lane < lanes; lane++) {
+                CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                for (int i = 1 + lane; i < idList.size(); i += lanes) {
+                    int index = i;
+                    chain = chain.thenCompose(ignored -> getBirdByIdAsync(idList.get(index))
+                            .thenAccept(bird -> birds[index] = bird));
+                }
+                laneFutures[lane] = chain;
+            }
+            return CompletableFuture.allOf(laneFutures);
+        }).thenApply(ignored -> Arrays.asList(birds));
     }
-    
+
     /**
      * Updates an existing bird.
      * @param id The ID of the bird to update.
@@ -128,18 +240,28 @@ public class BirdApiClient {
      * @throws Exception If the API call fails.
      */
     public BirdDto updateBird(Long id, BirdDto bird) throws Exception {
-        String json = objectMapper.writeValueAsString(bird);
-        HttpRequest request = HttpRequest.newBuilder()
-                .PUT(HttpRequest.BodyPublishers.ofString(json))
-                .uri(URI.create(API_BASE_URL + "/birds/" + id))
-                .header("Content-Type", "application/json")
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to update bird: " + response.body());
+        return await(updateBirdAsync(id, bird));
+    }
+
+    /**
+     * Asynchronously updates an existing bird.
+     * @param id The ID of the bird to update.
+     * @param bird The updated bird data.
+     * @return A future completing with the updated BirdDto object.
+     */
+    public CompletableFuture<BirdDto> updateBirdAsync(Long id, BirdDto bird) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(bird)))
+                    .uri(URI.create(API_BASE_URL + "/birds/" + id))
+                    .header("Content-Type", "application/json")
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return objectMapper.readValue(response.body(), BirdDto.class);
+        return sendAsync(request, 200, "Failed to update bird")
+                .thenApply(body -> read(body, BirdDto.class));
     }
 
     /**
@@ -148,17 +270,23 @@ public class BirdApiClient {
      * @throws Exception If the API call fails.
      */
     public void deleteBird(Long id) throws Exception {
+        await(deleteBirdAsync(id));
+    }
+
+    /**
+     * Asynchronously deletes a bird by its ID.
+     * @param id The ID of the bird to delete.
+     * @return A future completing once the bird is deleted.
+     */
+    public CompletableFuture<Void> deleteBirdAsync(Long id) {
         HttpRequest request = HttpRequest.newBuilder()
                 .DELETE()
                 .uri(URI.create(API_BASE_URL + "/birds/" + id))
                 .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) { // 204 No Content is the expected successful response
-            throw new RuntimeException("Failed to delete bird: " + response.body());
-        }
+        // 204 No Content is the expected successful response
+        return sendAsync(request, 204, "Failed to delete bird").thenApply(body -> null);
     }
-    
+
     /**
      * Queries birds by name and color.
      * @param name The name of the bird.
@@ -167,8 +295,18 @@ public class BirdApiClient {
      * @throws Exception If the API call fails.
      */
     public List<BirdDto> queryBirds(String name, String color) throws Exception {
+        return await(queryBirdsAsync(name, color));
+    }
+
+    /**
+     * Asynchronously queries birds by name and color.
+     * @param name The name of the bird.
+     * @param color The color of the bird.
+     * @return A future completing with a list of matching BirdDto objects.
+     */
+    public CompletableFuture<List<BirdDto>> queryBirdsAsync(String name, String color) {
         String uri = API_BASE_URL + "/birds/query?";
-        
+
         if (name != null && !name.isEmpty()) {
             uri += "name=" + URLEncoder.encode(name, StandardCharsets.UTF_8);
         }
@@ -176,77 +314,175 @@ public class BirdApiClient {
             if (name != null && !name.isEmpty()) uri += "&";
             uri += "color=" + URLEncoder.encode(color, StandardCharsets.UTF_8);
         }
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(uri))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to query birds: " + response.body());
-        }
-        return objectMapper.readValue(response.body(), objectMapper.getTypeFactory().constructCollectionType(List.class, BirdDto.class));
+
+        return getListAsync(URI.create(uri), BirdDto.class, "Failed to query birds");
+    }
+
+    /**
+     * Searches bird names for typeahead: prefix and fuzzy matches, ignoring case, best first.
+     * @param query The text typed so far.
+     * @param limit The maximum number of suggestions.
+     * @return A list of matching BirdDto objects, best match first.
+     * @throws Exception If the API call fails.
+     */
+    public List<BirdDto> searchBirds(String query, int limit) throws Exception {
+        return await(searchBirdsAsync(query, limit));
     }
-    
+
+    /**
+     * Asynchronously searches bird names for typeahead.
+     * @param query The text typed so far.
+     * @param limit The maximum number of suggestions.
+     * @return A future completing with the matching BirdDto objects, best match first.
+     */
+    public CompletableFuture<List<BirdDto>> searchBirdsAsync(String query, int limit) {
+        return getListAsync(searchUri("birds", query, limit), BirdDto.class, "Failed to search birds");
+    }
+
+    /**
+     * Searches sighting locations for typeahead: prefix and fuzzy matches, ignoring case,
+     * best first.
+     * @param query The text typed so far.
+     * @param limit The maximum number of suggestions.
+     * @return The matching locations with their sighting counts, best match first.
+     * @throws Exception If the API call fails.
+     */
+    public List<LocationSightingCountDto> searchLocations(String query, int limit) throws Exception {
+        return await(searchLocationsAsync(query, limit));
+    }
+
+    /**
+     * Asynchronously searches sighting locations for typeahead.
+     * @param query The text typed so far.
+     * @param limit The maximum number of suggestions.
+     * @return A future completing with the matching locations, best match first.
+     */
+    public CompletableFuture<List<LocationSightingCountDto>> searchLocationsAsync(String query, int limit) {
+        return getListAsync(searchUri("locations", query, limit), LocationSightingCountDto.class, "Failed to search locations");
+    }
+
+    private URI searchUri(String target, String query, int limit) {
+        return URI.create(API_BASE_URL + "/search/" + target + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                + "&limit=" + limit);
+    }
+
     // --- Sighting Endpoints ---
-    
+
     /**
-     * Adds a new sighting to the database.
+     * Adds a new sighting to the database. Failed attempts are retried with backoff under a
+     * generated Idempotency-Key, so a retry never adds the sighting twice.
      * @param sighting The sighting data to add.
      * @return The created SightingDto object.
      * @throws Exception If the API call fails.
      */
     public SightingDto addSighting(SightingDto sighting) throws Exception {
-        String json = objectMapper.writeValueAsString(sighting);
-        HttpRequest request = HttpRequest.newBuilder()
-                .POST(HttpRequest.BodyPublishers.ofString(json))
-                .uri(URI.create(API_BASE_URL + "/sightings"))
-                .header("Content-Type", "application/json")
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 201) {
-            throw new RuntimeException("Failed to add sighting: " + response.body());
+        return await(addSightingAsync(sighting));
+    }
+
+    /**
+     * Adds a new sighting to the database under a caller-chosen Idempotency-Key, e.g. one
+     * stored with the sighting on the device so it also survives a restart of the caller.
+     * Sending the same key again returns the sighting created the first time.
+     * @param sighting The sighting data to add.
+     * @param idempotencyKey Up to 200 printable ASCII characters, unique per sighting.
+     * @return The created SightingDto object.
+     * @throws Exception If the API call fails.
+     */
+    public SightingDto addSighting(SightingDto sighting, String idempotencyKey) throws Exception {
+        return await(addSightingAsync(sighting, idempotencyKey));
+    }
+
+    /**
+     * Asynchronously adds a new sighting to the database, retrying like addSighting.
+     * @param sighting The sighting data to add.
+     * @return A future completing with the created SightingDto object.
+     */
+    public CompletableFuture<SightingDto> addSightingAsync(SightingDto sighting) {
+        return addSightingAsync(sighting, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Asynchronously adds a new sighting to the database under a caller-chosen Idempotency-Key.
+     * @param sighting The sighting data to add.
+     * @param idempotencyKey Up to 200 printable ASCII characters, unique per sighting.
+     * @return A future completing with the created SightingDto object.
+     */
+    public CompletableFuture<SightingDto> addSightingAsync(SightingDto sighting, String idempotencyKey) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(sighting)))
+                    .uri(URI.create(API_BASE_URL + "/sightings"))
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", idempotencyKey)
+                    .timeout(SIGHTING_REQUEST_TIMEOUT)
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return objectMapper.readValue(response.body(), SightingDto.class);
+        return sendWithRetry(request, 1)
+                .thenApply(response -> {
+                    // 202: the server queued the sighting (write-behind mode) and commits it shortly
+                    if (response.statusCode() != 201 && response.statusCode() != 202) {
+                        throw new RuntimeException("Failed to add sighting: " + response.body());
+                    }
+                    if (!response.body().isEmpty()) {
+                        return read(response.body(), SightingDto.class);
+                    }
+                    // A retry of a sighting that is still queued: only its Location is known
+                    String location = response.headers().firstValue("Location").orElseThrow(
+                            () -> new RuntimeException("Failed to add sighting: no body or Location in response"));
+                    SightingDto queued = new SightingDto();
+                    queued.setId(Long.valueOf(location.substring(location.lastIndexOf('/') + 1)));
+                    queued.setLocation(sighting.getLocation());
+                    queued.setDateTime(sighting.getDateTime());
+                    queued.setLatitude(sighting.getLatitude());
+                    queued.setLongitude(sighting.getLongitude());
+                    queued.setBird(sighting.getBird());
+                    return queued;
+                });
     }
-    
+
     /**
      * Fetches all sightings from the API.
      * @return A list of SightingDto objects.
      * @throws Exception If the API call fails.
      */
     public List<SightingDto> getAllSightings() throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(API_BASE_URL + "/sightings"))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch sightings: " + response.body());
-        }
-        return objectMapper.readValue(response.body(), objectMapper.getTypeFactory().constructCollectionType(List.class, SightingDto.class));
+        return await(getAllSightingsAsync());
+    }
+
+    /**
+     * Asynchronously fetches all sightings from the API.
+     * @return A future completing with a list of SightingDto objects.
+     */
+    public CompletableFuture<List<SightingDto>> getAllSightingsAsync() {
+        return getListAsync(URI.create(API_BASE_URL + "/sightings"), SightingDto.class, "Failed to fetch sightings");
     }
-    
+
     /**
      * Deletes a sighting by its ID.
      * @param id The ID of the sighting to delete.
      * @throws Exception If the API call fails.
      */
     public void deleteSighting(Long id) throws Exception {
+        await(deleteSightingAsync(id));
+    }
+
+    /**
+     * Asynchronously deletes a sighting by its ID.
+     * @param id The ID of the sighting to delete.
+     * @return A future completing once the sighting is deleted.
+     */
+    public CompletableFuture<Void> deleteSightingAsync(Long id) {
         HttpRequest request = HttpRequest.newBuilder()
                 .DELETE()
                 .uri(URI.create(API_BASE_URL + "/sightings/" + id))
                 .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) { // 204 No Content is the expected successful response
-            throw new RuntimeException("Failed to delete sighting: " + response.body());
-        }
+        // 204 No Content is the expected successful response
+        return sendAsync(request, 204, "Failed to delete sighting").thenApply(body -> null);
     }
-    
+
     /**
      * Queries sightings by various optional criteria.
      * @param location The location of the sighting (optional).
@@ -257,8 +493,120 @@ public class BirdApiClient {
      * @throws Exception If the API call fails.
      */
     public List<SightingDto> querySightings(String location, Long birdId, String startDate, String endDate) throws Exception {
+        return await(querySightingsAsync(location, birdId, startDate, endDate));
+    }
+
+    /**
+     * Asynchronously queries sightings by various optional criteria.
+     * @param location The location of the sighting (optional).
+     * @param birdId The ID of the bird (optional).
+     * @param startDate The start of the time interval (optional).
+     * @param endDate The end of the time interval (optional).
+     * @return A future completing with a list of matching SightingDto objects.
+     */
+    public CompletableFuture<List<SightingDto>> querySightingsAsync(String location, Long birdId, String startDate, String endDate) {
+        return getListAsync(sightingQueryUri(location, birdId, startDate, endDate), SightingDto.class, "Failed to query sightings");
+    }
+
+    /**
+     * Queries the sightings recorded within a distance of a point.
+     * @param latitude Latitude of the center, in degrees.
+     * @param longitude Longitude of the center, in degrees.
+     * @param radiusKm The search radius in kilometres.
+     * @return A list of matching SightingDto objects.
+     * @throws Exception If the API call fails.
+     */
+    public List<SightingDto> querySightingsNear(double latitude, double longitude, double radiusKm) throws Exception {
+        return await(querySightingsNearAsync(latitude, longitude, radiusKm));
+    }
+
+    /**
+     * Asynchronously queries the sightings recorded within a distance of a point.
+     * @param latitude Latitude of the center, in degrees.
+     * @param longitude Longitude of the center, in degrees.
+     * @param radiusKm The search radius in kilometres.
+     * @return A future completing with a list of matching SightingDto objects.
+     */
+    public CompletableFuture<List<SightingDto>> querySightingsNearAsync(double latitude, double longitude, double radiusKm) {
+        URI uri = URI.create(API_BASE_URL + "/sightings/query?latitude=" + latitude + "&longitude=" + longitude
+                + "&radiusKm=" + radiusKm);
+        return getListAsync(uri, SightingDto.class, "Failed to query sightings");
+    }
+
+    /**
+     * Queries the sightings inside a latitude/longitude box. A minLongitude greater than
+     * maxLongitude selects a box that crosses the antimeridian.
+     * @return A list of matching SightingDto objects.
+     * @throws Exception If the API call fails.
+     */
+    public List<SightingDto> querySightingsInBox(double minLatitude, double maxLatitude,
+                                                 double minLongitude, double maxLongitude) throws Exception {
+        return await(querySightingsInBoxAsync(minLatitude, maxLatitude, minLongitude, maxLongitude));
+    }
+
+    /**
+     * Asynchronously queries the sightings inside a latitude/longitude box.
+     * @return A future completing with a list of matching SightingDto objects.
+     */
+    public CompletableFuture<List<SightingDto>> querySightingsInBoxAsync(double minLatitude, double maxLatitude,
+                                                                         double minLongitude, double maxLongitude) {
+        URI uri = URI.create(API_BASE_URL + "/sightings/query?minLatitude=" + minLatitude + "&maxLatitude=" + maxLatitude
+                + "&minLongitude=" + minLongitude + "&maxLongitude=" + maxLongitude);
+        return getListAsync(uri, SightingDto.class, "Failed to query sightings");
+    }
+
+    // --- Streaming Sighting Endpoints ---
+
+    /**
+     * Streams all sightings, decoding them one at a time as they arrive, so arbitrarily large
+     * result sets are processed in constant memory. The stream holds the HTTP connection open
+     * and must be closed, e.g. with try-with-resources.
+     * @return A lazily populated stream of SightingDto objects.
+     * @throws Exception If the API call fails.
+     */
+    public Stream<SightingDto> streamAllSightings() throws Exception {
+        return streamSightings(URI.create(API_BASE_URL + "/sightings"), "Failed to fetch sightings");
+    }
+
+    /**
+     * Streams the sightings matching the given optional criteria, decoding them one at a time
+     * as they arrive. The stream must be closed, e.g. with try-with-resources.
+     * @param location The location of the sighting (optional).
+     * @param birdId The ID of the bird (optional).
+     * @param startDate The start of the time interval (optional).
+     * @param endDate The end of the time interval (optional).
+     * @return A lazily populated stream of matching SightingDto objects.
+     * @throws Exception If the API call fails.
+     */
+    public Stream<SightingDto> streamSightings(String location, Long birdId, String startDate, String endDate) throws Exception {
+        return streamSightings(sightingQueryUri(location, birdId, startDate, endDate), "Failed to query sightings");
+    }
+
+    /**
+     * Passes each sighting matching the given optional criteria to the callback as soon as it
+     * has been decoded; nothing is buffered beyond the current sighting.
+     * @param location The location of the sighting (optional).
+     * @param birdId The ID of the bird (optional).
+     * @param startDate The start of the time interval (optional).
+     * @param endDate The end of the time interval (optional).
+     * @param consumer Receives each matching sighting, in server order.
+     * @return The number of sightings passed to the consumer.
+     * @throws Exception If the API call fails.
+     */
+    public long forEachSighting(String location, Long birdId, String startDate, String endDate, Consumer<SightingDto> consumer) throws Exception {
+        try (Stream<SightingDto> sightings = streamSightings(location, birdId, startDate, endDate)) {
+            long[] count = new long[1];
+            sightings.forEach(sighting -> {
+                consumer.accept(sighting);
+                count[0]++;
+            });
+            return count[0];
+        }
+    }
+
+    private URI sightingQueryUri(String location, Long birdId, String startDate, String endDate) {
         StringBuilder uriBuilder = new StringBuilder(API_BASE_URL + "/sightings/query?");
-        
+
         List<String> queryParams = new java.util.ArrayList<>();
         if (location != null && !location.isEmpty()) {
             queryParams.add("location=" + URLEncoder.encode(location, StandardCharsets.UTF_8));
@@ -272,18 +620,247 @@ public class BirdApiClient {
         if (endDate != null && !endDate.isEmpty()) {
             queryParams.add("endDate=" + URLEncoder.encode(endDate, StandardCharsets.UTF_8));
         }
-        
+        if (queryParams.isEmpty()) {
+            // The server only runs an unfiltered query when asked to explicitly
+            queryParams.add("all=true");
+        }
+
         uriBuilder.append(queryParams.stream().collect(Collectors.joining("&")));
-        
+        return URI.create(uriBuilder.toString());
+    }
+
+    /**
+     * Requests the NDJSON representation of a sighting list and exposes it as a lazy stream.
+     * Each element is read from the response with Jackson's streaming parser; the raw body is
+     * never buffered. A plain JSON array body is accepted as well.
+     */
+    private Stream<SightingDto> streamSightings(URI uri, String failureMessage) throws Exception {
         HttpRequest request = HttpRequest.newBuilder()
                 .GET()
-                .uri(URI.create(uriBuilder.toString()))
+                .uri(uri)
+                .header("Accept", "application/x-ndjson")
+                .header("Accept-Encoding", "gzip")
                 .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = decode(response);
         if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to query sightings: " + response.body());
+            try (body) {
+                throw new RuntimeException(failureMessage + ": " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        MappingIterator<SightingDto> items;
+        try {
+            items = objectMapper.readerFor(SightingDto.class).readValues(body);
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        // Closing the iterator closes the parser and with it the response body
+                        items.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // --- Live Sighting Feed ---
+
+    /**
+     * Subscribes to sightings as they are created and deleted on the server, instead of
+     * polling the query endpoints. The filters are applied by the server.
+     * @param birdId Only report sightings of this bird (optional).
+     * @param location Only report sightings at this location (optional).
+     * @param listener Receives each CREATED and DELETED event, and a RESYNC event whenever
+     *                 events may have been missed; it is called on an HTTP client thread.
+     * @return The open subscription; close it to stop receiving events.
+     */
+    public SightingSubscription subscribeSightings(Long birdId, String location, Consumer<SightingEventDto> listener) {
+        List<String> queryParams = new ArrayList<>();
+        if (birdId != null) {
+            queryParams.add("birdId=" + birdId);
+        }
+        if (location != null && !location.isEmpty()) {
+            queryParams.add("location=" + URLEncoder.encode(location, StandardCharsets.UTF_8));
+        }
+        String query = queryParams.isEmpty() ? "" : "?" + String.join("&", queryParams);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(API_BASE_URL + "/sightings/stream" + query))
+                .header("Accept", "text/event-stream")
+                .build();
+        SightingSubscription subscription = new SightingSubscription(httpClient, request, objectMapper, listener);
+        subscription.connect();
+        return subscription;
+    }
+
+    // --- Request helpers ---
+
+    /**
+     * Sends a request without blocking and checks the status code.
+     * @return A future completing with the response body; it fails with a RuntimeException
+     *         carrying failureMessage if the status is not the expected one.
+     */
+    private CompletableFuture<String> sendAsync(HttpRequest request, int expectedStatus, String failureMessage) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != expectedStatus) {
+                        throw new RuntimeException(failureMessage + ": " + response.body());
+                    }
+                    return response.body();
+                });
+    }
+
+    /**
+     * Sends a request, retrying with exponential backoff and jitter while it fails in a way
+     * that may be temporary. Only for requests that are safe to repeat.
+     * @return A future completing with the last response.
+     */
+    private CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest request, int attempt) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, failure) -> {
+                    boolean retry = attempt < MAX_SIGHTING_ATTEMPTS
+                            && (failure != null ? isTransient(failure) : isTransient(response));
+                    if (!retry) {
+                        return failure == null ? CompletableFuture.completedFuture(response)
+                                : CompletableFuture.<HttpResponse<String>>failedFuture(failure);
+                    }
+                    long delay = INITIAL_RETRY_DELAY.toMillis() << (attempt - 1);
+                    delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                    Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> attempt + 1, later)
+                            .thenCompose(next -> sendWithRetry(request, next));
+                })
+                .thenCompose(next -> next);
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        // Includes HttpTimeoutException and refused or reset connections
+        return cause instanceof IOException;
+    }
+
+    private static boolean isTransient(HttpResponse<?> response) {
+        int statusCode = response.statusCode();
+        return statusCode == 502 || statusCode == 503 || statusCode == 504 || statusCode == 429
+                || statusCode == 409 && response.headers().firstValue("Retry-After").isPresent();
+    }
+
+    private <T> T read(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for an async call, rethrowing its failure as the original exception so the
+     * blocking methods fail the same way they always have.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // --- Conditional requests ---
+
+    /**
+     * Fetches a JSON list, revalidating a previously fetched copy with If-None-Match.
+     * A 304 answer returns the cached list without transferring or parsing the body.
+     * Responses are requested gzip-compressed.
+     * @return A future completing with an unmodifiable list; cached lists are shared between callers.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<List<T>> getListAsync(URI uri, Class<T> elementType, String failureMessage) {
+        CachedList<T> cached = (CachedList<T>) cachedList(uri.toString());
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .GET()
+                .uri(uri)
+                .header("Accept-Encoding", "gzip");
+        if (cached != null) {
+            builder.header("If-None-Match", cached.etag);
+        }
+
+        return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try {
+                        if (response.statusCode() == 304 && cached != null) {
+                            response.body().close();
+                            return cached.items;
+                        }
+                        try (InputStream body = decode(response)) {
+                            if (response.statusCode() != 200) {
+                                throw new RuntimeException(failureMessage + ": " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                            }
+                            List<T> items = Collections.unmodifiableList(objectMapper.readValue(body,
+                                    objectMapper.getTypeFactory().constructCollectionType(List.class, elementType)));
+                            cacheList(uri.toString(), response.headers().firstValue("ETag")
+                                    .map(etag -> new CachedList<>(etag, items)).orElse(null));
+                            return items;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private CachedList<?> cachedList(String uri) {
+        synchronized (conditionalCache) {
+            return conditionalCache.get(uri);
+        }
+    }
+
+    /**
+     * Replaces the cached copy of a list, or drops it if the new one is null or too large to keep
+     * (an unfiltered sighting list, say), then evicts the least recently used lists beyond the bounds.
+     */
+    private void cacheList(String uri, CachedList<?> list) {
+        synchronized (conditionalCache) {
+            CachedList<?> previous = conditionalCache.remove(uri);
+            if (previous != null) {
+                conditionalCacheItems -= previous.items.size();
+            }
+            if (list != null && list.items.size() <= CONDITIONAL_CACHE_MAX_ITEMS) {
+                conditionalCache.put(uri, list);
+                conditionalCacheItems += list.items.size();
+            }
+            Iterator<CachedList<?>> eldest = conditionalCache.values().iterator();
+            while (conditionalCache.size() > CONDITIONAL_CACHE_SIZE || conditionalCacheItems > CONDITIONAL_CACHE_MAX_ITEMS) {
+                conditionalCacheItems -= eldest.next().items.size();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the response body, transparently decompressing it if the server gzip-encoded it.
+     */
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    private static final class CachedList<T> {
+        private final String etag;
+        private final List<T> items;
+
+        private CachedList(String etag, List<T> items) {
+            this.etag = etag;
+            this.items = items;
         }
-        return objectMapper.readValue(response.body(), objectMapper.getTypeFactory().constructCollectionType(List.class, SightingDto.class));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package com.velocity.birdapi.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velocity.itest.avian.dto.SightingEventDto;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An open subscription to the server's live sighting feed (Server-Sent Events). Events are
+ * passed to the listener on an HTTP client thread, one at a time and in server order.
+ * <p>
+ * A dropped connection is re-established automatically. Events published while it was down
+ * are lost, so after every reconnect the listener receives a RESYNC event, just as when the
+ * server drops events for a slow client. Close the subscription to end the feed.
+ */
+public final class SightingSubscription implements AutoCloseable {
+
+    // Used until the server sends its own reconnect delay ("retry:" field)
+    private static final long DEFAULT_RECONNECT_DELAY_MILLIS = 3000;
+
+    private final HttpClient httpClient;
+    private final HttpRequest request;
+    private final ObjectMapper objectMapper;
+    private final Consumer<SightingEventDto> listener;
+
+    private volatile boolean closed;
+    private volatile Flow.Subscription connection;
+    private volatile long reconnectDelayMillis = DEFAULT_RECONNECT_DELAY_MILLIS;
+    private volatile boolean connectedBefore;
+
+    SightingSubscription(HttpClient httpClient, HttpRequest request, ObjectMapper objectMapper,
+                         Consumer<SightingEventDto> listener) {
+        this.httpClient = httpClient;
+        this.request = request;
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+    }
+
+    void connect() {
+        if (closed) {
+            return;
+        }
+        httpClient.sendAsync(request, responseInfo -> {
+                    if (responseInfo.statusCode() != 200) {
+                        return HttpResponse.BodySubscribers.discarding();
+                    }
+                    if (connectedBefore) {
+                        deliver(new SightingEventDto(SightingEventDto.RESYNC, null));
+                    }
+                    connectedBefore = true;
+                    return HttpResponse.BodySubscribers.fromLineSubscriber(new EventParser());
+                })
+                .whenComplete((response, failure) -> {
+                    // The stream ended: the server completed it, rejected it, or the connection failed
+                    if (!closed) {
+                        CompletableFuture.runAsync(this::connect,
+                                CompletableFuture.delayedExecutor(reconnectDelayMillis, TimeUnit.MILLISECONDS));
+                    }
+                });
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Ends the feed and releases the connection. No events are delivered afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Flow.Subscription current = connection;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void deliver(SightingEventDto event) {
+        if (closed) {
+            return;
+        }
+        try {
+            listener.accept(event);
+        } catch (RuntimeException e) {
+            // A failing listener must not end the feed for the events that follow
+            System.err.println("Sighting listener failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Assembles Server-Sent Events from the response lines: field lines up to a blank line
+     * form one event. Lines are requested one at a time, so a slow listener slows the reads.
+     */
+    private final class EventParser implements Flow.Subscriber<String> {
+        private Flow.Subscription subscription;
+        private final StringBuilder data = new StringBuilder();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            connection = subscription;
+            if (closed) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.isEmpty()) {
+                dispatch();
+            } else if (!line.startsWith(":")) {
+                int colon = line.indexOf(':');
+                String field = colon < 0 ? line : line.substring(0, colon);
+                String value = colon < 0 ? "" : line.substring(colon + 1);
+                if (value.startsWith(" ")) {
+                    value = value.substring(1);
+                }
+                if (field.equals("data")) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                } else if (field.equals("retry")) {
+                    try {
+                        reconnectDelayMillis = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        // Ignored, as the SSE format requires
+                    }
+                }
+                // The event name repeats the type in the payload, and the id is not needed since
+                // the server does not replay missed events
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Reconnection is handled when the response future completes
+        }
+
+        @Override
+        public void onComplete() {
+            // An event cut off by the end of the stream is incomplete and discarded
+            data.setLength(0);
+        }
+
+        private void dispatch() {
+            if (data.length() == 0) {
+                return;
+            }
+            String payload = data.toString();
+            data.setLength(0);
+            try {
+                deliver(objectMapper.readValue(payload, SightingEventDto.class));
+            } catch (JsonProcessingException e) {
+                System.err.println("Skipping malformed sighting event: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.velocity.itest.avian.dto;
+
+/**
+ * Total number of sightings at one location.
+ */
+public class LocationSightingCountDto {
+    private String location;
+    private long count;
+
+    // Default constructor
+    public LocationSightingCountDto() {
+    }
+
+    public LocationSightingCountDto(String location, long count) {
+        this.location = location;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -6,6 +6,8 @@ public class SightingDto {
     private Long id;
     private String location;
     private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
     private BirdDto bird;
 
     // Default constructor
@@ -37,6 +39,22 @@ public class SightingDto {
         this.dateTime = dateTime;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
     public BirdDto getBird() {
         return bird;
     }
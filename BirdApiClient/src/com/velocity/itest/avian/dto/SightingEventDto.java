@@ -0,0 +1,37 @@
+package com.velocity.itest.avian.dto;
+
+public class SightingEventDto {
+    public static final String CREATED = "CREATED";
+    public static final String DELETED = "DELETED";
+    // Events may have been missed; whatever was built from the feed should be re-queried
+    public static final String RESYNC = "RESYNC";
+
+    private String type;
+    private SightingDto sighting;
+
+    // Default constructor
+    public SightingEventDto() {
+    }
+
+    public SightingEventDto(String type, SightingDto sighting) {
+        this.type = type;
+        this.sighting = sighting;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public SightingDto getSighting() {
+        return sighting;
+    }
+
+    public void setSighting(SightingDto sighting) {
+        this.sighting = sighting;
+    }
+}
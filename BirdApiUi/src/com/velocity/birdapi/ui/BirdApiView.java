@@ -1,7 +1,6 @@
 package com.velocity.birdapi.ui;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -24,8 +23,10 @@ import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.part.ViewPart;
 
 import com.velocity.birdapi.client.BirdApiClient;
+import com.velocity.birdapi.client.SightingSubscription;
 import com.velocity.itest.avian.dto.BirdDto;
 import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
 
 /**
  * An Eclipse ViewPart that provides a user interface for managing birds and sightings.
@@ -41,6 +42,13 @@ public class BirdApiView extends ViewPart {
     private Text sightingBirdIdText;
     private Text sightingLocationText;
 
+    // Live feed of the selected bird's sightings; replaced whenever the selection changes
+    private SightingSubscription sightingSubscription;
+    private Long watchedBirdId;
+
+    // Incremented per keystroke in the bird search box; only the latest search may fill the table
+    private int birdSearchGeneration;
+
     public BirdApiView() {
         // Initialize the API client. This handles all interaction with the REST API.
         this.apiClient = new BirdApiClient();
@@ -76,8 +84,11 @@ public class BirdApiView extends ViewPart {
                 IStructuredSelection selection = (IStructuredSelection) event.getSelection();
                 if (!selection.isEmpty()) {
                     BirdDto selectedBird = (BirdDto) selection.getFirstElement();
+                    // Subscribe before querying, so no sighting falls between the two
+                    watchSightings(selectedBird.getId());
                     refreshSightingsTable(selectedBird.getId());
                 } else {
+                    watchSightings(null);
                     sightingTableViewer.setInput(null);
                 }
             }
@@ -125,27 +136,32 @@ public class BirdApiView extends ViewPart {
         addButton.addSelectionListener(new SelectionAdapter() {
             @Override
             public void widgetSelected(SelectionEvent e) {
-                new Thread(() -> {
-                    try {
-                        BirdDto newBird = new BirdDto();
-                        newBird.setName(nameText.getText());
-                        newBird.setColor(colorText.getText());
-                        newBird.setWeight(Double.parseDouble(weightText.getText()));
-                        newBird.setHeight(Double.parseDouble(heightText.getText()));
-                        apiClient.addBird(newBird);
-                        
-                        // Update the UI on the UI thread
-                        getSite().getShell().getDisplay().asyncExec(() -> {
-                            refreshBirdTable();
-                            nameText.setText("");
-                            colorText.setText("");
-                            weightText.setText("");
-                            heightText.setText("");
+                BirdDto newBird = new BirdDto();
+                try {
+                    newBird.setName(nameText.getText());
+                    newBird.setColor(colorText.getText());
+                    newBird.setWeight(Double.parseDouble(weightText.getText()));
+                    newBird.setHeight(Double.parseDouble(heightText.getText()));
+                } catch (NumberFormatException ex) {
+                    System.err.println("Error adding bird: " + ex.getMessage());
+                    return;
+                }
+
+                apiClient.addBirdAsync(newBird)
+                        .thenRun(() -> {
+                            // Update the UI on the UI thread
+                            getSite().getShell().getDisplay().asyncExec(() -> {
+                                refreshBirdTable();
+                                nameText.setText("");
+                                colorText.setText("");
+                                weightText.setText("");
+                                heightText.setText("");
+                            });
+                        })
+                        .exceptionally(ex -> {
+                            System.err.println("Error adding bird: " + ex.getMessage());
+                            return null;
                         });
-                    } catch (Exception ex) {
-                        System.err.println("Error adding bird: " + ex.getMessage());
-                    }
-                }).start();
             }
         });
     }
@@ -178,26 +194,32 @@ public class BirdApiView extends ViewPart {
         addButton.addSelectionListener(new SelectionAdapter() {
             @Override
             public void widgetSelected(SelectionEvent e) {
-                new Thread(() -> {
-                    try {
-                        SightingDto newSighting = new SightingDto();
-                        BirdDto bird = new BirdDto();
-                        bird.setId(Long.parseLong(sightingBirdIdText.getText()));
-                        newSighting.setBird(bird);
-                        newSighting.setLocation(sightingLocationText.getText());
-                        newSighting.setDateTime(LocalDateTime.now());
-                        
-                        apiClient.addSighting(newSighting);
-
-                        getSite().getShell().getDisplay().asyncExec(() -> {
-                            refreshSightingsTable(Long.parseLong(sightingBirdIdText.getText()));
-                            sightingBirdIdText.setText("");
-                            sightingLocationText.setText("");
+                SightingDto newSighting = new SightingDto();
+                long birdId;
+                try {
+                    birdId = Long.parseLong(sightingBirdIdText.getText());
+                } catch (NumberFormatException ex) {
+                    System.err.println("Error adding sighting: " + ex.getMessage());
+                    return;
+                }
+                BirdDto bird = new BirdDto();
+                bird.setId(birdId);
+                newSighting.setBird(bird);
+                newSighting.setLocation(sightingLocationText.getText());
+                newSighting.setDateTime(LocalDateTime.now());
+
+                apiClient.addSightingAsync(newSighting)
+                        .thenRun(() -> {
+                            // The new sighting reaches the table through the live feed
+                            getSite().getShell().getDisplay().asyncExec(() -> {
+                                sightingBirdIdText.setText("");
+                                sightingLocationText.setText("");
+                            });
+                        })
+                        .exceptionally(ex -> {
+                            System.err.println("Error adding sighting: " + ex.getMessage());
+                            return null;
                         });
-                    } catch (Exception ex) {
-                        System.err.println("Error adding sighting: " + ex.getMessage());
-                    }
-                }).start();
             }
         });
     }
@@ -210,6 +232,12 @@ public class BirdApiView extends ViewPart {
         group.setText("All Birds (Select to see sightings)");
         group.setLayout(new GridLayout(1, false));
         group.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+
+        // Typeahead: the table shows the best matches for the text typed so far
+        Text searchText = new Text(group, SWT.SEARCH | SWT.ICON_CANCEL | SWT.BORDER);
+        searchText.setMessage("Search birds");
+        searchText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        searchText.addModifyListener(e -> searchBirds(searchText.getText()));
         
         birdTableViewer = new TableViewer(group, SWT.BORDER | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
         Table table = birdTableViewer.getTable();
@@ -268,32 +296,112 @@ public class BirdApiView extends ViewPart {
      * Fetches all birds from the API and refreshes the bird table on the UI thread.
      */
     private void refreshBirdTable() {
-        new Thread(() -> {
-            try {
-                final List<BirdDto> birds = apiClient.getAllBirds();
-                getSite().getShell().getDisplay().asyncExec(() -> {
-                    birdTableViewer.setInput(birds);
+        apiClient.getAllBirdsAsync()
+                .thenAccept(birds -> {
+                    getSite().getShell().getDisplay().asyncExec(() -> {
+                        birdTableViewer.setInput(birds);
+                    });
+                })
+                .exceptionally(e -> {
+                    System.err.println("Error refreshing bird table: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Shows the birds best matching the search text, or all birds when it is empty. Responses
+     * to earlier keystrokes that arrive late are discarded.
+     */
+    private void searchBirds(String text) {
+        int generation = ++birdSearchGeneration;
+        if (text.isBlank()) {
+            refreshBirdTable();
+            return;
+        }
+        apiClient.searchBirdsAsync(text, 50)
+                .thenAccept(birds -> {
+                    getSite().getShell().getDisplay().asyncExec(() -> {
+                        if (generation == birdSearchGeneration && !birdTableViewer.getControl().isDisposed()) {
+                            birdTableViewer.setInput(birds);
+                        }
+                    });
+                })
+                .exceptionally(e -> {
+                    System.err.println("Error searching birds: " + e.getMessage());
+                    return null;
                 });
-            } catch (Exception e) {
-                System.err.println("Error refreshing bird table: " + e.getMessage());
-            }
-        }).start();
     }
 
     /**
      * Fetches sightings for a specific bird from the API and refreshes the sighting table.
      */
     private void refreshSightingsTable(Long birdId) {
-        new Thread(() -> {
-            try {
-                final List<SightingDto> sightings = apiClient.querySightings(null, birdId, null, null);
-                getSite().getShell().getDisplay().asyncExec(() -> {
-                    sightingTableViewer.setInput(sightings);
+        apiClient.querySightingsAsync(null, birdId, null, null)
+                .thenAccept(sightings -> {
+                    getSite().getShell().getDisplay().asyncExec(() -> {
+                        sightingTableViewer.setInput(sightings);
+                    });
+                })
+                .exceptionally(e -> {
+                    System.err.println("Error refreshing sightings table: " + e.getMessage());
+                    return null;
                 });
-            } catch (Exception e) {
-                System.err.println("Error refreshing sightings table: " + e.getMessage());
+    }
+
+    /**
+     * Subscribes to live sighting events for the given bird and applies them to the sighting
+     * table as they arrive, replacing any previous subscription.
+     * @param birdId The selected bird, or null to stop listening.
+     */
+    private void watchSightings(Long birdId) {
+        if (sightingSubscription != null) {
+            sightingSubscription.close();
+            sightingSubscription = null;
+        }
+        watchedBirdId = birdId;
+        if (birdId == null) {
+            return;
+        }
+        sightingSubscription = apiClient.subscribeSightings(birdId, null, event -> {
+            getSite().getShell().getDisplay().asyncExec(() -> applySightingEvent(birdId, event));
+        });
+    }
+
+    /**
+     * Updates the sighting table for one live event. Runs on the UI thread.
+     */
+    private void applySightingEvent(Long birdId, SightingEventDto event) {
+        // Events still queued from a previous selection are ignored
+        if (sightingTableViewer.getControl().isDisposed() || !birdId.equals(watchedBirdId)) {
+            return;
+        }
+        if (SightingEventDto.RESYNC.equals(event.getType())) {
+            refreshSightingsTable(birdId);
+            return;
+        }
+        SightingDto sighting = event.getSighting();
+        SightingDto shown = findShownSighting(sighting.getId());
+        if (SightingEventDto.CREATED.equals(event.getType()) && shown == null) {
+            sightingTableViewer.add(sighting);
+        } else if (SightingEventDto.DELETED.equals(event.getType()) && shown != null) {
+            sightingTableViewer.remove(shown);
+        }
+    }
+
+    private SightingDto findShownSighting(Long id) {
+        for (int i = 0; i < sightingTableViewer.getTable().getItemCount(); i++) {
+            SightingDto shown = (SightingDto) sightingTableViewer.getElementAt(i);
+            if (shown != null && shown.getId() != null && shown.getId().equals(id)) {
+                return shown;
             }
-        }).start();
+        }
+        return null;
+    }
+
+    @Override
+    public void dispose() {
+        watchSightings(null);
+        super.dispose();
     }
 
     @Override
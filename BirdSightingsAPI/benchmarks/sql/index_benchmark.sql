@@ -0,0 +1,62 @@
+-- Query latency for the sighting query paths at 10M rows, before and after the V2 indexes.
+--
+-- Runs in a scratch schema so it never touches application data:
+--
+--   psql -h localhost -U avian -d birddb -f benchmarks/sql/index_benchmark.sql > index_benchmark.out
+--
+-- Compare the "Execution Time" lines of the two EXPLAIN ANALYZE passes. Loading takes a few
+-- minutes; the schema is dropped at the end.
+
+\timing on
+SET client_min_messages = warning;
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+SET search_path = bench;
+
+CREATE TABLE birds (
+    id     BIGINT           NOT NULL PRIMARY KEY,
+    name   VARCHAR(255),
+    color  VARCHAR(255),
+    weight DOUBLE PRECISION NOT NULL,
+    height DOUBLE PRECISION NOT NULL
+);
+
+CREATE TABLE sightings (
+    id        BIGINT NOT NULL PRIMARY KEY,
+    bird_id   BIGINT REFERENCES birds (id),
+    location  VARCHAR(255),
+    date_time TIMESTAMP
+);
+
+-- 10,000 birds over 20 colors
+INSERT INTO birds
+SELECT g, 'Bird ' || (g % 2000), 'Color ' || (g % 20), random() * 10, random() * 100
+FROM generate_series(1, 10000) g;
+
+-- 10M sightings over 5,000 locations and ~3 years, inserted in time order
+INSERT INTO sightings
+SELECT g,
+       1 + (g * 7919) % 10000,
+       'Location ' || ((g * 104729) % 5000),
+       TIMESTAMP '2022-01-01' + (g * INTERVAL '9 seconds')
+FROM generate_series(1, 10000000) g;
+
+VACUUM ANALYZE birds;
+VACUUM ANALYZE sightings;
+
+\echo '=== Before indexes ==='
+\ir index_benchmark_queries.sql
+
+CREATE INDEX idx_sightings_bird_date_time ON sightings (bird_id, date_time);
+CREATE INDEX idx_sightings_location_date_time ON sightings (location, date_time);
+CREATE INDEX idx_birds_name_color ON birds (name, color);
+CREATE INDEX brin_sightings_date_time ON sightings USING brin (date_time);
+ANALYZE birds;
+ANALYZE sightings;
+
+\echo '=== After indexes ==='
+\ir index_benchmark_queries.sql
+
+RESET search_path;
+DROP SCHEMA bench CASCADE;
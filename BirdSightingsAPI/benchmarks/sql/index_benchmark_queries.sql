@@ -0,0 +1,25 @@
+-- The statements issued by SightingRepository / BirdRepository, with representative parameters.
+-- Included twice by index_benchmark.sql.
+
+\echo '--- findByBirdAndLocationAndDateTimeBetween'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM sightings
+WHERE bird_id = 42 AND location = 'Location 17'
+  AND date_time BETWEEN TIMESTAMP '2023-01-01' AND TIMESTAMP '2023-06-30';
+
+\echo '--- findByBird'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM sightings WHERE bird_id = 42;
+
+\echo '--- findByLocation'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM sightings WHERE location = 'Location 17';
+
+\echo '--- time range only (BRIN)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM sightings
+WHERE date_time BETWEEN TIMESTAMP '2023-03-01' AND TIMESTAMP '2023-03-02';
+
+\echo '--- BirdRepository.findByNameAndColor'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM birds WHERE name = 'Bird 42' AND color = 'Color 2';
@@ -0,0 +1,47 @@
+package com.velocity.itest.avian.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+
+/**
+ * Deterministic sample data shared by the benchmark suites.
+ */
+final class BenchmarkData {
+
+    static final String[] NAMES = {"Eagle", "Sparrow", "Robin", "Heron", "Owl", "Finch", "Kestrel", "Wren"};
+    static final String[] COLORS = {"Brown", "Grey", "Red", "Blue", "White", "Yellow", "Black", "Green"};
+    static final String[] LOCATIONS = {"Grand Canyon", "Rocky Mountains", "Backyard", "City Park", "Central Park",
+                                       "Lakeshore", "Wetlands", "Old Forest"};
+
+    // Fixed origin so every run serializes the same timestamps
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 6, 0);
+
+    private BenchmarkData() {
+    }
+
+    static List<Bird> birds(int count) {
+        List<Bird> birds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Bird bird = new Bird(NAMES[i % NAMES.length] + " " + i, COLORS[i % COLORS.length],
+                    0.05 + i % 50 * 0.1, 10.0 + i % 80);
+            bird.setId((long) i + 1);
+            birds.add(bird);
+        }
+        return birds;
+    }
+
+    static List<Sighting> sightings(List<Bird> birds, int count) {
+        List<Sighting> sightings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Sighting sighting = new Sighting(birds.get(i % birds.size()), LOCATIONS[i % LOCATIONS.length],
+                    START.plusMinutes(i * 7L));
+            sighting.setId((long) i + 1);
+            sightings.add(sighting);
+        }
+        return sightings;
+    }
+}
@@ -0,0 +1,162 @@
+package com.velocity.itest.avian.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.velocity.itest.avian.BirdSightingsApiApplication;
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.service.BirdService;
+import com.velocity.itest.avian.service.SightingIngestService;
+
+/**
+ * End-to-end BirdController list and query calls over HTTP, against the full application
+ * backed by an in-memory H2 database in PostgreSQL mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private static final int BIRD_COUNT = 100;
+
+    @Param({"10000"})
+    private int sightingCount;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long birdId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BirdSightingsApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchdb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        // The migrations use PostgreSQL-only DDL, so Hibernate builds the H2 schema
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.show-sql=false",
+                        "avian.stats.rollups.enabled=false",
+                        "avian.sightings.partitions.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port") + "/api/v1";
+        seed();
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    private void seed() {
+        BirdService birdService = context.getBean(BirdService.class);
+        List<BirdDto> birds = new ArrayList<>(BIRD_COUNT);
+        for (Bird bird : BenchmarkData.birds(BIRD_COUNT)) {
+            bird.setId(null);
+            Bird saved = birdService.create(bird);
+            birds.add(new BirdDto(saved.getId(), saved.getName(), saved.getColor(), saved.getWeight(), saved.getHeight()));
+        }
+        birdId = birds.get(0).getId();
+
+        SightingIngestService ingestService = context.getBean(SightingIngestService.class);
+        List<SightingDto> chunk = new ArrayList<>(SightingIngestService.CHUNK_SIZE);
+        for (int i = 0; i < sightingCount; i++) {
+            SightingDto sighting = new SightingDto();
+            sighting.setBird(birds.get(i % birds.size()));
+            sighting.setLocation(BenchmarkData.LOCATIONS[i % BenchmarkData.LOCATIONS.length]);
+            sighting.setDateTime(BenchmarkData.START.plusMinutes(i * 7L));
+            chunk.add(sighting);
+            if (chunk.size() == SightingIngestService.CHUNK_SIZE) {
+                ingestService.ingest(chunk, i + 1 - chunk.size(), null);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            ingestService.ingest(chunk, sightingCount - chunk.size(), null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] listBirds() throws Exception {
+        return get("/birds", "application/json");
+    }
+
+    @Benchmark
+    public byte[] queryBirdsByColor() throws Exception {
+        return get("/birds/query?color=" + BenchmarkData.COLORS[0], "application/json");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] listSightings() throws Exception {
+        return get("/sightings", "application/json");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] streamSightingsNdjson() throws Exception {
+        return get("/sightings", "application/x-ndjson");
+    }
+
+    @Benchmark
+    public byte[] querySightingsByBird() throws Exception {
+        return get("/sightings/query?birdId=" + birdId, "application/json");
+    }
+
+    @Benchmark
+    public byte[] querySightingsByLocationAndRange() throws Exception {
+        return get("/sightings/query?location=" + BenchmarkData.LOCATIONS[2].replace(" ", "%20")
+                + "&startDate=" + BenchmarkData.START.plusDays(1)
+                + "&endDate=" + BenchmarkData.START.plusDays(15), "application/json");
+    }
+
+    @Benchmark
+    public byte[] sightingsPage() throws Exception {
+        return get("/sightings/page?sort=dateTime&limit=100", "application/json");
+    }
+
+    // Plain GETs without If-None-Match, so every call does the full query and serialization
+    private byte[] get(String path, String accept) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(baseUrl + path))
+                .header("Accept", accept)
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+}
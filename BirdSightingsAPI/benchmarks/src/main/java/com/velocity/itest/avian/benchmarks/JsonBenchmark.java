@@ -0,0 +1,96 @@
+package com.velocity.itest.avian.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Sighting;
+
+/**
+ * Jackson (de)serialization of sighting lists and of the LocalDateTime values they carry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1000"})
+    private int listSize;
+
+    private ObjectWriter sightingListWriter;
+    private ObjectReader sightingListReader;
+    private ObjectMapper objectMapper;
+    private List<SightingDto> sightings;
+    private byte[] sightingsJson;
+    private LocalDateTime dateTime;
+    private String dateTimeJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Same configuration Spring Boot applies to the MVC message converters
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        TypeReference<List<SightingDto>> listType = new TypeReference<List<SightingDto>>() {};
+        sightingListWriter = objectMapper.writerFor(listType);
+        sightingListReader = objectMapper.readerFor(listType);
+
+        sightings = new ArrayList<>(listSize);
+        for (Sighting sighting : BenchmarkData.sightings(BenchmarkData.birds(100), listSize)) {
+            SightingDto dto = new SightingDto();
+            dto.setId(sighting.getId());
+            dto.setLocation(sighting.getLocation());
+            dto.setDateTime(sighting.getDateTime());
+            dto.setBird(new BirdDto(sighting.getBird().getId(), sighting.getBird().getName(),
+                    sighting.getBird().getColor(), sighting.getBird().getWeight(), sighting.getBird().getHeight()));
+            sightings.add(dto);
+        }
+        sightingsJson = sightingListWriter.writeValueAsBytes(sightings);
+
+        dateTime = BenchmarkData.START.plusNanos(123_456_789);
+        dateTimeJson = objectMapper.writeValueAsString(dateTime);
+    }
+
+    @Benchmark
+    public byte[] writeSightingList() throws Exception {
+        return sightingListWriter.writeValueAsBytes(sightings);
+    }
+
+    @Benchmark
+    public List<SightingDto> readSightingList() throws Exception {
+        return sightingListReader.readValue(sightingsJson);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String writeLocalDateTime() throws Exception {
+        return objectMapper.writeValueAsString(dateTime);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public LocalDateTime readLocalDateTime() throws Exception {
+        return objectMapper.readValue(dateTimeJson, LocalDateTime.class);
+    }
+}
@@ -0,0 +1,86 @@
+package com.velocity.itest.avian.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.mapper.BirdMapper;
+import com.velocity.itest.avian.mapper.SightingMapper;
+
+/**
+ * Entity to DTO mapping, as done for every bird and sighting the API returns from entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1000"})
+    private int listSize;
+
+    private AnnotationConfigApplicationContext context;
+    private BirdMapper birdMapper;
+    private SightingMapper sightingMapper;
+    private Bird bird;
+    private Sighting sighting;
+    private List<Sighting> sightings;
+
+    @Setup
+    public void setUp() {
+        // Let Spring wire the mappers the same way the application does
+        context = new AnnotationConfigApplicationContext(BirdMapper.class, SightingMapper.class);
+        birdMapper = context.getBean(BirdMapper.class);
+        sightingMapper = context.getBean(SightingMapper.class);
+
+        List<Bird> birds = BenchmarkData.birds(100);
+        sightings = BenchmarkData.sightings(birds, listSize);
+        bird = birds.get(0);
+        sighting = sightings.get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BirdDto birdToDto() {
+        return birdMapper.toDto(bird);
+    }
+
+    @Benchmark
+    public SightingDto sightingToDto() {
+        return sightingMapper.toDto(sighting);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<SightingDto> sightingListToDto() {
+        List<SightingDto> dtos = new ArrayList<>(sightings.size());
+        for (Sighting s : sightings) {
+            dtos.add(sightingMapper.toDto(s));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,184 @@
+package com.velocity.itest.avian.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.velocity.itest.avian.BirdSightingsApiApplication;
+
+/**
+ * Fires N concurrent requests at a database-bound endpoint while the database is artificially
+ * slow, and probes a cached endpoint alongside them. Compares the default Tomcat thread pool
+ * with virtual threads: throughput of the slow requests is capped by the connection pool in
+ * both modes, but with platform threads the slow requests occupy every worker and the cached
+ * probe queues behind them.
+ * <p>
+ * Run against an API jar built with -Pjava21, on JDK 21:
+ * <pre>
+ * java -cp target/benchmarks.jar com.velocity.itest.avian.benchmarks.SlowRequestLoadTest 10000 true
+ * java -cp target/benchmarks.jar com.velocity.itest.avian.benchmarks.SlowRequestLoadTest 10000 false
+ * </pre>
+ * Arguments: concurrent requests (10000), virtual threads (true), simulated query time in ms (50).
+ * The process may need a raised open-file limit (ulimit -n) for 10k sockets.
+ */
+public class SlowRequestLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        boolean virtualThreads = args.length > 1 ? Boolean.parseBoolean(args[1]) : true;
+        long queryMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BirdSightingsApiApplication.class, SlowDatabase.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loaddb;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.show-sql=false",
+                        "avian.stats.rollups.enabled=false",
+                        "avian.sightings.partitions.enabled=false",
+                        "avian.virtual-threads.enabled=" + virtualThreads,
+                        "avian.db.concurrency-limit.acquire-timeout=10m",
+                        "avian.load-test.query-millis=" + queryMillis,
+                        "logging.level.root=WARN")
+                .run();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port") + "/api/v1";
+
+        // HTTP/1.1 so every request holds its own connection, as independent clients would
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(16))
+                .connectTimeout(Duration.ofMinutes(1))
+                .build();
+        HttpRequest slow = HttpRequest.newBuilder(URI.create(baseUrl + "/sightings/query?birdId=1"))
+                .timeout(Duration.ofMinutes(10)).build();
+        HttpRequest cached = HttpRequest.newBuilder(URI.create(baseUrl + "/birds"))
+                .timeout(Duration.ofMinutes(10)).build();
+        httpClient.send(cached, HttpResponse.BodyHandlers.discarding());
+
+        // Probe the cached endpoint every 100 ms while the load runs
+        List<Long> probeMillis = Collections.synchronizedList(new ArrayList<>());
+        ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor();
+        prober.scheduleAtFixedRate(() -> {
+            long start = System.nanoTime();
+            httpClient.sendAsync(cached, HttpResponse.BodyHandlers.discarding())
+                    .thenRun(() -> probeMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }, 100, 100, TimeUnit.MILLISECONDS);
+
+        List<Long> latencyMillis = Collections.synchronizedList(new ArrayList<>(requests));
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            long sent = System.nanoTime();
+            calls[i] = httpClient.sendAsync(slow, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        } else {
+                            latencyMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent));
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(calls).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        prober.shutdownNow();
+
+        System.out.printf("threads=%s requests=%d queryMillis=%d pool=%s%n",
+                virtualThreads ? "virtual" : "platform", requests, queryMillis,
+                context.getEnvironment().getProperty("spring.datasource.hikari.maximum-pool-size"));
+        System.out.printf("slow:   %.1f req/s, %d failed, latency ms p50=%d p99=%d max=%d%n",
+                latencyMillis.size() / seconds, failures.get(),
+                percentile(latencyMillis, 0.5), percentile(latencyMillis, 0.99), percentile(latencyMillis, 1.0));
+        System.out.printf("cached: %d probes, latency ms p50=%d p99=%d max=%d%n", probeMillis.size(),
+                percentile(probeMillis, 0.5), percentile(probeMillis, 0.99), percentile(probeMillis, 1.0));
+
+        context.close();
+        System.exit(0);
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        List<Long> sorted;
+        synchronized (values) {
+            sorted = new ArrayList<>(values);
+        }
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        Collections.sort(sorted);
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+    }
+
+    /**
+     * Makes every connection checkout take avian.load-test.query-millis while holding the
+     * connection, standing in for a slow query.
+     */
+    static class SlowDatabase {
+
+        @Bean
+        static SlowDataSourcePostProcessor slowDataSource(Environment environment) {
+            long delayMillis = environment.getProperty("avian.load-test.query-millis", Long.class, 50L);
+            return new SlowDataSourcePostProcessor(delayMillis);
+        }
+    }
+
+    // Ordered, so it wraps the pool before (inside) the concurrency limiter
+    private static class SlowDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final long delayMillis;
+
+        SlowDataSourcePostProcessor(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    Connection connection = super.getConnection();
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return connection;
+                }
+            };
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+#!/bin/bash
+# Lets the db-replica service (docker compose --profile replica) stream from this database.
+# Runs once, when the data volume is first initialized.
+set -e
+echo "host replication all all md5" >> "$PGDATA/pg_hba.conf"
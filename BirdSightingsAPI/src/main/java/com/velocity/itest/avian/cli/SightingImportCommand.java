@@ -0,0 +1,92 @@
+package com.velocity.itest.avian.cli;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.velocity.itest.avian.dto.SightingImportResultDto;
+import com.velocity.itest.avian.service.SightingImportService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs a bulk sighting import from the command line and exits:
+ *
+ * <pre>
+ * java -jar BirdSightingsAPI.jar --spring.main.web-application-type=none \
+ *     --avian.import.file=history.csv.gz [--avian.import.id=history] [--avian.import.format=ndjson]
+ * </pre>
+ *
+ * The format follows the file extension (.csv, .ndjson or .jsonl, optionally .gz) unless given.
+ * The id defaults to the file name, so running the same command again resumes an interrupted
+ * import. Progress is printed after every committed chunk.
+ */
+@Component
+@ConditionalOnProperty("avian.import.file")
+public class SightingImportCommand implements ApplicationRunner {
+
+    @Autowired
+    private SightingImportService sightingImportService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${avian.import.file}")
+    private Path file;
+
+    @Value("${avian.import.id:}")
+    private String importId;
+
+    @Value("${avian.import.format:}")
+    private String format;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = importFile() ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private boolean importFile() {
+        String name = file.getFileName().toString();
+        boolean gzip = name.toLowerCase(Locale.ROOT).endsWith(".gz");
+        String baseName = gzip ? name.substring(0, name.length() - 3) : name;
+        String id = importId.isEmpty() ? baseName : importId;
+
+        try (InputStream in = gzip ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            long started = System.nanoTime();
+            SightingImportResultDto result = sightingImportService.importSightings(id, formatOf(baseName), in,
+                    progress -> System.out.println(describe(progress, started)));
+            if (result.getErrorFile() != null) {
+                System.out.println("Rejected records: " + result.getErrorFile());
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("Import " + id + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private SightingImportService.Format formatOf(String baseName) {
+        String lower = (format.isEmpty() ? baseName : format).toLowerCase(Locale.ROOT);
+        return lower.endsWith("ndjson") || lower.endsWith("jsonl")
+                ? SightingImportService.Format.NDJSON
+                : SightingImportService.Format.CSV;
+    }
+
+    private static String describe(SightingImportResultDto progress, long started) {
+        double seconds = Math.max((System.nanoTime() - started) / 1e9, 1e-3);
+        long thisRun = progress.getRecords() - progress.getResumedAfter();
+        return String.format(Locale.ROOT, "%s: %d records (%d imported, %d rejected), %.0f records/s%s",
+                progress.getImportId(), progress.getRecords(), progress.getImported(), progress.getRejected(),
+                thisRun / seconds, progress.isComplete() ? ", complete" : "");
+    }
+}
@@ -0,0 +1,33 @@
+package com.velocity.itest.avian.cli;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts the application and exits as soon as it is up, so the JVM can record the classes a
+ * startup loads into a class data sharing archive (see the Dockerfile):
+ *
+ * <pre>
+ * java -XX:DumpLoadedClassList=classes.lst -jar BirdSightingsAPI.jar --spring.profiles.active=cds-training
+ * </pre>
+ *
+ * The cds-training profile needs no database: migrations are skipped and Hibernate does not
+ * read the connection's metadata.
+ */
+@Component
+@ConditionalOnProperty(name = "avian.startup.training-run", havingValue = "true")
+public class TrainingRunCommand implements ApplicationRunner {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,91 @@
+package com.velocity.itest.avian.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Puts a ConcurrencyLimitingDataSource in front of the connection pool. The limit defaults to
+ * the Hikari pool size, so at most that many requests ever contend inside the pool and the
+ * rest wait on the semaphore; this is what keeps 10k virtual-thread requests from piling into
+ * Hikari's connection timeout.
+ */
+@Configuration
+@ConditionalOnProperty(name = "avian.db.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class DbConcurrencyLimitConfig {
+
+    // Hikari's own default pool size
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor dbConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || isLimited((DataSource) bean)) {
+                    return bean;
+                }
+                return limit((DataSource) bean, environment);
+            }
+        };
+    }
+
+    /**
+     * Wraps one connection pool in a limiter sized to it. Also used for pools that are not beans
+     * of their own, such as the read replicas behind ReplicaRoutingDataSource.
+     */
+    public static ConcurrencyLimitingDataSource limit(DataSource dataSource, Environment environment) {
+        // Hikari reports -1 until its pool starts if no size was configured
+        int poolSize = dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getMaximumPoolSize() : -1;
+        if (poolSize <= 0) {
+            poolSize = DEFAULT_POOL_SIZE;
+        }
+        int permits = environment.getProperty("avian.db.concurrency-limit.permits", Integer.class, poolSize);
+        Duration timeout = environment.getProperty("avian.db.concurrency-limit.acquire-timeout",
+                Duration.class, Duration.ofSeconds(30));
+        return new ConcurrencyLimitingDataSource(dataSource, permits, timeout);
+    }
+
+    public static boolean isEnabled(Environment environment) {
+        return environment.getProperty("avian.db.concurrency-limit.enabled", Boolean.class, true);
+    }
+
+    // Already limited, directly or inside a wrapper such as the replica routing proxy
+    private static boolean isLimited(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConcurrencyLimitingDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Bean
+    public MeterBinder dbConcurrencyLimitMetrics(DataSource dataSource) {
+        return registry -> {
+            ConcurrencyLimitingDataSource limiter;
+            try {
+                limiter = dataSource.unwrap(ConcurrencyLimitingDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            Gauge.builder("avian.db.limiter.active", limiter, ConcurrencyLimitingDataSource::getActiveCount)
+                    .description("Connections checked out through the concurrency limiter")
+                    .register(registry);
+            Gauge.builder("avian.db.limiter.waiting", limiter, ConcurrencyLimitingDataSource::getWaitingCount)
+                    .description("Requests waiting for a database permit")
+                    .register(registry);
+            Gauge.builder("avian.db.limiter.max", limiter, ConcurrencyLimitingDataSource::getMaxConcurrency)
+                    .description("Maximum concurrent connections allowed by the limiter")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.velocity.itest.avian.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.query.criteria.LiteralHandlingMode;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.velocity.itest.avian.repository.SpatialFunctions;
+
+/**
+ * Hibernate settings that the queries depend on, applied in code so every profile and the
+ * tests get them.
+ */
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryFunctionsCustomizer() {
+        return properties -> {
+            properties.put(EntityManagerFactoryBuilderImpl.METADATA_BUILDER_CONTRIBUTOR, new SpatialFunctions());
+            // Criteria literals (filter values) become bind parameters instead of inlined SQL text,
+            // so each query shape is parsed and planned once whatever the values
+            properties.put(AvailableSettings.CRITERIA_LITERAL_HANDLING_MODE, LiteralHandlingMode.BIND);
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.velocity.itest.avian.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.velocity.itest.avian.service.TableVersions;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replica routing, enabled by listing replica JDBC URLs in avian.db.replicas.urls.
+ * Read-only transactions (the repository finders, the stats and stream services) go to a
+ * replica that is within avian.db.replicas.max-lag of the primary; writes, everything outside
+ * a transaction, and all reads for max-lag after a write on this instance go to the primary.
+ *
+ * The primary pool is configured from spring.datasource.* as usual. Each replica pool is a
+ * copy of it with the replica's URL, and gets its own concurrency limiter.
+ */
+@Configuration
+@ConditionalOnExpression("!'${avian.db.replicas.urls:}'.isEmpty()")
+public class ReadReplicaConfig {
+
+    @Value("${avian.db.replicas.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${avian.db.replicas.max-lag:5s}")
+    private Duration maxLag;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry, TableVersions tableVersions) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+        String username = environment.getProperty("avian.db.replicas.username", primary.getUsername());
+        String password = environment.getProperty("avian.db.replicas.password", primary.getPassword());
+        boolean limited = DbConcurrencyLimitConfig.isEnabled(environment);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setJdbcUrl(replicaUrls.get(i).trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setPoolName("replica-" + i);
+            // Start even if the replica is down; the lag check keeps reads away from it
+            config.setInitializationFailTimeout(-1);
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            HikariDataSource replica = new HikariDataSource(config);
+            replicas.put(config.getPoolName(), limited ? DbConcurrencyLimitConfig.limit(replica, environment) : replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(
+                limited ? DbConcurrencyLimitConfig.limit(primary, environment) : primary, replicas, maxLag);
+        routingDataSource.afterPropertiesSet();
+        // Writes that bypass JPA transactions (write-behind, imports) still bump the table versions
+        tableVersions.addChangeListener(routingDataSource::writeCommitted);
+        routingDataSource.checkLag();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${avian.db.replicas.lag-check-interval:PT1S}")
+    public void checkReplicaLag() {
+        if (routingDataSource != null) {
+            routingDataSource.checkLag();
+        }
+    }
+
+    @Bean
+    public MeterBinder replicaLagMetrics(DataSource dataSource) {
+        return registry -> {
+            ReplicaRoutingDataSource routing;
+            try {
+                routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            for (String replica : routing.getLagSeconds().keySet()) {
+                Gauge.builder("avian.db.replica.lag", routing, r -> r.getLagSeconds().get(replica))
+                        .description("Replay lag of a read replica in seconds; +Inf while unreachable")
+                        .baseUnit("seconds")
+                        .tag("replica", replica)
+                        .register(registry);
+            }
+        };
+    }
+}
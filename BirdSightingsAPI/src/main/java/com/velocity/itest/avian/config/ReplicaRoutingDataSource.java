@@ -0,0 +1,223 @@
+package com.velocity.itest.avian.config;
+
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a read replica and everything else to the
+ * primary. The routing decision is made when a connection is first used, so this must sit
+ * behind a LazyConnectionDataSourceProxy: the transaction is only marked read-only after it
+ * has asked for its connection.
+ *
+ * Replicas whose replay lag exceeds the tolerance, or that could not be reached, are skipped
+ * until a later lag check finds them caught up; with none left, reads go to the primary.
+ *
+ * For the length of the tolerance after any write on this instance, every read goes to the
+ * primary, whichever thread it is on. Caches refilled after an eviction, and list bodies
+ * served with a new ETag, are then read from data that includes the write. The window opens
+ * before a write transaction commits and again when writeCommitted is called, which
+ * TableVersions does before it publishes a new version.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()";
+
+    // Zero once the replica has replayed the primary's WAL position taken just before, so an idle
+    // primary does not look like lag; otherwise the age of the last replayed transaction. Compared
+    // with the primary rather than with what the replica received, so a replica cut off from the
+    // primary does not look caught up.
+    static final String LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() THEN 0"
+            + " WHEN pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) THEN 0"
+            + " ELSE COALESCE(CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) AS double precision),"
+            + " CAST('Infinity' AS double precision)) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    // System.nanoTime() of the latest write on this instance
+    private volatile long lastWrite;
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        // Seconds behind the primary; infinite until checked and while unreachable
+        private volatile double lagSeconds = Double.POSITIVE_INFINITY;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * @param replicas Replica pools by name, as used in metrics.
+     * @param maxLag Replay lag beyond which a replica is not read from.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.maxLagNanos = maxLag.toNanos();
+        this.lastWrite = System.nanoTime() - maxLagNanos;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Sends reads to the primary for the length of the tolerance from now.
+     */
+    public void writeCommitted() {
+        lastWrite = System.nanoTime();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new WriteWindow());
+            }
+            return PRIMARY;
+        }
+        if (System.nanoTime() - lastWrite < maxLagNanos) {
+            return PRIMARY;
+        }
+        double maxLagSeconds = maxLagNanos / 1e9;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.lagSeconds <= maxLagSeconds) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Falls back to the primary if the chosen replica cannot hand out a connection, and skips
+     * that replica until the next lag check.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            Replica replica = replicaOf(target);
+            if (replica == null) {
+                throw e;
+            }
+            replica.lagSeconds = Double.POSITIVE_INFINITY;
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection(username, password);
+        } catch (SQLException e) {
+            Replica replica = replicaOf(target);
+            if (replica == null) {
+                throw e;
+            }
+            replica.lagSeconds = Double.POSITIVE_INFINITY;
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * Measures the replay lag of every replica against the primary's current WAL position.
+     * Called periodically. While the primary cannot be reached, no replica counts as caught up.
+     */
+    public void checkLag() {
+        String primaryLsn;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+            result.next();
+            primaryLsn = result.getString(1);
+        } catch (SQLException e) {
+            for (Replica replica : replicas) {
+                replica.lagSeconds = Double.POSITIVE_INFINITY;
+            }
+            return;
+        }
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    replica.lagSeconds = result.getDouble(1);
+                }
+            } catch (SQLException e) {
+                replica.lagSeconds = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * @return The last measured lag of each replica in seconds; infinite if unreachable.
+     */
+    public Map<String, Double> getLagSeconds() {
+        Map<String, Double> lags = new HashMap<>();
+        for (Replica replica : replicas) {
+            lags.put(replica.name, replica.lagSeconds);
+        }
+        return lags;
+    }
+
+    // Opens the window before the commit, so readers never see the old data from a replica once
+    // it is gone from the primary, and again after it, so the window covers the whole replay lag
+    private final class WriteWindow implements TransactionSynchronization {
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            writeCommitted();
+        }
+
+        @Override
+        public void afterCommit() {
+            writeCommitted();
+        }
+    }
+
+    private Replica replicaOf(DataSource dataSource) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource) {
+                return replica;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.velocity.itest.avian.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Beans that stay eager when spring.main.lazy-initialization is on (the prod profile). Lazy
+ * beans are only created on first use, which suits controllers and services but not beans
+ * that must act on their own:
+ * <ul>
+ * <li>the EntityManagerFactory, which runs the Flyway migrations first and should fail the
+ * startup, not the first request, when the schema is wrong;</li>
+ * <li>beans with @Scheduled methods, whose tasks are registered when the bean is created.</li>
+ * </ul>
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter entityManagerFactoryExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(EntityManagerFactory.class);
+    }
+
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>)
+                        method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
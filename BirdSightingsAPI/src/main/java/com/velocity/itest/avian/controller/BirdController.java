@@ -1,85 +1,128 @@
 package com.velocity.itest.avian.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingBatchResultDto;
 import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingPageDto;
 import com.velocity.itest.avian.entity.Bird;
 import com.velocity.itest.avian.entity.Sighting;
-import com.velocity.itest.avian.mapper.BirdMapper;
 import com.velocity.itest.avian.mapper.SightingMapper;
 import com.velocity.itest.avian.repository.BirdRepository;
+import com.velocity.itest.avian.repository.SightingFilter;
 import com.velocity.itest.avian.repository.SightingRepository;
+import com.velocity.itest.avian.repository.SightingSpecifications;
+import com.velocity.itest.avian.service.BirdService;
+import com.velocity.itest.avian.service.IdempotencyKeys;
+import com.velocity.itest.avian.service.QueryMetrics;
+import com.velocity.itest.avian.service.SightingIngestService;
+import com.velocity.itest.avian.service.SightingReadModel;
+import com.velocity.itest.avian.service.SightingStreamService;
+import com.velocity.itest.avian.service.SightingWriteBehindService;
+import com.velocity.itest.avian.service.TableVersions;
 
-import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1")
 public class BirdController {
 
+    // Largest page a client may request from the keyset-paginated endpoints
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Distinguishes the ETag of NDJSON responses from the JSON representation of the same data
+    private static final String NDJSON_ETAG_SUFFIX = "ndjson";
+
     @Autowired
     private BirdRepository birdRepository;
 
     @Autowired
     private SightingRepository sightingRepository;
     
-    @Autowired
-    private BirdMapper birdMapper;
-    
     @Autowired
     private SightingMapper sightingMapper;
 
-    @PostConstruct
-    public void initializeData() {
-        // Create example birds
-        Bird eagle = new Bird("Eagle", "Brown", 5.5, 75.0);
-        birdRepository.save(eagle);
+    @Autowired
+    private BirdService birdService;
 
-        Bird sparrow = new Bird("Sparrow", "Grey", 0.05, 15.0);
-        birdRepository.save(sparrow);
-        
-        Bird robin = new Bird("Robin", "Red", 0.1, 20.0);
-        birdRepository.save(robin);
+    @Autowired
+    private SightingStreamService sightingStreamService;
 
-        // Create example sightings for each bird
-        sightingRepository.save(new Sighting(eagle, "Grand Canyon", LocalDateTime.now()));
-        sightingRepository.save(new Sighting(eagle, "Rocky Mountains", LocalDateTime.now().minusDays(5)));
+    @Autowired
+    private SightingReadModel sightingReadModel;
 
-        sightingRepository.save(new Sighting(sparrow, "Backyard", LocalDateTime.now().minusHours(2)));
-        sightingRepository.save(new Sighting(sparrow, "City Park", LocalDateTime.now().minusMonths(1)));
-        
-        sightingRepository.save(new Sighting(robin, "Central Park", LocalDateTime.now().minusDays(1)));
-    }
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private SightingIngestService sightingIngestService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    // Present only when avian.sightings.write-behind.enabled is set
+    @Autowired(required = false)
+    private SightingWriteBehindService sightingWriteBehindService;
 
     /**
      * Bird Endpoints
      */
 
     @GetMapping("/birds")
-    public List<BirdDto> getAllBirds() {
-        return birdRepository.findAll().stream()
-                .map(birdMapper::toDto)
-                .collect(Collectors.toList());
+    public List<BirdDto> getAllBirds(WebRequest request) {
+        // Answer 304 before touching the cache or the database
+        if (request.checkNotModified(tableVersions.birdsEtag())) {
+            return null;
+        }
+        return birdService.findAll();
     }
 
     @GetMapping("/birds/{id}")
-    public ResponseEntity<BirdDto> getBirdById(@PathVariable Long id) {
-        Optional<Bird> bird = birdRepository.findById(id);
-        return bird.map(value -> new ResponseEntity<>(birdMapper.toDto(value), HttpStatus.OK))
+    public ResponseEntity<BirdDto> getBirdById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(tableVersions.birdsEtag())) {
+            return null;
+        }
+        Optional<BirdDto> bird = birdService.findById(id);
+        return bird.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @PostMapping("/birds")
     public ResponseEntity<Bird> createBird(@RequestBody Bird bird) {
         try {
-            Bird newBird = birdRepository.save(bird);
+            Bird newBird = birdService.create(bird);
             return new ResponseEntity<>(newBird, HttpStatus.CREATED);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -88,23 +131,15 @@ public class BirdController {
 
     @PutMapping("/birds/{id}")
     public ResponseEntity<Bird> updateBird(@PathVariable Long id, @RequestBody Bird birdDetails) {
-        Optional<Bird> birdData = birdRepository.findById(id);
-        if (birdData.isPresent()) {
-            Bird bird = birdData.get();
-            bird.setName(birdDetails.getName());
-            bird.setColor(birdDetails.getColor());
-            bird.setWeight(birdDetails.getWeight());
-            bird.setHeight(birdDetails.getHeight());
-            return new ResponseEntity<>(birdRepository.save(bird), HttpStatus.OK);
-        } else {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+        Optional<Bird> bird = birdService.update(id, birdDetails);
+        return bird.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                   .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @DeleteMapping("/birds/{id}")
     public ResponseEntity<HttpStatus> deleteBird(@PathVariable Long id) {
         try {
-            birdRepository.deleteById(id);
+            birdService.delete(id);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -113,19 +148,12 @@ public class BirdController {
 
     @GetMapping("/birds/query")
     public List<BirdDto> queryBirds(@RequestParam(required = false) String name,
-                                 @RequestParam(required = false) String color) {
-        if (name != null && color != null) {
-            return birdRepository.findByNameAndColor(name, color).stream()
-                    .map(birdMapper::toDto)
-                    .collect(Collectors.toList());
-        } else if (name != null) {
-            return birdRepository.findByName(name).stream()
-                    .map(birdMapper::toDto)
-                    .collect(Collectors.toList());
-        }
-        return birdRepository.findAll().stream()
-                .map(birdMapper::toDto)
-                .collect(Collectors.toList());
+                                 @RequestParam(required = false) String color,
+                                 WebRequest request) {
+        if (request.checkNotModified(tableVersions.birdsEtag())) {
+            return null;
+        }
+        return birdService.query(name, color);
     }
 
     /**
@@ -133,22 +161,248 @@ public class BirdController {
      */
 
     @GetMapping("/sightings")
-    public List<SightingDto> getAllSightings() {
-        return sightingRepository.findAll().stream()
+    public List<SightingDto> getAllSightings(WebRequest request) {
+        if (request.checkNotModified(tableVersions.sightingsEtag())) {
+            return null;
+        }
+        return queryMetrics.recordRows("sightings.all", sightingRepository.findAllDtos());
+    }
+
+    @GetMapping(value = "/sightings", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllSightings(WebRequest request) {
+        if (request.checkNotModified(tableVersions.sightingsEtag(NDJSON_ETAG_SUFFIX))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(sightingStreamService.toNdjson("sightings.all.ndjson",
+                        () -> sightingRepository.streamDtos(null, Sort.by("id"), null)));
+    }
+
+    /**
+     * Returns one keyset page of sightings, ordered by id (the default) or by dateTime, with
+     * sightings without a dateTime last. Pass the nextAfterId / nextAfterDateTime of the
+     * previous page to fetch the next one; nextAfterDateTime is null once the pages have
+     * reached the sightings without a dateTime.
+     */
+    @GetMapping("/sightings/page")
+    public ResponseEntity<SightingPageDto> getSightingsPage(@RequestParam(defaultValue = "id") String sort,
+                                                           @RequestParam(required = false) Long afterId,
+                                                           @RequestParam(required = false)
+                                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDateTime,
+                                                           @RequestParam(defaultValue = "100") int limit,
+                                                           WebRequest request) {
+        if (request.checkNotModified(tableVersions.sightingsEtag())) {
+            return null;
+        }
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        List<Sighting> sightings;
+        if ("id".equals(sort)) {
+            sightings = sightingRepository.findPageAfterId(afterId != null ? afterId : 0L, page);
+        } else if ("dateTime".equals(sort)) {
+            sightings = sightingRepository.findPageByDateTime(afterDateTime, afterId, page);
+        } else {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        queryMetrics.recordRows("sightings.page." + sort, sightings);
+
+        List<SightingDto> items = sightings.stream()
                 .map(sightingMapper::toDto)
                 .collect(Collectors.toList());
+
+        // A short page means there is nothing left to read
+        SightingPageDto body = new SightingPageDto(items, null, null);
+        if (items.size() == page.getPageSize()) {
+            SightingDto last = items.get(items.size() - 1);
+            body.setNextAfterId(last.getId());
+            if ("dateTime".equals(sort)) {
+                body.setNextAfterDateTime(last.getDateTime());
+            }
+        }
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
     
+    @GetMapping("/sightings/{id}")
+    public ResponseEntity<SightingDto> getSightingById(@PathVariable Long id) {
+        // Accepted by the write-behind buffer but not committed yet
+        if (sightingWriteBehindService != null && sightingWriteBehindService.isPending(id)) {
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        }
+        Optional<SightingDto> sighting = sightingRepository.findById(id).map(sightingMapper::toDto);
+        return sighting.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Creates a sighting. A request carrying an Idempotency-Key that was already used, such as
+     * a retry after a timeout, creates nothing and is answered with the sighting created the
+     * first time. One that arrives while the first is still being written is answered 409 with
+     * a Retry-After header.
+     */
     @PostMapping("/sightings")
-    public ResponseEntity<Sighting> createSighting(@RequestBody Sighting sighting) {
+    public ResponseEntity<SightingDto> createSighting(@RequestBody Sighting sighting,
+            @RequestHeader(value = IdempotencyKeys.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            if (!IdempotencyKeys.isValid(idempotencyKey)) {
+                return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+            }
+            // Write-behind reserves the key itself and asks the database only if it is not cached
+            Optional<Long> existing;
+            try {
+                existing = sightingWriteBehindService == null ? idempotencyKeys.find(idempotencyKey) : Optional.empty();
+            } catch (TransientDataAccessException | DataAccessResourceFailureException
+                     | CannotCreateTransactionException e) {
+                return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            if (existing.isPresent()) {
+                return replaySighting(existing.get());
+            }
+        }
+        // Rejected here rather than by the database's constraints, which would make it a 500
+        if (sighting.getBird() == null || sighting.getBird().getId() == null
+                || SightingIngestService.invalidFields(sighting.getLocation(), sighting.getLatitude(),
+                        sighting.getLongitude()) != null) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        if (sightingWriteBehindService != null) {
+            return acceptSighting(sighting, idempotencyKey);
+        }
+        // The bird is resolved from the cache; the sighting only needs a reference for its foreign key
+        Long birdId = sighting.getBird().getId();
+        Optional<BirdDto> bird = birdService.findById(birdId);
+        if (bird.isEmpty()) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        if (idempotencyKey != null && !idempotencyKeys.claimInFlight(idempotencyKey)) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return new ResponseEntity<>(null, headers, HttpStatus.CONFLICT);
+        }
+        try {
+            sighting.setBird(birdRepository.getReferenceById(birdId));
+            Sighting newSighting = sightingIngestService.create(sighting, idempotencyKey);
+
+            SightingDto dto = new SightingDto();
+            dto.setId(newSighting.getId());
+            dto.setLocation(newSighting.getLocation());
+            dto.setDateTime(newSighting.getDateTime());
+            dto.setLatitude(newSighting.getLatitude());
+            dto.setLongitude(newSighting.getLongitude());
+            dto.setBird(bird.get());
+            return new ResponseEntity<>(dto, HttpStatus.CREATED);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same key committed first, or the bird was deleted meanwhile
+            Optional<Long> existing = idempotencyKey == null ? Optional.empty() : idempotencyKeys.find(idempotencyKey);
+            return existing.map(this::replaySighting)
+                    .orElseGet(() -> new ResponseEntity<>(null, HttpStatus.CONFLICT));
+        } catch (TransientDataAccessException | DataAccessResourceFailureException
+                 | CannotCreateTransactionException e) {
+            // The database is busy or unreachable: worth retrying, unlike the 4xx answers above
+            return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            // The transaction has ended: a retry now finds the key stored, or free after a rollback
+            if (idempotencyKey != null) {
+                idempotencyKeys.releaseInFlight(idempotencyKey);
+            }
+        }
+    }
+
+    /**
+     * Answers a repeated request with the sighting its key created, marked with an
+     * Idempotent-Replayed header. If that sighting has since been deleted, the key cannot be
+     * reused until it expires.
+     */
+    private ResponseEntity<SightingDto> replaySighting(long id) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotent-Replayed", "true");
+        if (sightingWriteBehindService != null && sightingWriteBehindService.isPending(id)) {
+            headers.setLocation(URI.create("/api/v1/sightings/" + id));
+            return new ResponseEntity<>(null, headers, HttpStatus.ACCEPTED);
+        }
+        return sightingIngestService.findCreated(id)
+                .map(dto -> new ResponseEntity<>(dto, headers, HttpStatus.CREATED))
+                .orElseGet(() -> new ResponseEntity<>(null, headers, HttpStatus.CONFLICT));
+    }
+
+    /**
+     * Write-behind variant of createSighting: the sighting is durable in the local log but not
+     * yet in the database. The id in the body and Location header tracks it; GET on that
+     * location answers 202 until the sighting is committed.
+     */
+    private ResponseEntity<SightingDto> acceptSighting(Sighting sighting, String idempotencyKey) {
+        SightingDto dto = new SightingDto();
+        dto.setLocation(sighting.getLocation());
+        dto.setDateTime(sighting.getDateTime());
+        dto.setLatitude(sighting.getLatitude());
+        dto.setLongitude(sighting.getLongitude());
+        if (sighting.getBird() != null) {
+            BirdDto bird = new BirdDto();
+            bird.setId(sighting.getBird().getId());
+            dto.setBird(bird);
+        }
         try {
-            sighting.setBird(birdRepository.findById(sighting.getBird().getId()).orElseThrow(() -> new RuntimeException("Bird not found")));
-            Sighting newSighting = sightingRepository.save(sighting);
-            return new ResponseEntity<>(newSighting, HttpStatus.CREATED);
+            Optional<Long> id = sightingWriteBehindService.submit(dto, idempotencyKey);
+            if (id.isEmpty()) {
+                return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            if (!id.get().equals(dto.getId())) {
+                // Accepted before under the same key
+                return replaySighting(id.get());
+            }
+            dto.setBird(birdService.findById(dto.getBird().getId()).orElse(dto.getBird()));
+            HttpHeaders headers = new HttpHeaders();
+            headers.setLocation(URI.create("/api/v1/sightings/" + id.get()));
+            return new ResponseEntity<>(dto, headers, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException | SQLException e) {
+            // Not logged in time, or no id could be allocated; a retry with the same key is safe
+            return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Inserts many sightings in one request. The body is either a JSON array or
+     * newline-delimited JSON; it is read incrementally and committed in chunks. Resending a
+     * batch with the same Idempotency-Key inserts only the items that were not committed the
+     * first time and reports the others with their existing ids.
+     */
+    @PostMapping(value = "/sightings/batch",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<SightingBatchResultDto> createSightings(HttpServletRequest request,
+            @RequestHeader(value = IdempotencyKeys.HEADER, required = false) String idempotencyKey) {
+        SightingBatchResultDto result = new SightingBatchResultDto();
+        if (idempotencyKey != null && !IdempotencyKeys.isValid(idempotencyKey)) {
+            return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+        }
+        try (MappingIterator<SightingDto> items = objectMapper.readerFor(SightingDto.class)
+                .readValues(request.getInputStream())) {
+            List<SightingDto> chunk = new ArrayList<>(SightingIngestService.CHUNK_SIZE);
+            int offset = 0;
+            while (items.hasNextValue()) {
+                chunk.add(items.nextValue());
+                if (chunk.size() == SightingIngestService.CHUNK_SIZE) {
+                    result.addAll(sightingIngestService.ingest(chunk, offset, idempotencyKey));
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                result.addAll(sightingIngestService.ingest(chunk, offset, idempotencyKey));
+            }
+        } catch (IOException e) {
+            // Chunks before the malformed item have already been committed
+            return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+        } catch (DataIntegrityViolationException e) {
+            // Another request with the same key is inserting the same items; resending is safe
+            return new ResponseEntity<>(result, HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
     
     @DeleteMapping("/sightings/{id}")
     public ResponseEntity<HttpStatus> deleteSighting(@PathVariable Long id) {
@@ -160,35 +414,41 @@ public class BirdController {
         }
     }
     
+    /**
+     * Queries sightings by any combination of bird, location, time range and area (bounding
+     * box or radius). Every supplied filter, the sort order and the limit are applied in SQL.
+     * A query without filters is rejected unless all=true is passed explicitly.
+     */
     @GetMapping("/sightings/query")
-    public List<SightingDto> querySightings(@RequestParam(required = false) String location,
-                                         @RequestParam(required = false) Long birdId,
-                                         @RequestParam(required = false) String startDate,
-                                         @RequestParam(required = false) String endDate) {
-        
-        Optional<Bird> bird = Optional.empty();
-        if (birdId != null) {
-            bird = birdRepository.findById(birdId);
-        }
-
-        if (bird.isPresent() && location != null && startDate != null && endDate != null) {
-            return sightingRepository.findByBirdAndLocationAndDateTimeBetween(
-                bird.get(), location, LocalDateTime.parse(startDate), LocalDateTime.parse(endDate)
-            ).stream()
-            .map(sightingMapper::toDto)
-            .collect(Collectors.toList());
-        } else if (bird.isPresent()) {
-            return sightingRepository.findByBird(bird.get()).stream()
-                .map(sightingMapper::toDto)
-                .collect(Collectors.toList());
-        } else if (location != null) {
-            return sightingRepository.findByLocation(location).stream()
-                .map(sightingMapper::toDto)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<SightingDto>> querySightings(SightingFilter filter, WebRequest request) {
+        if (!filter.isValid()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        
-        return sightingRepository.findAll().stream()
-                .map(sightingMapper::toDto)
-                .collect(Collectors.toList());
+        if (request.checkNotModified(tableVersions.sightingsEtag())) {
+            return null;
+        }
+        // Served from the in-memory read model when it is enabled and loaded
+        List<SightingDto> sightings = queryMetrics.recordRows("sightings.query", sightingReadModel.query(filter)
+                .orElseGet(() -> sightingRepository.findDtos(
+                        SightingSpecifications.matching(filter), filter.toSort(), filter.getLimit())));
+        return new ResponseEntity<>(sightings, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/sightings/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamQuerySightings(SightingFilter filter, WebRequest request) {
+        if (!filter.isValid()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (request.checkNotModified(tableVersions.sightingsEtag(NDJSON_ETAG_SUFFIX))) {
+            return null;
+        }
+        Optional<Stream<SightingDto>> inMemory = sightingReadModel.stream(filter);
+        StreamingResponseBody body = inMemory.isPresent()
+                ? sightingStreamService.toNdjson("sightings.query.ndjson", inMemory.get())
+                : sightingStreamService.toNdjson("sightings.query.ndjson", () -> sightingRepository.streamDtos(
+                        SightingSpecifications.matching(filter), filter.toSort(), filter.getLimit()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
-}
\ No newline at end of file
+}
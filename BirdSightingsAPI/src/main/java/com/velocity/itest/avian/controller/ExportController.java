@@ -0,0 +1,55 @@
+package com.velocity.itest.avian.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.velocity.itest.avian.repository.SightingFilter;
+import com.velocity.itest.avian.repository.SightingRepository;
+import com.velocity.itest.avian.repository.SightingSpecifications;
+import com.velocity.itest.avian.service.SightingStreamService;
+
+/**
+ * Bulk exports for analysis tools. Takes the same filters as /sightings/query, but writes a
+ * file download that is streamed from a database cursor rather than built in memory.
+ */
+@RestController
+@RequestMapping("/api/v1/export")
+public class ExportController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    @Autowired
+    private SightingStreamService sightingStreamService;
+
+    /**
+     * @param format Only csv is supported.
+     * @param gzip Compress the file itself (sightings.csv.gz), independent of any
+     *             Content-Encoding negotiated with the client.
+     */
+    @GetMapping("/sightings")
+    public ResponseEntity<StreamingResponseBody> exportSightings(SightingFilter filter,
+                                                                 @RequestParam(defaultValue = "csv") String format,
+                                                                 @RequestParam(defaultValue = "false") boolean gzip) {
+        if (!"csv".equalsIgnoreCase(format) || !filter.isValid()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body = sightingStreamService.toCsv("sightings.export.csv", () -> sightingRepository.streamDtos(
+                SightingSpecifications.matching(filter), filter.toSort(), filter.getLimit()), gzip);
+        String filename = gzip ? "sightings.csv.gz" : "sightings.csv";
+        return ResponseEntity.ok()
+                .contentType(gzip ? APPLICATION_GZIP : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,84 @@
+package com.velocity.itest.avian.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.velocity.itest.avian.dto.SightingImportResultDto;
+import com.velocity.itest.avian.service.SightingImportService;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk import of historical sightings. Far faster than /sightings/batch for large backfills,
+ * since rows are copied straight into the table, but the rows are not returned one by one;
+ * rejected records are written to an error file on the server instead.
+ */
+@RestController
+@RequestMapping("/api/v1/import")
+public class ImportController {
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    @Autowired
+    private SightingImportService sightingImportService;
+
+    /**
+     * Imports a CSV (with header row) or NDJSON body, optionally sent with Content-Encoding: gzip.
+     * Chunks are committed as they are read; if the upload is interrupted, sending the same
+     * body again with the same importId resumes after the last committed chunk.
+     * @param importId Names the import and its checkpoint; generated if absent.
+     */
+    @PostMapping(value = "/sightings", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<SightingImportResultDto> importSightings(@RequestParam(required = false) String importId,
+                                                                   HttpServletRequest request) {
+        String id = importId != null ? importId : UUID.randomUUID().toString();
+        if (!sightingImportService.isValidImportId(id)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        SightingImportService.Format format = MediaType.APPLICATION_NDJSON
+                .isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? SightingImportService.Format.NDJSON
+                : SightingImportService.Format.CSV;
+        try {
+            InputStream body = request.getInputStream();
+            if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+                body = new GZIPInputStream(body);
+            }
+            SightingImportResultDto result = sightingImportService.importSightings(id, format, body, progress -> { });
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException | IOException e) {
+            // Chunks read before a truncated or malformed body have already been committed
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (SQLException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Progress of a running or finished import, as of its last committed chunk.
+     */
+    @GetMapping("/sightings/{importId}")
+    public ResponseEntity<SightingImportResultDto> getImport(@PathVariable String importId) {
+        if (!sightingImportService.isValidImportId(importId)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return sightingImportService.findProgress(importId)
+                    .map(result -> new ResponseEntity<>(result, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (SQLException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.velocity.itest.avian.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.service.SearchService;
+
+import java.util.List;
+
+/**
+ * Typeahead search. Unlike /birds/query and /sightings/query, which match exactly, these
+ * match prefixes and misspellings regardless of case and return the best matches first.
+ */
+@RestController
+@RequestMapping("/api/v1/search")
+public class SearchController {
+
+    // Largest number of suggestions a client may request
+    private static final int MAX_RESULTS = 50;
+
+    @Autowired
+    private SearchService searchService;
+
+    @GetMapping("/birds")
+    public ResponseEntity<List<BirdDto>> searchBirds(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(searchService.searchBirds(q, clamp(limit)), HttpStatus.OK);
+    }
+
+    @GetMapping("/locations")
+    public ResponseEntity<List<LocationSightingCountDto>> searchLocations(@RequestParam String q,
+                                                                          @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(searchService.searchLocations(q, clamp(limit)), HttpStatus.OK);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_RESULTS));
+    }
+}
@@ -0,0 +1,34 @@
+package com.velocity.itest.avian.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.velocity.itest.avian.service.SightingEventBroadcaster;
+
+/**
+ * Live feed of sighting changes as Server-Sent Events, so clients no longer have to poll the
+ * query endpoints. Each "created" or "deleted" event carries a SightingEventDto; a "resync"
+ * event means events were dropped because the client fell behind.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class SightingFeedController {
+
+    @Autowired
+    private SightingEventBroadcaster broadcaster;
+
+    @GetMapping(value = "/sightings/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSightingEvents(@RequestParam(required = false) Long birdId,
+                                                           @RequestParam(required = false) String location) {
+        return broadcaster.subscribe(birdId, location)
+                .map(emitter -> new ResponseEntity<>(emitter, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+}
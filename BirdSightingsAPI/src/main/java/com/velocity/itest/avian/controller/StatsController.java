@@ -0,0 +1,86 @@
+package com.velocity.itest.avian.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.BirdSightingCountDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.dto.SightingCountBucketDto;
+import com.velocity.itest.avian.service.BirdService;
+import com.velocity.itest.avian.service.SightingReadModel;
+import com.velocity.itest.avian.service.SightingStatsService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Aggregate sighting counts served from the rollup tables. The counts trail sighting writes
+ * by up to the rollup fold interval (a few seconds). With the in-memory read model enabled
+ * and loaded, they are computed from it instead and are current.
+ */
+@RestController
+@RequestMapping("/api/v1/stats")
+public class StatsController {
+
+    // Largest top-N a client may request
+    private static final int MAX_TOP_LOCATIONS = 1000;
+
+    @Autowired
+    private SightingStatsService sightingStatsService;
+
+    @Autowired
+    private BirdService birdService;
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @GetMapping("/birds")
+    public List<BirdSightingCountDto> getCountsPerBird() {
+        return sightingReadModel.countsPerBird().orElseGet(sightingStatsService::countsPerBird);
+    }
+
+    @GetMapping("/birds/{id}")
+    public ResponseEntity<BirdSightingCountDto> getCountForBird(@PathVariable Long id) {
+        Optional<BirdDto> bird = birdService.findById(id);
+        return bird.map(value -> new ResponseEntity<>(
+                        new BirdSightingCountDto(value.getId(), value.getName(), sightingReadModel.countForBird(id)
+                                .orElseGet(() -> sightingStatsService.countForBird(id))),
+                        HttpStatus.OK))
+                   .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/locations")
+    public List<LocationSightingCountDto> getTopLocations(@RequestParam(defaultValue = "10") int limit) {
+        int top = Math.max(1, Math.min(limit, MAX_TOP_LOCATIONS));
+        return sightingReadModel.topLocations(top).orElseGet(() -> sightingStatsService.topLocations(top));
+    }
+
+    /**
+     * Sighting counts per day, week or month, optionally for one bird and/or location and
+     * limited to a range of dates (inclusive).
+     */
+    @GetMapping("/timeline")
+    public ResponseEntity<List<SightingCountBucketDto>> getTimeline(
+            @RequestParam(defaultValue = "day") String bucket,
+            @RequestParam(required = false) Long birdId,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        SightingStatsService.Bucket width;
+        try {
+            width = SightingStatsService.Bucket.valueOf(bucket.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<SightingCountBucketDto> timeline = sightingReadModel.countPerDay(birdId, location, startDate, endDate)
+                .map(days -> SightingStatsService.toBuckets(width, days))
+                .orElseGet(() -> sightingStatsService.timeline(width, birdId, location, startDate, endDate));
+        return new ResponseEntity<>(timeline, HttpStatus.OK);
+    }
+}
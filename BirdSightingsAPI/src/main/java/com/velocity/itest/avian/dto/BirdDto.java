@@ -11,6 +11,14 @@ public class BirdDto {
     public BirdDto() {
     }
 
+    public BirdDto(Long id, String name, String color, double weight, double height) {
+        this.id = id;
+        this.name = name;
+        this.color = color;
+        this.weight = weight;
+        this.height = height;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,45 @@
+package com.velocity.itest.avian.dto;
+
+/**
+ * Total number of sightings of one bird.
+ */
+public class BirdSightingCountDto {
+    private Long birdId;
+    private String birdName;
+    private long count;
+
+    // Default constructor
+    public BirdSightingCountDto() {
+    }
+
+    public BirdSightingCountDto(Long birdId, String birdName, long count) {
+        this.birdId = birdId;
+        this.birdName = birdName;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public Long getBirdId() {
+        return birdId;
+    }
+
+    public void setBirdId(Long birdId) {
+        this.birdId = birdId;
+    }
+
+    public String getBirdName() {
+        return birdName;
+    }
+
+    public void setBirdName(String birdName) {
+        this.birdName = birdName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
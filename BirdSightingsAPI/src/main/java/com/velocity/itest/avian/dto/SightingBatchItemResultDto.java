@@ -0,0 +1,67 @@
+package com.velocity.itest.avian.dto;
+
+/**
+ * Outcome of one element of a sighting batch, identified by its position in the request.
+ */
+public class SightingBatchItemResultDto {
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private int index;
+    private Long id;
+    private String status;
+    private String error;
+
+    // Default constructor
+    public SightingBatchItemResultDto() {
+    }
+
+    public SightingBatchItemResultDto(int index, Long id, String status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static SightingBatchItemResultDto created(int index, Long id) {
+        return new SightingBatchItemResultDto(index, id, CREATED, null);
+    }
+
+    public static SightingBatchItemResultDto rejected(int index, String error) {
+        return new SightingBatchItemResultDto(index, null, REJECTED, error);
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,55 @@
+package com.velocity.itest.avian.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a sighting batch upload with one result per submitted item.
+ */
+public class SightingBatchResultDto {
+    private int created;
+    private int rejected;
+    private List<SightingBatchItemResultDto> items = new ArrayList<>();
+
+    // Default constructor
+    public SightingBatchResultDto() {
+    }
+
+    public void add(SightingBatchItemResultDto item) {
+        items.add(item);
+        if (SightingBatchItemResultDto.CREATED.equals(item.getStatus())) {
+            created++;
+        } else {
+            rejected++;
+        }
+    }
+
+    public void addAll(SightingBatchResultDto other) {
+        other.getItems().forEach(this::add);
+    }
+
+    // Getters and Setters
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<SightingBatchItemResultDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SightingBatchItemResultDto> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,37 @@
+package com.velocity.itest.avian.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Number of sightings in one time bucket (a day, week or month) starting on the given date.
+ */
+public class SightingCountBucketDto {
+    private LocalDate start;
+    private long count;
+
+    // Default constructor
+    public SightingCountBucketDto() {
+    }
+
+    public SightingCountBucketDto(LocalDate start, long count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -6,12 +6,31 @@ public class SightingDto {
     private Long id;
     private String location;
     private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
     private BirdDto bird;
 
     // Default constructor
     public SightingDto() {
     }
 
+    /**
+     * Flat constructor used by JPQL constructor expressions. The bird columns come from an
+     * outer join, so they are boxed and a null bird id means the sighting has no bird.
+     */
+    public SightingDto(Long id, String location, LocalDateTime dateTime, Double latitude, Double longitude,
+                       Long birdId, String birdName, String birdColor, Double birdWeight, Double birdHeight) {
+        this.id = id;
+        this.location = location;
+        this.dateTime = dateTime;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        if (birdId != null) {
+            this.bird = new BirdDto(birdId, birdName, birdColor,
+                    birdWeight != null ? birdWeight : 0.0, birdHeight != null ? birdHeight : 0.0);
+        }
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -37,6 +56,22 @@ public class SightingDto {
         this.dateTime = dateTime;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
     public BirdDto getBird() {
         return bird;
     }
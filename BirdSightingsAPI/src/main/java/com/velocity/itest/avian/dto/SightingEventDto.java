@@ -0,0 +1,40 @@
+package com.velocity.itest.avian.dto;
+
+/**
+ * A change to the sightings table, pushed to subscribers of /sightings/stream.
+ */
+public class SightingEventDto {
+    public static final String CREATED = "CREATED";
+    public static final String DELETED = "DELETED";
+    // Events were dropped for this subscriber; it should re-query what it displays
+    public static final String RESYNC = "RESYNC";
+
+    private String type;
+    private SightingDto sighting;
+
+    // Default constructor
+    public SightingEventDto() {
+    }
+
+    public SightingEventDto(String type, SightingDto sighting) {
+        this.type = type;
+        this.sighting = sighting;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public SightingDto getSighting() {
+        return sighting;
+    }
+
+    public void setSighting(SightingDto sighting) {
+        this.sighting = sighting;
+    }
+}
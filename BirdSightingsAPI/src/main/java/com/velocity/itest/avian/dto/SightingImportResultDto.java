@@ -0,0 +1,83 @@
+package com.velocity.itest.avian.dto;
+
+/**
+ * Progress of a bulk sighting import. The counts cover every run of the import, so after a
+ * resume they include the records committed before the interruption.
+ */
+public class SightingImportResultDto {
+    private String importId;
+    // Input records consumed so far, imported or rejected
+    private long records;
+    private long imported;
+    private long rejected;
+    // Records skipped at the start of this run because an earlier run committed them
+    private long resumedAfter;
+    private boolean complete;
+    // Server-side file listing the rejected records, if any
+    private String errorFile;
+
+    // Default constructor
+    public SightingImportResultDto() {
+    }
+
+    public SightingImportResultDto(String importId) {
+        this.importId = importId;
+    }
+
+    // Getters and Setters
+    public String getImportId() {
+        return importId;
+    }
+
+    public void setImportId(String importId) {
+        this.importId = importId;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getResumedAfter() {
+        return resumedAfter;
+    }
+
+    public void setResumedAfter(long resumedAfter) {
+        this.resumedAfter = resumedAfter;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public String getErrorFile() {
+        return errorFile;
+    }
+
+    public void setErrorFile(String errorFile) {
+        this.errorFile = errorFile;
+    }
+}
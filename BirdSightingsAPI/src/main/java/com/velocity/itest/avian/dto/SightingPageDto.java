@@ -0,0 +1,52 @@
+package com.velocity.itest.avian.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One keyset page of sightings. The next page is requested by passing
+ * nextAfterId (and nextAfterDateTime when sorting by dateTime) back as the cursor;
+ * both are null once the last page has been reached. When sorting by dateTime, a null
+ * nextAfterDateTime with a nextAfterId means the pages have reached the sightings without a
+ * dateTime, which come last.
+ */
+public class SightingPageDto {
+    private List<SightingDto> items;
+    private Long nextAfterId;
+    private LocalDateTime nextAfterDateTime;
+
+    // Default constructor
+    public SightingPageDto() {
+    }
+
+    public SightingPageDto(List<SightingDto> items, Long nextAfterId, LocalDateTime nextAfterDateTime) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+        this.nextAfterDateTime = nextAfterDateTime;
+    }
+
+    // Getters and Setters
+    public List<SightingDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SightingDto> items) {
+        this.items = items;
+    }
+
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public void setNextAfterId(Long nextAfterId) {
+        this.nextAfterId = nextAfterId;
+    }
+
+    public LocalDateTime getNextAfterDateTime() {
+        return nextAfterDateTime;
+    }
+
+    public void setNextAfterDateTime(LocalDateTime nextAfterDateTime) {
+        this.nextAfterDateTime = nextAfterDateTime;
+    }
+}
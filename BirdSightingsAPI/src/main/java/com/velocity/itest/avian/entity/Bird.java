@@ -1,17 +1,21 @@
 package com.velocity.itest.avian.entity;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 @Entity
+@EntityListeners(TableVersionListener.class)
 @Table(name = "birds")
 public class Bird {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "birds_seq")
+    @SequenceGenerator(name = "birds_seq", sequenceName = "birds_seq", allocationSize = 50)
     private Long id;
 
     private String name;
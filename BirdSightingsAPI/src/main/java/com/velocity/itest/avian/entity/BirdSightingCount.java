@@ -0,0 +1,35 @@
+package com.velocity.itest.avian.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Total number of sightings of one bird. Maintained by the database
+ * (see V3__sighting_rollups.sql); read-only to the application.
+ */
+@Entity
+@Immutable
+@Table(name = "sighting_bird_counts")
+public class BirdSightingCount {
+
+    @Id
+    private Long birdId;
+
+    private long sightingCount;
+
+    // Default constructor
+    public BirdSightingCount() {
+    }
+
+    // Getters
+    public Long getBirdId() {
+        return birdId;
+    }
+
+    public long getSightingCount() {
+        return sightingCount;
+    }
+}
@@ -0,0 +1,35 @@
+package com.velocity.itest.avian.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Total number of sightings at one location. Maintained by the database
+ * (see V3__sighting_rollups.sql); read-only to the application.
+ */
+@Entity
+@Immutable
+@Table(name = "sighting_location_counts")
+public class LocationSightingCount {
+
+    @Id
+    private String location;
+
+    private long sightingCount;
+
+    // Default constructor
+    public LocationSightingCount() {
+    }
+
+    // Getters
+    public String getLocation() {
+        return location;
+    }
+
+    public long getSightingCount() {
+        return sightingCount;
+    }
+}
@@ -4,11 +4,14 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners({TableVersionListener.class, SightingEventListener.class, SightingReadModelListener.class})
 @Table(name = "sightings")
 public class Sighting {
 
+    // Pooled sequence ids can be assigned without a round-trip per insert, which lets Hibernate batch them
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sightings_seq")
+    @SequenceGenerator(name = "sightings_seq", sequenceName = "sightings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -18,6 +21,10 @@ public class Sighting {
     private String location;
     private LocalDateTime dateTime;
 
+    // Optional WGS84 position in degrees; both or neither are set
+    private Double latitude;
+    private Double longitude;
+
     // Default constructor
     public Sighting() {
     }
@@ -60,4 +67,20 @@ public class Sighting {
     public void setDateTime(LocalDateTime dateTime) {
         this.dateTime = dateTime;
     }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.velocity.itest.avian.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Number of sightings of one bird at one location on one day. Maintained by the database
+ * (see V3__sighting_rollups.sql); read-only to the application.
+ */
+@Entity
+@Immutable
+@IdClass(SightingDailyCount.Key.class)
+@Table(name = "sighting_daily_counts")
+public class SightingDailyCount {
+
+    @Id
+    private Long birdId;
+
+    @Id
+    private String location;
+
+    @Id
+    private LocalDate sightingDate;
+
+    private long sightingCount;
+
+    // Default constructor
+    public SightingDailyCount() {
+    }
+
+    // Getters
+    public Long getBirdId() {
+        return birdId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public LocalDate getSightingDate() {
+        return sightingDate;
+    }
+
+    public long getSightingCount() {
+        return sightingCount;
+    }
+
+    public static class Key implements Serializable {
+        private Long birdId;
+        private String location;
+        private LocalDate sightingDate;
+
+        // Default constructor
+        public Key() {
+        }
+
+        public Key(Long birdId, String location, LocalDate sightingDate) {
+            this.birdId = birdId;
+            this.location = location;
+            this.sightingDate = sightingDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(birdId, key.birdId)
+                    && Objects.equals(location, key.location)
+                    && Objects.equals(sightingDate, key.sightingDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(birdId, location, sightingDate);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.velocity.itest.avian.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
+import com.velocity.itest.avian.service.BirdService;
+import com.velocity.itest.avian.service.SightingEventBroadcaster;
+import com.velocity.itest.avian.service.SightingEventRelay;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PreRemove;
+
+/**
+ * Publishes created and deleted sightings to the live feed once the transaction commits, so
+ * subscribers never see a sighting that is rolled back, and relays them to the feeds of the
+ * other instances (SightingEventRelay). Bulk JPQL or SQL statements bypass entity callbacks
+ * and are not published.
+ */
+@Component
+public class SightingEventListener {
+
+    @Autowired
+    private SightingEventBroadcaster broadcaster;
+
+    // Lazy: entity listeners are created while the EntityManagerFactory that BirdService needs is being built
+    @Lazy
+    @Autowired
+    private BirdService birdService;
+
+    // Lazy for the same reason
+    @Lazy
+    @Autowired
+    private SightingEventRelay relay;
+
+    @PostPersist
+    public void created(Sighting sighting) {
+        if (relay.isEnabled()) {
+            relay.relay(SightingEventDto.CREATED, copy(sighting));
+        }
+        publishAfterCommit(SightingEventDto.CREATED, sighting);
+    }
+
+    // Relayed before the delete is flushed: that happens as the transaction commits, too late to join it
+    @PreRemove
+    public void deleting(Sighting sighting) {
+        if (relay.isEnabled()) {
+            relay.relay(SightingEventDto.DELETED, copy(sighting));
+        }
+    }
+
+    @PostRemove
+    public void deleted(Sighting sighting) {
+        publishAfterCommit(SightingEventDto.DELETED, sighting);
+    }
+
+    private void publishAfterCommit(String type, Sighting sighting) {
+        if (!broadcaster.hasSubscribers()) {
+            return;
+        }
+        // Copied now: the entity is detached, and its bird proxy unusable, once the transaction ends
+        SightingDto dto = copy(sighting);
+        Long birdId = dto.getBird() != null ? dto.getBird().getId() : null;
+
+        Runnable publish = () -> {
+            if (birdId != null) {
+                // From the bird cache; a bird that is gone is reported by id only
+                dto.setBird(birdService.findById(birdId).orElse(dto.getBird()));
+            }
+            broadcaster.publish(type, dto);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    // The bird by id only; reading more would load the proxy
+    private static SightingDto copy(Sighting sighting) {
+        SightingDto dto = new SightingDto();
+        dto.setId(sighting.getId());
+        dto.setLocation(sighting.getLocation());
+        dto.setDateTime(sighting.getDateTime());
+        dto.setLatitude(sighting.getLatitude());
+        dto.setLongitude(sighting.getLongitude());
+        if (sighting.getBird() != null) {
+            BirdDto bird = new BirdDto();
+            bird.setId(sighting.getBird().getId());
+            dto.setBird(bird);
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,45 @@
+package com.velocity.itest.avian.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency-Key under which a sighting was created (see V8__sighting_idempotency_keys.sql).
+ * Written once, in the transaction that inserts the sighting, and deleted when it expires.
+ */
+@Entity
+@Table(name = "sighting_idempotency_keys")
+public class SightingIdempotencyKey {
+
+    @Id
+    private String idempotencyKey;
+
+    private long sightingId;
+
+    private LocalDateTime createdAt;
+
+    // Default constructor
+    public SightingIdempotencyKey() {
+    }
+
+    public SightingIdempotencyKey(String idempotencyKey, long sightingId, LocalDateTime createdAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.sightingId = sightingId;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public long getSightingId() {
+        return sightingId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,66 @@
+package com.velocity.itest.avian.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.service.SightingReadModel;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the in-memory sighting read model current with sightings written through JPA. Changes
+ * are applied once the transaction commits, so the read model never serves a rolled-back row.
+ */
+@Component
+public class SightingReadModelListener {
+
+    // Lazy: entity listeners are created while the EntityManagerFactory the read model's
+    // dependencies need is being built
+    @Lazy
+    @Autowired
+    private SightingReadModel readModel;
+
+    @PostPersist
+    @PostUpdate
+    public void written(Sighting sighting) {
+        if (!readModel.isEnabled()) {
+            return;
+        }
+        // Copied now: the entity may change or be detached before the transaction ends
+        long id = sighting.getId();
+        Long birdId = sighting.getBird() != null ? sighting.getBird().getId() : null;
+        String location = sighting.getLocation();
+        LocalDateTime dateTime = sighting.getDateTime();
+        Double latitude = sighting.getLatitude();
+        Double longitude = sighting.getLongitude();
+        afterCommit(() -> readModel.upsert(id, birdId, location, dateTime, latitude, longitude));
+    }
+
+    @PostRemove
+    public void deleted(Sighting sighting) {
+        if (!readModel.isEnabled()) {
+            return;
+        }
+        long id = sighting.getId();
+        afterCommit(() -> readModel.remove(id));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
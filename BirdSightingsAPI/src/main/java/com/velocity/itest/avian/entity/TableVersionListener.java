@@ -0,0 +1,48 @@
+package com.velocity.itest.avian.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.service.TableVersions;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Bumps the table version counters whenever a Bird or Sighting is written. The bump is
+ * deferred until the transaction commits, so a reader can never pair the new ETag with
+ * data that does not include the change yet.
+ */
+@Component
+public class TableVersionListener {
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        if (entity instanceof Bird) {
+            afterCommit(tableVersions::birdsChanged);
+        } else if (entity instanceof Sighting) {
+            afterCommit(tableVersions::sightingsChanged);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
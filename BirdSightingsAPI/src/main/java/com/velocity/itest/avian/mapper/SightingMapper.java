@@ -20,6 +20,8 @@ public class SightingMapper {
         dto.setId(sighting.getId());
         dto.setLocation(sighting.getLocation());
         dto.setDateTime(sighting.getDateTime());
+        dto.setLatitude(sighting.getLatitude());
+        dto.setLongitude(sighting.getLongitude());
         
         // Map the associated Bird to its DTO
         if (sighting.getBird() != null) {
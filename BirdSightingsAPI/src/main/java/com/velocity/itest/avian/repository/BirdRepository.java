@@ -1,18 +1,34 @@
 package com.velocity.itest.avian.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.velocity.itest.avian.entity.Bird;
 
 import java.util.List;
 
+// Declared finders run read-only, which routes them to a read replica when one is configured
 @Repository
-public interface BirdRepository extends JpaRepository<Bird, Long> {
+@Transactional(readOnly = true)
+public interface BirdRepository extends JpaRepository<Bird, Long>, JpaSpecificationExecutor<Bird> {
     
     // Find birds by name
     List<Bird> findByName(String name);
     
     // Find birds by name and color
     List<Bird> findByNameAndColor(String name, String color);
+
+    /*
+     * Typeahead search (PostgreSQL only, see V5__search_indexes.sql). Names starting with the
+     * query rank first, then names containing a word similar to it; both are case-insensitive.
+     */
+    @Query(value = "select b.* from birds b"
+            + " where lower(b.name) like :prefix or :query <% lower(b.name)"
+            + " order by lower(b.name) like :prefix desc, word_similarity(:query, lower(b.name)) desc, b.name, b.id"
+            + " limit :limit", nativeQuery = true)
+    List<Bird> search(@Param("query") String query, @Param("prefix") String prefix, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.velocity.itest.avian.dto.BirdSightingCountDto;
+import com.velocity.itest.avian.entity.BirdSightingCount;
+
+import java.util.List;
+
+@Repository
+public interface BirdSightingCountRepository extends JpaRepository<BirdSightingCount, Long> {
+
+    // Sighting totals for every bird that has been seen, most sighted first
+    @Query("select new com.velocity.itest.avian.dto.BirdSightingCountDto(b.id, b.name, c.sightingCount) "
+            + "from BirdSightingCount c, Bird b where b.id = c.birdId order by c.sightingCount desc, b.id")
+    List<BirdSightingCountDto> findAllDtos();
+}
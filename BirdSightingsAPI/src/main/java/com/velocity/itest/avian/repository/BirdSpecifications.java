@@ -0,0 +1,36 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.velocity.itest.avian.entity.Bird;
+
+/**
+ * Composable predicates over Bird.
+ */
+public final class BirdSpecifications {
+
+    private BirdSpecifications() {
+    }
+
+    /**
+     * Combines the name and color filters; either may be null.
+     */
+    public static Specification<Bird> matching(String name, String color) {
+        Specification<Bird> spec = Specification.where(null);
+        if (name != null) {
+            spec = spec.and(hasName(name));
+        }
+        if (color != null) {
+            spec = spec.and(hasColor(color));
+        }
+        return spec;
+    }
+
+    public static Specification<Bird> hasName(String name) {
+        return (root, query, cb) -> cb.equal(root.get("name"), name);
+    }
+
+    public static Specification<Bird> hasColor(String color) {
+        return (root, query, cb) -> cb.equal(root.get("color"), color);
+    }
+}
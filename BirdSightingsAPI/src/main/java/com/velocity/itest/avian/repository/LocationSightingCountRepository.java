@@ -0,0 +1,29 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.entity.LocationSightingCount;
+
+import java.util.List;
+
+@Repository
+public interface LocationSightingCountRepository extends JpaRepository<LocationSightingCount, String> {
+
+    // Most sighted locations first; reads the head of the count index
+    @Query("select new com.velocity.itest.avian.dto.LocationSightingCountDto(c.location, c.sightingCount) "
+            + "from LocationSightingCount c order by c.sightingCount desc, c.location")
+    List<LocationSightingCountDto> findTop(Pageable pageable);
+
+    // Typeahead search like BirdRepository.search; among equal matches, busier locations rank first
+    @Query(value = "select c.* from sighting_location_counts c"
+            + " where lower(c.location) like :prefix or :query <% lower(c.location)"
+            + " order by lower(c.location) like :prefix desc, word_similarity(:query, lower(c.location)) desc,"
+            + " c.sighting_count desc, c.location"
+            + " limit :limit", nativeQuery = true)
+    List<LocationSightingCount> search(@Param("query") String query, @Param("prefix") String prefix, @Param("limit") int limit);
+}
@@ -0,0 +1,16 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.velocity.itest.avian.entity.SightingDailyCount;
+
+@Repository
+public interface SightingDailyCountRepository extends JpaRepository<SightingDailyCount, SightingDailyCount.Key>,
+        SightingDailyCountRepositoryCustom {
+
+    // Folds pending sighting deltas into the rollup tables; returns the number of keys changed
+    @Query(value = "SELECT fold_sighting_rollups()", nativeQuery = true)
+    Long foldRollups();
+}
@@ -0,0 +1,21 @@
+package com.velocity.itest.avian.repository;
+
+import com.velocity.itest.avian.dto.SightingCountBucketDto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Per-day sighting counts summed from the daily rollup, with only the supplied filters applied.
+ */
+public interface SightingDailyCountRepositoryCustom {
+
+    /**
+     * @param birdId Only count this bird, or null for every bird.
+     * @param location Only count this location, or null for every location.
+     * @param from The first day to include, or null.
+     * @param to The last day to include, or null.
+     * @return One bucket per day that has sightings, in date order.
+     */
+    List<SightingCountBucketDto> countPerDay(Long birdId, String location, LocalDate from, LocalDate to);
+}
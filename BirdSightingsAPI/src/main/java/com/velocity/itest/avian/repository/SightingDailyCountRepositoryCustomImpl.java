@@ -0,0 +1,50 @@
+package com.velocity.itest.avian.repository;
+
+import com.velocity.itest.avian.dto.SightingCountBucketDto;
+import com.velocity.itest.avian.entity.SightingDailyCount;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SightingDailyCountRepositoryCustomImpl implements SightingDailyCountRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<SightingCountBucketDto> countPerDay(Long birdId, String location, LocalDate from, LocalDate to) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SightingCountBucketDto> query = cb.createQuery(SightingCountBucketDto.class);
+        Root<SightingDailyCount> root = query.from(SightingDailyCount.class);
+        Path<LocalDate> date = root.get("sightingDate");
+
+        // Leave out absent filters entirely so each combination can use its own index
+        List<Predicate> predicates = new ArrayList<>();
+        if (birdId != null) {
+            predicates.add(cb.equal(root.get("birdId"), birdId));
+        }
+        if (location != null) {
+            predicates.add(cb.equal(root.get("location"), location));
+        }
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(date, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThanOrEqualTo(date, to));
+        }
+
+        query.select(cb.construct(SightingCountBucketDto.class, date, cb.sum(root.<Long>get("sightingCount"))))
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(date)
+                .orderBy(cb.asc(date));
+        return entityManager.createQuery(query).getResultList();
+    }
+}
@@ -0,0 +1,239 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filters, ordering and limit for a sighting query. Bound directly from the request
+ * parameters of the /sightings/query endpoints; every field is optional.
+ */
+public class SightingFilter {
+
+    // Properties a caller may sort by
+    private static final Set<String> SORTABLE = Set.of("id", "dateTime", "location");
+
+    // Larger limits are cut to this; only all=true without a limit reads further
+    public static final int MAX_LIMIT = 10_000;
+
+    private Long birdId;
+    private String location;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime endDate;
+
+    // Keyset cursor: only sightings with a larger id are returned
+    private Long afterId;
+
+    // Bounding box; all four or none. minLongitude > maxLongitude crosses the antimeridian.
+    private Double minLatitude;
+    private Double maxLatitude;
+    private Double minLongitude;
+    private Double maxLongitude;
+
+    // Radius search around a point; all three or none
+    private Double latitude;
+    private Double longitude;
+    private Double radiusKm;
+
+    private String sort = "id";
+    private Sort.Direction direction = Sort.Direction.ASC;
+    private Integer limit;
+
+    // Must be set to run a query without any filter, i.e. a full scan of the table
+    private boolean all;
+
+    /**
+     * @return true if at least one filter narrows the result. afterId does not count: a cursor
+     *         of 0 would pass any query off as a filtered one.
+     */
+    public boolean hasCriteria() {
+        return birdId != null || location != null || startDate != null || endDate != null || hasBox() || hasRadius();
+    }
+
+    public boolean hasBox() {
+        return minLatitude != null && maxLatitude != null && minLongitude != null && maxLongitude != null;
+    }
+
+    public boolean hasRadius() {
+        return latitude != null && longitude != null && radiusKm != null;
+    }
+
+    /**
+     * @return true if the area filters are either absent or complete and within range.
+     */
+    public boolean isAreaValid() {
+        boolean anyBox = minLatitude != null || maxLatitude != null || minLongitude != null || maxLongitude != null;
+        if (anyBox && !(hasBox() && isLatitude(minLatitude) && isLatitude(maxLatitude) && minLatitude <= maxLatitude
+                && isLongitude(minLongitude) && isLongitude(maxLongitude))) {
+            return false;
+        }
+        boolean anyRadius = latitude != null || longitude != null || radiusKm != null;
+        return !anyRadius || (hasRadius() && isLatitude(latitude) && isLongitude(longitude) && radiusKm > 0);
+    }
+
+    private static boolean isLatitude(double value) {
+        return value >= -90 && value <= 90;
+    }
+
+    private static boolean isLongitude(double value) {
+        return value >= -180 && value <= 180;
+    }
+
+    public boolean isSortable() {
+        return SORTABLE.contains(sort);
+    }
+
+    /**
+     * Unfiltered queries must be asked for explicitly; sort must name a known property; an
+     * area filter must be complete and in range.
+     */
+    public boolean isValid() {
+        return (hasCriteria() || all) && isSortable() && isAreaValid() && (limit == null || limit > 0);
+    }
+
+    /**
+     * @return The requested order, with id as the tie-breaker so results are stable across calls.
+     */
+    public Sort toSort() {
+        Sort order = Sort.by(direction, sort);
+        return "id".equals(sort) ? order : order.and(Sort.by(direction, "id"));
+    }
+
+    // Getters and Setters
+    public Long getBirdId() {
+        return birdId;
+    }
+
+    public void setBirdId(Long birdId) {
+        this.birdId = birdId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    public Double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public void setMinLatitude(Double minLatitude) {
+        this.minLatitude = minLatitude;
+    }
+
+    public Double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public void setMaxLatitude(Double maxLatitude) {
+        this.maxLatitude = maxLatitude;
+    }
+
+    public Double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public void setMinLongitude(Double minLongitude) {
+        this.minLongitude = minLongitude;
+    }
+
+    public Double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public void setMaxLongitude(Double maxLongitude) {
+        this.maxLongitude = maxLongitude;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Double getRadiusKm() {
+        return radiusKm;
+    }
+
+    public void setRadiusKm(Double radiusKm) {
+        this.radiusKm = radiusKm;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Sort.Direction direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * @return The requested limit, at most MAX_LIMIT, or null for none.
+     */
+    public Integer getLimit() {
+        return limit == null ? null : Math.min(limit, MAX_LIMIT);
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+}
@@ -0,0 +1,22 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.entity.SightingIdempotencyKey;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SightingIdempotencyKeyRepository extends JpaRepository<SightingIdempotencyKey, String> {
+
+    // One statement rather than a load and delete per key
+    @Modifying
+    @Transactional
+    @Query("delete from SightingIdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,23 +1,121 @@
 package com.velocity.itest.avian.repository;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.velocity.itest.avian.dto.SightingDto;
 import com.velocity.itest.avian.entity.Bird;
 import com.velocity.itest.avian.entity.Sighting;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+// Declared finders run read-only, which routes them to a read replica when one is configured
 @Repository
-public interface SightingRepository extends JpaRepository<Sighting, Long> {
+@Transactional(readOnly = true)
+public interface SightingRepository extends JpaRepository<Sighting, Long>, JpaSpecificationExecutor<Sighting>,
+        SightingRepositoryCustom {
+
+    /*
+     * Entity finders. Each one fetches the bird in the same statement, so mapping the
+     * results never falls back to one lazy SELECT per sighting.
+     */
+
+    @Override
+    @EntityGraph(attributePaths = "bird")
+    List<Sighting> findAll();
 
     // Find sightings by bird, location, and a time interval
+    @EntityGraph(attributePaths = "bird")
     List<Sighting> findByBirdAndLocationAndDateTimeBetween(Bird bird, String location, LocalDateTime startDate, LocalDateTime endDate);
 
     // Find sightings by bird
+    @EntityGraph(attributePaths = "bird")
     List<Sighting> findByBird(Bird bird);
     
     // Find sightings by location
+    @EntityGraph(attributePaths = "bird")
     List<Sighting> findByLocation(String location);
+
+    /*
+     * DTO projections. These build SightingDto/BirdDto straight from one joined SQL row,
+     * skipping entity hydration and the persistence context entirely.
+     */
+
+    @Query("select new com.velocity.itest.avian.dto.SightingDto(s.id, s.location, s.dateTime, s.latitude, s.longitude,"
+            + " b.id, b.name, b.color, b.weight, b.height)"
+            + " from Sighting s left join s.bird b order by s.id")
+    List<SightingDto> findAllDtos();
+
+    @Query("select new com.velocity.itest.avian.dto.SightingDto(s.id, s.location, s.dateTime, s.latitude, s.longitude,"
+            + " b.id, b.name, b.color, b.weight, b.height)"
+            + " from Sighting s join s.bird b"
+            + " where b.id = :birdId and s.location = :location and s.dateTime between :startDate and :endDate"
+            + " order by s.id")
+    List<SightingDto> findDtosByBirdIdAndLocationAndDateTimeBetween(@Param("birdId") Long birdId,
+                                                                    @Param("location") String location,
+                                                                    @Param("startDate") LocalDateTime startDate,
+                                                                    @Param("endDate") LocalDateTime endDate);
+
+    @Query("select new com.velocity.itest.avian.dto.SightingDto(s.id, s.location, s.dateTime, s.latitude, s.longitude,"
+            + " b.id, b.name, b.color, b.weight, b.height)"
+            + " from Sighting s join s.bird b where b.id = :birdId order by s.id")
+    List<SightingDto> findDtosByBirdId(@Param("birdId") Long birdId);
+
+    @Query("select new com.velocity.itest.avian.dto.SightingDto(s.id, s.location, s.dateTime, s.latitude, s.longitude,"
+            + " b.id, b.name, b.color, b.weight, b.height)"
+            + " from Sighting s left join s.bird b where s.location = :location order by s.id")
+    List<SightingDto> findDtosByLocation(@Param("location") String location);
+
+    // Keyset page ordered by id: the next rows after the last id the caller has seen
+    @EntityGraph(attributePaths = "bird")
+    @Query("select s from Sighting s where s.id > :afterId order by s.id")
+    List<Sighting> findPageAfterId(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * One keyset page ordered by (dateTime, id), sightings without a dateTime last, as
+     * PostgreSQL sorts them. Pass the dateTime and id of the last sighting of the previous
+     * page; a null afterDateTime with an afterId means that page ended among the sightings
+     * without a dateTime, and both null ask for the first page.
+     */
+    default List<Sighting> findPageByDateTime(LocalDateTime afterDateTime, Long afterId, Pageable pageable) {
+        if (afterDateTime == null) {
+            return afterId == null
+                    ? findFirstPageByDateTime(pageable)
+                    : findPageWithoutDateTimeAfterId(afterId, pageable);
+        }
+        List<Sighting> sightings = findPageAfterDateTime(afterDateTime, afterId != null ? afterId : 0L, pageable);
+        if (sightings.size() == pageable.getPageSize()) {
+            return sightings;
+        }
+        // The dated sightings ran out within this page; fill it from the ones without a dateTime
+        List<Sighting> page = new ArrayList<>(sightings);
+        page.addAll(findPageWithoutDateTimeAfterId(0L, PageRequest.of(0, pageable.getPageSize() - sightings.size())));
+        return page;
+    }
+
+    // First keyset page ordered by (dateTime, id)
+    @EntityGraph(attributePaths = "bird")
+    @Query("select s from Sighting s order by s.dateTime asc nulls last, s.id")
+    List<Sighting> findFirstPageByDateTime(Pageable pageable);
+
+    // Keyset page ordered by (dateTime, id): the next dated rows after the last (dateTime, id) the caller has seen
+    @EntityGraph(attributePaths = "bird")
+    @Query("select s from Sighting s where s.dateTime > :afterDateTime"
+            + " or (s.dateTime = :afterDateTime and s.id > :afterId) order by s.dateTime, s.id")
+    List<Sighting> findPageAfterDateTime(@Param("afterDateTime") LocalDateTime afterDateTime,
+                                         @Param("afterId") long afterId, Pageable pageable);
+
+    // Keyset page of the sightings without a dateTime, which come after all others, ordered by id
+    @EntityGraph(attributePaths = "bird")
+    @Query("select s from Sighting s where s.dateTime is null and s.id > :afterId order by s.id")
+    List<Sighting> findPageWithoutDateTimeAfterId(@Param("afterId") long afterId, Pageable pageable);
 }
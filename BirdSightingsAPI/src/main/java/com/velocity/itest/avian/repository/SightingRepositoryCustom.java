@@ -0,0 +1,29 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Sighting;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Specification queries that project straight into SightingDto, with ordering and a row limit
+ * applied in SQL.
+ */
+public interface SightingRepositoryCustom {
+
+    /**
+     * @param spec The filter; null matches every sighting.
+     * @param sort The order of the results.
+     * @param limit The maximum number of rows, or null for no limit.
+     */
+    List<SightingDto> findDtos(Specification<Sighting> spec, Sort sort, Integer limit);
+
+    /**
+     * Streaming variant of findDtos. Must be consumed and closed inside a read-only transaction.
+     */
+    Stream<SightingDto> streamDtos(Specification<Sighting> spec, Sort sort, Integer limit);
+}
@@ -0,0 +1,73 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public class SightingRepositoryCustomImpl implements SightingRepositoryCustom {
+
+    // Rows the JDBC driver fetches per round-trip while streaming
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<SightingDto> findDtos(Specification<Sighting> spec, Sort sort, Integer limit) {
+        return dtoQuery(spec, sort, limit).getResultList();
+    }
+
+    @Override
+    public Stream<SightingDto> streamDtos(Specification<Sighting> spec, Sort sort, Integer limit) {
+        TypedQuery<SightingDto> query = dtoQuery(spec, sort, limit);
+        query.setHint(HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        query.setHint(HINT_READONLY, true);
+        return query.getResultStream();
+    }
+
+    private TypedQuery<SightingDto> dtoQuery(Specification<Sighting> spec, Sort sort, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SightingDto> criteria = cb.createQuery(SightingDto.class);
+        Root<Sighting> sighting = criteria.from(Sighting.class);
+        Join<Sighting, Bird> bird = sighting.join("bird", JoinType.LEFT);
+
+        // Same shape as the JPQL constructor expressions in SightingRepository
+        criteria.select(cb.construct(SightingDto.class,
+                sighting.get("id"), sighting.get("location"), sighting.get("dateTime"),
+                sighting.get("latitude"), sighting.get("longitude"),
+                bird.get("id"), bird.get("name"), bird.get("color"), bird.get("weight"), bird.get("height")));
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(sighting, criteria, cb);
+            if (predicate != null) {
+                criteria.where(predicate);
+            }
+        }
+        criteria.orderBy(QueryUtils.toOrders(sort, sighting, cb));
+
+        TypedQuery<SightingDto> query = entityManager.createQuery(criteria);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query;
+    }
+}
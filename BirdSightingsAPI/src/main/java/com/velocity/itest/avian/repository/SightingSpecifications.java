@@ -0,0 +1,112 @@
+package com.velocity.itest.avian.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.velocity.itest.avian.entity.Sighting;
+
+import java.time.LocalDateTime;
+
+/**
+ * Composable predicates over Sighting. Each one maps to a single indexed SQL condition.
+ */
+public final class SightingSpecifications {
+
+    private SightingSpecifications() {
+    }
+
+    /**
+     * Combines every filter that is set on the given filter object.
+     */
+    public static Specification<Sighting> matching(SightingFilter filter) {
+        Specification<Sighting> spec = Specification.where(null);
+        if (filter.getBirdId() != null) {
+            spec = spec.and(hasBirdId(filter.getBirdId()));
+        }
+        if (filter.getLocation() != null) {
+            spec = spec.and(atLocation(filter.getLocation()));
+        }
+        if (filter.getStartDate() != null) {
+            spec = spec.and(onOrAfter(filter.getStartDate()));
+        }
+        if (filter.getEndDate() != null) {
+            spec = spec.and(onOrBefore(filter.getEndDate()));
+        }
+        if (filter.getAfterId() != null) {
+            spec = spec.and(idGreaterThan(filter.getAfterId()));
+        }
+        if (filter.hasBox()) {
+            spec = spec.and(withinBox(filter.getMinLatitude(), filter.getMaxLatitude(),
+                    filter.getMinLongitude(), filter.getMaxLongitude()));
+        }
+        if (filter.hasRadius()) {
+            spec = spec.and(withinRadius(filter.getLatitude(), filter.getLongitude(), filter.getRadiusKm()));
+        }
+        return spec;
+    }
+
+    // Compares the foreign key column; no join to birds is needed
+    public static Specification<Sighting> hasBirdId(Long birdId) {
+        return (root, query, cb) -> cb.equal(root.get("bird").get("id"), birdId);
+    }
+
+    public static Specification<Sighting> atLocation(String location) {
+        return (root, query, cb) -> cb.equal(root.get("location"), location);
+    }
+
+    public static Specification<Sighting> onOrAfter(LocalDateTime start) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateTime"), start);
+    }
+
+    public static Specification<Sighting> onOrBefore(LocalDateTime end) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dateTime"), end);
+    }
+
+    public static Specification<Sighting> idGreaterThan(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * Sightings inside a latitude/longitude box. A box with minLongitude greater than
+     * maxLongitude crosses the antimeridian and is split in two.
+     */
+    public static Specification<Sighting> withinBox(double minLatitude, double maxLatitude,
+                                                    double minLongitude, double maxLongitude) {
+        if (minLongitude > maxLongitude) {
+            return withinBox(minLatitude, maxLatitude, minLongitude, 180)
+                    .or(withinBox(minLatitude, maxLatitude, -180, maxLongitude));
+        }
+        return (root, query, cb) -> cb.isTrue(cb.function(SpatialFunctions.IN_BOX, Boolean.class,
+                root.get("longitude"), root.get("latitude"),
+                cb.literal(minLongitude), cb.literal(minLatitude), cb.literal(maxLongitude), cb.literal(maxLatitude)));
+    }
+
+    /**
+     * Sightings within radiusKm of a point, by great-circle distance. The index narrows the
+     * rows to the enclosing box; the exact distance is only computed for those.
+     */
+    public static Specification<Sighting> withinRadius(double latitude, double longitude, double radiusKm) {
+        double angle = radiusKm / SpatialFunctions.EARTH_RADIUS_KM;
+        double deltaLatitude = Math.toDegrees(angle);
+        double minLatitude = latitude - deltaLatitude;
+        double maxLatitude = latitude + deltaLatitude;
+
+        Specification<Sighting> box;
+        double sinDeltaLongitude = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+        if (minLatitude <= -90 || maxLatitude >= 90 || angle >= Math.PI / 2 || sinDeltaLongitude >= 1) {
+            // The circle contains a pole or spans half the globe: every longitude is in range
+            box = withinBox(Math.max(minLatitude, -90), Math.min(maxLatitude, 90), -180, 180);
+        } else {
+            double deltaLongitude = Math.toDegrees(Math.asin(sinDeltaLongitude));
+            double minLongitude = longitude - deltaLongitude;
+            double maxLongitude = longitude + deltaLongitude;
+            // Wrapped bounds give minLongitude > maxLongitude, which withinBox splits at the antimeridian
+            box = withinBox(minLatitude, maxLatitude,
+                    minLongitude < -180 ? minLongitude + 360 : minLongitude,
+                    maxLongitude > 180 ? maxLongitude - 360 : maxLongitude);
+        }
+        return box.and((root, query, cb) -> cb.lessThanOrEqualTo(
+                cb.function(SpatialFunctions.DISTANCE_KM, Double.class,
+                        root.get("longitude"), root.get("latitude"), cb.literal(longitude), cb.literal(latitude)),
+                radiusKm));
+    }
+}
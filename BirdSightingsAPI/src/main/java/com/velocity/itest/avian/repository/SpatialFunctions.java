@@ -0,0 +1,37 @@
+package com.velocity.itest.avian.repository;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the SQL the spatial sighting filters need as HQL functions, so they can be used
+ * from criteria queries via CriteriaBuilder.function. PostgreSQL only.
+ */
+public class SpatialFunctions implements MetadataBuilderContributor {
+
+    // Mean Earth radius (IUGG), used for great-circle distances (also in V9)
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * sighting_in_box(longitude, latitude, minLongitude, minLatitude, maxLongitude, maxLatitude):
+     * true if the point lies in the box. Answered from the GiST index on point(longitude, latitude).
+     */
+    public static final String IN_BOX = "sighting_in_box";
+
+    /**
+     * sighting_distance_km(longitude, latitude, centerLongitude, centerLatitude): haversine
+     * distance in kilometres. Not indexable; only used after an IN_BOX prefilter.
+     * Implemented by the SQL function of that name (V9).
+     */
+    public static final String DISTANCE_KM = "sighting_distance_km";
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(IN_BOX, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(point(?1, ?2) <@ box(point(?3, ?4), point(?5, ?6)))"));
+        metadataBuilder.applySqlFunction(DISTANCE_KM, new StandardSQLFunction(DISTANCE_KM, StandardBasicTypes.DOUBLE));
+    }
+}
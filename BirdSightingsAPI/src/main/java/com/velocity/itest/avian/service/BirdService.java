@@ -0,0 +1,133 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.mapper.BirdMapper;
+import com.velocity.itest.avian.repository.BirdRepository;
+import com.velocity.itest.avian.repository.BirdSpecifications;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Cached access to bird reference data. Reads are served from the in-process caches
+ * configured by spring.cache.*; every write evicts the entries it could have changed, once
+ * its transaction has committed (see CacheConfig).
+ * Cached lists are shared between callers and must not be modified.
+ */
+@Service
+public class BirdService {
+
+    public static final String BIRD_BY_ID = "birdById";
+    public static final String BIRD_LIST = "birdList";
+    public static final String BIRD_QUERY = "birdQuery";
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    @Autowired
+    private BirdMapper birdMapper;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Unknown ids are not cached: the bird may just not have reached a read replica yet
+    @Cacheable(cacheNames = BIRD_BY_ID, unless = "#result == null")
+    public Optional<BirdDto> findById(Long id) {
+        return birdRepository.findById(id).map(birdMapper::toDto);
+    }
+
+    /**
+     * Resolves many birds at once. Cached birds cost nothing; all misses are loaded with a
+     * single IN query and added to the cache.
+     * @return The birds that exist, keyed by id. Unknown ids are absent from the map.
+     */
+    public Map<Long, BirdDto> findAllById(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(BIRD_BY_ID);
+        Map<Long, BirdDto> birds = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            Cache.ValueWrapper cached = cache != null ? cache.get(id) : null;
+            if (cached == null) {
+                misses.add(id);
+            } else if (cached.get() != null) {
+                birds.put(id, (BirdDto) cached.get());
+            }
+        }
+        if (!misses.isEmpty()) {
+            birdRepository.findAllById(misses).forEach(bird -> {
+                BirdDto dto = birdMapper.toDto(bird);
+                birds.put(dto.getId(), dto);
+                if (cache != null) {
+                    cache.put(dto.getId(), dto);
+                }
+            });
+        }
+        return birds;
+    }
+
+    @Cacheable(BIRD_LIST)
+    public List<BirdDto> findAll() {
+        return queryMetrics.recordRows("birds.all", birdRepository.findAll(Sort.by("id")).stream()
+                .map(birdMapper::toDto)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    @Cacheable(BIRD_QUERY)
+    public List<BirdDto> query(String name, String color) {
+        return queryMetrics.recordRows("birds.query", birdRepository.findAll(BirdSpecifications.matching(name, color), Sort.by("id")).stream()
+                .map(birdMapper::toDto)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BIRD_LIST, allEntries = true),
+            @CacheEvict(cacheNames = BIRD_QUERY, allEntries = true)
+    })
+    public Bird create(Bird bird) {
+        return birdRepository.save(bird);
+    }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BIRD_BY_ID, key = "#id"),
+            @CacheEvict(cacheNames = BIRD_LIST, allEntries = true),
+            @CacheEvict(cacheNames = BIRD_QUERY, allEntries = true)
+    })
+    public Optional<Bird> update(Long id, Bird birdDetails) {
+        return birdRepository.findById(id).map(bird -> {
+            bird.setName(birdDetails.getName());
+            bird.setColor(birdDetails.getColor());
+            bird.setWeight(birdDetails.getWeight());
+            bird.setHeight(birdDetails.getHeight());
+            return birdRepository.save(bird);
+        });
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BIRD_BY_ID, key = "#id"),
+            @CacheEvict(cacheNames = BIRD_LIST, allEntries = true),
+            @CacheEvict(cacheNames = BIRD_QUERY, allEntries = true)
+    })
+    public void delete(Long id) {
+        birdRepository.deleteById(id);
+    }
+}
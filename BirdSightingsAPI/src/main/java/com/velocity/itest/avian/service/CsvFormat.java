@@ -0,0 +1,144 @@
+package com.velocity.itest.avian.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV shared by the export and import paths: comma separated, fields quoted with
+ * double quotes when they hold a delimiter, quotes inside a field doubled.
+ */
+final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    /**
+     * Writes one field. Nulls are written as empty fields; text is quoted only when it holds a
+     * delimiter.
+     */
+    static void writeField(Object value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writeQuoted(text, writer);
+    }
+
+    /**
+     * Writes one field, always quoted. In PostgreSQL's CSV COPY format this keeps an empty
+     * string distinct from NULL, which is an unquoted empty field.
+     */
+    static void writeQuoted(String text, Writer writer) throws IOException {
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Reads records from a character stream through its own buffer. Quoted fields may span
+     * lines; a record ends at \n, \r\n or \r outside quotes. Blank lines are skipped.
+     */
+    static final class Parser {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        // Text of the last record as it appeared in the input, without its line terminator
+        private final StringBuilder input = new StringBuilder();
+
+        Parser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return The fields of the next record, or null at the end of the input.
+         */
+        List<String> next() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            input.setLength(0);
+            boolean quoted = false;
+            boolean inRecord = false;
+
+            int c;
+            while ((c = read()) >= 0) {
+                if (quoted) {
+                    input.append((char) c);
+                    if (c != '"') {
+                        field.append((char) c);
+                    } else if (peek() == '"') {
+                        input.append((char) read());
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                    continue;
+                }
+                if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    if (!inRecord) {
+                        continue;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                inRecord = true;
+                input.append((char) c);
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (!inRecord) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        String input() {
+            return input.toString();
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read = reader.read(buffer);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.velocity.itest.avian.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps this instance in step with writes it did not make itself.
+ * <p>
+ * The birds and sightings tables notify TableVersions.CHANGE_CHANNEL after every write
+ * statement, whoever makes it, and the matching table version moves on at once: an ETag handed
+ * out by this instance stops matching as soon as another instance, BirdSightingsReactiveAPI or
+ * a manual fix changes the table. Writes made here arrive once more, which costs no more
+ * than one extra ETag change.
+ * <p>
+ * BirdSightingsReactiveAPI shares the database but none of the entity listeners, so it also
+ * notifies CHANNEL after each write; then live feed clients resync and the read model reloads,
+ * as after a bulk import. Reloads are at least min-interval apart, so a burst of writes costs
+ * one or two of them.
+ * <p>
+ * Live feed events sent by other instances (SightingEventRelay) are passed on to the feed here.
+ * <p>
+ * Listens on a connection of its own, outside the pool, since it is held for as long as the
+ * application runs. PostgreSQL only; any other database leaves it idle.
+ */
+@Service
+@ConditionalOnProperty(name = "avian.sightings.external-changes.enabled", havingValue = "true", matchIfMissing = true)
+// Created at startup even with lazy initialization: nothing else asks for it, and it must listen from the start
+@Lazy(false)
+public class ExternalSightingChanges {
+
+    /** Channel BirdSightingsReactiveAPI notifies; keep the two in step. */
+    public static final String CHANNEL = "avian_sightings_changed";
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalSightingChanges.class);
+
+    // Longest a wait for notifications blocks before the running flag is checked again
+    private static final int WAIT_MILLIS = 5000;
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private SightingEventBroadcaster sightingEventBroadcaster;
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @Autowired
+    private SightingEventRelay sightingEventRelay;
+
+    @Value("${avian.sightings.external-changes.min-interval:PT1S}")
+    private Duration minInterval;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listener;
+
+    @PostConstruct
+    public void start() {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            return;
+        }
+        running = true;
+        listener = new Thread(() -> listen(url), "external-sighting-changes");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Connection listening = connection;
+        if (listening != null) {
+            // Ends a wait for notifications, which an interrupt does not
+            try {
+                listening.close();
+            } catch (SQLException e) {
+                // Closing anyway
+            }
+        }
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(WAIT_MILLIS * 2L);
+        }
+    }
+
+    private void listen(String url) {
+        boolean connectedBefore = false;
+        boolean reloadPending = false;
+        long lastReload = System.nanoTime() - minInterval.toNanos();
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                this.connection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                    statement.execute("LISTEN " + TableVersions.CHANGE_CHANNEL);
+                    statement.execute("LISTEN " + SightingEventRelay.CHANNEL);
+                }
+                if (connectedBefore) {
+                    // Whatever was notified while the connection was down is lost
+                    tableVersions.birdsChanged();
+                    reloadPending = true;
+                }
+                connectedBefore = true;
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    int wait = WAIT_MILLIS;
+                    if (reloadPending) {
+                        long untilReload = lastReload + minInterval.toNanos() - System.nanoTime();
+                        wait = (int) Math.max(1, Math.min(WAIT_MILLIS, TimeUnit.NANOSECONDS.toMillis(untilReload)));
+                    }
+                    PGNotification[] received = notifications.getNotifications(wait);
+                    if (received != null && received.length > 0) {
+                        reloadPending |= received(received);
+                    }
+                    if (reloadPending && System.nanoTime() - lastReload >= minInterval.toNanos()) {
+                        reloadPending = false;
+                        lastReload = System.nanoTime();
+                        sightingEventBroadcaster.resync();
+                        sightingReadModel.reload();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Not listening for sighting changes from other services, retrying: {}", e.getMessage());
+                    sleep(RETRY_DELAY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the versions of the tables named in a batch of notifications on, each once, and
+     * hands live feed events relayed by other instances to the feed.
+     * @return Whether BirdSightingsReactiveAPI wrote sightings, so the feed and read model need reloading.
+     */
+    private boolean received(PGNotification[] received) {
+        boolean birds = false;
+        boolean sightings = false;
+        boolean reload = false;
+        List<String> events = new ArrayList<>();
+        for (PGNotification notification : received) {
+            if (SightingEventRelay.CHANNEL.equals(notification.getName())) {
+                events.add(notification.getParameter());
+            } else if (CHANNEL.equals(notification.getName())) {
+                sightings = true;
+                reload = true;
+            } else if ("birds".equals(notification.getParameter())) {
+                birds = true;
+            } else {
+                sightings = true;
+            }
+        }
+        // Moves the sightings version too
+        if (birds) {
+            tableVersions.birdsChanged();
+        } else if (sightings) {
+            tableVersions.sightingsChanged();
+        }
+        // After the versions: a client that re-queries on an event must not be answered 304
+        events.forEach(sightingEventRelay::received);
+        return reload;
+    }
+
+    private void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
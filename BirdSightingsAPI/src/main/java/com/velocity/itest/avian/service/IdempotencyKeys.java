@@ -0,0 +1,192 @@
+package com.velocity.itest.avian.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.velocity.itest.avian.entity.SightingIdempotencyKey;
+import com.velocity.itest.avian.repository.SightingIdempotencyKeyRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Idempotency-Key values of sighting writes and the sightings they created. Keys are stored in
+ * sighting_idempotency_keys with the sighting, whose primary key settles concurrent retries; a
+ * bounded cache of recently used keys answers most retries without a query. Keys expire after
+ * the configured time to live.
+ */
+@Component
+public class IdempotencyKeys {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    // Leaves room in the column for the item suffix of batch keys
+    private static final int MAX_LENGTH = 200;
+
+    @Autowired
+    private SightingIdempotencyKeyRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${avian.idempotency.cache-size:100000}")
+    private long cacheSize;
+
+    @Value("${avian.idempotency.key-ttl:24h}")
+    private Duration keyTtl;
+
+    private Cache<String, Long> recent;
+
+    // Keys of synchronous writes on this instance whose transaction has not finished yet
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(keyTtl)
+                .build();
+    }
+
+    /**
+     * Accepts printable ASCII keys of up to 200 characters, such as UUIDs.
+     */
+    public static boolean isValid(String key) {
+        if (key == null || key.isEmpty() || key.length() > MAX_LENGTH) {
+            return false;
+        }
+        return key.chars().allMatch(c -> c > 0x20 && c < 0x7f);
+    }
+
+    /**
+     * Key of one item of a batch sent with the given key.
+     */
+    public static String itemKey(String batchKey, int index) {
+        return batchKey + "#" + index;
+    }
+
+    /**
+     * @return The id of the sighting created under the key, if any. A cached key needs no
+     *         connection; the others are read from the primary (see onPrimary).
+     */
+    public Optional<Long> find(String key) {
+        Long id = recent.getIfPresent(key);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        Optional<Long> stored = onPrimary(() -> repository.findById(key).map(SightingIdempotencyKey::getSightingId));
+        stored.ifPresent(sightingId -> recent.put(key, sightingId));
+        return stored;
+    }
+
+    /**
+     * @return The sighting ids of those keys that have been used, in one query for the cache
+     *         misses. Read from the primary, like find.
+     */
+    public Map<String, Long> findAll(Collection<String> keys) {
+        Map<String, Long> found = new HashMap<>(recent.getAllPresent(keys));
+        List<String> missing = keys.stream().filter(key -> !found.containsKey(key)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            for (SightingIdempotencyKey stored : onPrimary(() -> repository.findAllById(missing))) {
+                found.put(stored.getIdempotencyKey(), stored.getSightingId());
+                recent.put(stored.getIdempotencyKey(), stored.getSightingId());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks a reservation that succeeded because the key was not cached: the key may have been
+     * stored before it left the cache. A stored key takes the reservation's place.
+     * @return The id of the sighting stored under the key, or empty if there is none or the
+     *         database cannot be reached, in which case the reservation stands.
+     */
+    public Optional<Long> findStored(String key, long reservedId) {
+        Optional<Long> stored;
+        try {
+            stored = onPrimary(() -> repository.findById(key).map(SightingIdempotencyKey::getSightingId));
+        } catch (DataAccessException | TransactionException e) {
+            return Optional.empty();
+        }
+        stored.ifPresent(sightingId -> recent.asMap().replace(key, reservedId, sightingId));
+        return stored;
+    }
+
+    // In a read-write transaction, so from the primary: a lagging replica could miss a key just stored
+    private <T> T onPrimary(Supplier<T> read) {
+        return new TransactionTemplate(transactionManager).execute(status -> read.get());
+    }
+
+    /**
+     * Caches the key once the current transaction, which stores it, commits.
+     */
+    public void remember(String key, long sightingId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(key, sightingId);
+                }
+            });
+        } else {
+            recent.put(key, sightingId);
+        }
+    }
+
+    /**
+     * Claims the key for a sighting that is not stored yet (see SightingWriteBehindService).
+     * @return The id of the sighting that already holds the key, or null if the claim succeeded.
+     */
+    public Long reserve(String key, long sightingId) {
+        return recent.asMap().putIfAbsent(key, sightingId);
+    }
+
+    /**
+     * Releases a reservation whose sighting was never accepted.
+     */
+    public void release(String key, long sightingId) {
+        recent.asMap().remove(key, sightingId);
+    }
+
+    /**
+     * Marks the key as taken by a synchronous write until releaseInFlight. Its outcome is not
+     * known yet, so a concurrent request with the same key can be neither replayed nor run.
+     * Requests reaching other instances are settled by the primary key instead.
+     * @return Whether the key was free; false if a write with it is still running here.
+     */
+    public boolean claimInFlight(String key) {
+        return inFlight.add(key);
+    }
+
+    /**
+     * Frees a key claimed by claimInFlight once its transaction has committed or rolled back.
+     */
+    public void releaseInFlight(String key) {
+        inFlight.remove(key);
+    }
+
+    @Scheduled(fixedDelayString = "${avian.idempotency.expiry-interval:PT1H}")
+    public void expire() {
+        repository.deleteCreatedBefore(LocalDateTime.now().minus(keyTtl));
+    }
+}
@@ -0,0 +1,70 @@
+package com.velocity.itest.avian.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer. Producers claim a
+ * sequence with a CAS on the tail and then publish their element into its slot; the consumer
+ * reads slots in sequence order, so a claimed but not yet published slot holds it back briefly.
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    // Written only by the consumer
+    private volatile long head;
+
+    /**
+     * @param capacity Rounded up to a power of two.
+     */
+    MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return false if the buffer is full.
+     */
+    boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.lazySet((int) sequence & mask, element);
+        return true;
+    }
+
+    /**
+     * Moves up to max published elements, in order, into the target. Consumer thread only.
+     * @return The number of elements moved.
+     */
+    int drainTo(List<E> target, int max) {
+        long sequence = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) sequence & mask;
+            E element = slots.get(slot);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(slot, null);
+            target.add(element);
+            sequence++;
+            drained++;
+        }
+        head = sequence;
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+}
@@ -0,0 +1,48 @@
+package com.velocity.itest.avian.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many rows each database query path returns, as the avian.query.rows
+ * distribution tagged with the query name. Latency is covered separately by the
+ * spring.data.repository.invocations and http.server.requests timers.
+ */
+@Component
+public class QueryMetrics {
+
+    public static final String ROWS_RETURNED = "avian.query.rows";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    /**
+     * Records the size of a query result and returns the result unchanged.
+     */
+    public <T extends Collection<?>> T recordRows(String query, T rows) {
+        recordRows(query, rows.size());
+        return rows;
+    }
+
+    public void recordRows(String query, long rows) {
+        summaries.computeIfAbsent(query, this::register).record(rows);
+    }
+
+    private DistributionSummary register(String query) {
+        return DistributionSummary.builder(ROWS_RETURNED)
+                .description("Rows returned per query")
+                .baseUnit("rows")
+                .tag("query", query)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.repository.BirdRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Example birds and sightings for demos and local development, loaded once the application
+ * has started when the sample-data profile is active (SPRING_PROFILES_ACTIVE=sample-data).
+ *
+ * Birds are matched by name, so restarting with the profile adds nothing twice: only birds
+ * that do not exist yet are created, together with their sightings, in one transaction.
+ */
+@Component
+@Profile("sample-data")
+public class SampleDataLoader implements ApplicationRunner {
+
+    @Autowired
+    private BirdService birdService;
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    @Autowired
+    private SightingIngestService sightingIngestService;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SightingDto> sightings = new ArrayList<>();
+
+        Bird eagle = createIfMissing(new Bird("Eagle", "Brown", 5.5, 75.0));
+        if (eagle != null) {
+            sightings.add(sighting(eagle, "Grand Canyon", now));
+            sightings.add(sighting(eagle, "Rocky Mountains", now.minusDays(5)));
+        }
+
+        Bird sparrow = createIfMissing(new Bird("Sparrow", "Grey", 0.05, 15.0));
+        if (sparrow != null) {
+            sightings.add(sighting(sparrow, "Backyard", now.minusHours(2)));
+            sightings.add(sighting(sparrow, "City Park", now.minusMonths(1)));
+        }
+
+        Bird robin = createIfMissing(new Bird("Robin", "Red", 0.1, 20.0));
+        if (robin != null) {
+            sightings.add(sighting(robin, "Central Park", now.minusDays(1)));
+        }
+
+        // One JDBC batch for all of them
+        if (!sightings.isEmpty()) {
+            sightingIngestService.ingest(sightings, 0, null);
+        }
+    }
+
+    // Null if a bird of that name already exists
+    private Bird createIfMissing(Bird bird) {
+        if (!birdRepository.findByName(bird.getName()).isEmpty()) {
+            return null;
+        }
+        return birdService.create(bird);
+    }
+
+    private static SightingDto sighting(Bird bird, String location, LocalDateTime dateTime) {
+        BirdDto birdDto = new BirdDto();
+        birdDto.setId(bird.getId());
+        SightingDto sighting = new SightingDto();
+        sighting.setBird(birdDto);
+        sighting.setLocation(location);
+        sighting.setDateTime(dateTime);
+        return sighting;
+    }
+}
@@ -0,0 +1,65 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.mapper.BirdMapper;
+import com.velocity.itest.avian.repository.BirdRepository;
+import com.velocity.itest.avian.repository.LocationSightingCountRepository;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked, case-insensitive typeahead search over bird names and sighting locations. Prefix
+ * matches rank above fuzzy (trigram word-similarity) matches. Both are answered from the
+ * indexes in V5__search_indexes.sql, so the cost depends on the limit rather than the table size.
+ * Locations come from the rollup table and appear once their first sighting is folded in.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SearchService {
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    @Autowired
+    private LocationSightingCountRepository locationSightingCountRepository;
+
+    @Autowired
+    private BirdMapper birdMapper;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    public List<BirdDto> searchBirds(String query, int limit) {
+        String normalized = normalize(query);
+        List<BirdDto> birds = birdRepository.search(normalized, likePrefix(normalized), limit).stream()
+                .map(birdMapper::toDto)
+                .collect(Collectors.toList());
+        return queryMetrics.recordRows("search.birds", birds);
+    }
+
+    public List<LocationSightingCountDto> searchLocations(String query, int limit) {
+        String normalized = normalize(query);
+        List<LocationSightingCountDto> locations = locationSightingCountRepository
+                .search(normalized, likePrefix(normalized), limit).stream()
+                .map(count -> new LocationSightingCountDto(count.getLocation(), count.getSightingCount()))
+                .collect(Collectors.toList());
+        return queryMetrics.recordRows("search.locations", locations);
+    }
+
+    // Matches the lower(...) expressions the indexes are built on
+    private static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Escapes LIKE wildcards in user input so they match literally
+    private static String likePrefix(String query) {
+        return query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
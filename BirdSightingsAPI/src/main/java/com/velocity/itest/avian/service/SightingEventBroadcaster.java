@@ -0,0 +1,253 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans sighting events out to the Server-Sent Events subscribers of /sightings/stream.
+ * <p>
+ * Publishing never blocks and takes no locks: each event is appended to a bounded queue per
+ * matching subscriber, and a drain task writes that queue to the subscriber's connection on
+ * a separate thread. A slow client therefore only delays itself. When its queue is full the
+ * overflow policy applies: DROP_OLDEST discards the oldest pending event and tells the client
+ * to resync, DISCONNECT closes the connection so the client reconnects and re-queries.
+ */
+@Component
+public class SightingEventBroadcaster {
+
+    public enum OverflowPolicy { DROP_OLDEST, DISCONNECT }
+
+    // Sent once per connection; clients wait this long before reconnecting
+    private static final long RECONNECT_DELAY_MILLIS = 3000;
+
+    private static final Object HEARTBEAT = new Object();
+
+    @Value("${avian.sightings.feed.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${avian.sightings.feed.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${avian.sightings.feed.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Drain tasks block on slow sockets, so they get their own threads rather than the request pool
+    private final ExecutorService writers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sighting-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens a feed of the sightings matching the optional filters.
+     * @return The emitter to return from the controller, or empty if the subscriber limit is reached.
+     */
+    public Optional<SseEmitter> subscribe(Long birdId, String location) {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        // No timeout argument: the emitter uses spring.mvc.async.request-timeout, after which the client reconnects
+        SseEmitter emitter = new SseEmitter();
+        Subscriber subscriber = new Subscriber(emitter, birdId, location);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscribers.add(subscriber);
+        // The first write commits the response headers, so the client sees the stream open immediately
+        subscriber.offer(HEARTBEAT);
+        return Optional.of(emitter);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Queues an event for every subscriber whose filters match the sighting. Never blocks.
+     * @param type SightingEventDto.CREATED or SightingEventDto.DELETED.
+     */
+    public void publish(String type, SightingDto sighting) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Event event = new Event(sequence.incrementAndGet(), new SightingEventDto(type, sighting));
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(sighting)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Tells every subscriber to reload, after changes that bypass JPA (bulk imports) and so
+     * produce no per-sighting events.
+     */
+    public void resync() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.dropped.set(true);
+            // Carries the resync out; send() writes it ahead of the heartbeat
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    /**
+     * Writes a comment to every idle connection, so connections to clients that went away are
+     * detected and released, and proxies do not time out quiet streams.
+     */
+    @Scheduled(fixedDelayString = "${avian.sightings.feed.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.pending.get() == 0) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        writers.shutdownNow();
+    }
+
+    private static final class Event {
+        private final long id;
+        private final SightingEventDto payload;
+
+        private Event(long id, SightingEventDto payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long birdId;
+        private final String location;
+
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        // Queue length, tracked separately because ConcurrentLinkedQueue.size() is O(n)
+        private final AtomicInteger pending = new AtomicInteger();
+        // Number of offers not yet seen by a drain; only the offer that raises it from 0 starts one
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean started;
+
+        private Subscriber(SseEmitter emitter, Long birdId, String location) {
+            this.emitter = emitter;
+            this.birdId = birdId;
+            this.location = location;
+        }
+
+        private boolean matches(SightingDto sighting) {
+            if (birdId != null && (sighting.getBird() == null || !birdId.equals(sighting.getBird().getId()))) {
+                return false;
+            }
+            return location == null || location.isEmpty() || location.equals(sighting.getLocation());
+        }
+
+        private void offer(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (pending.incrementAndGet() > bufferSize) {
+                pending.decrementAndGet();
+                if (item == HEARTBEAT) {
+                    // A full queue already keeps the connection busy
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    close();
+                    return;
+                }
+                if (queue.poll() != null) {
+                    pending.decrementAndGet();
+                }
+                dropped.set(true);
+                if (pending.incrementAndGet() > bufferSize) {
+                    // Lost the freed slot to a concurrent publisher; this event is dropped instead
+                    pending.decrementAndGet();
+                    return;
+                }
+            }
+            queue.offer(item);
+            if (wip.getAndIncrement() == 0) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            try {
+                do {
+                    Object item;
+                    while ((item = queue.poll()) != null) {
+                        pending.decrementAndGet();
+                        if (closed.get()) {
+                            continue;
+                        }
+                        send(item);
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter already completed
+                close();
+            }
+        }
+
+        private void send(Object item) throws IOException {
+            if (!started) {
+                started = true;
+                emitter.send(SseEmitter.event().reconnectTime(RECONNECT_DELAY_MILLIS).comment("connected"));
+            }
+            if (dropped.getAndSet(false)) {
+                emitter.send(SseEmitter.event()
+                        .name("resync")
+                        .data(new SightingEventDto(SightingEventDto.RESYNC, null), MediaType.APPLICATION_JSON));
+            }
+            if (item == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            Event event = (Event) item;
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.id))
+                    .name(event.payload.getType().toLowerCase())
+                    .data(event.payload, MediaType.APPLICATION_JSON));
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.velocity.itest.avian.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Carries live feed events between instances of the API. Each instance publishes the sightings
+ * written through it to its own feed subscribers; behind a load balancer, subscribers of the
+ * other instances would never hear of them. So the writer also sends its events on CHANNEL,
+ * in the writing transaction: PostgreSQL delivers a notification only once that commits.
+ * Every instance's ExternalSightingChanges hands them back to received(), which publishes
+ * them to the local subscribers and skips the ones this instance sent.
+ * <p>
+ * Events carry the bird's id only; the receiver fills in the bird from its cache. As many
+ * events as fit PostgreSQL's payload limit go into one notification. Off unless the database
+ * is PostgreSQL and avian.sightings.external-changes.enabled is on, as nobody listens then.
+ */
+@Component
+public class SightingEventRelay {
+
+    /** Channel the events are sent on. */
+    public static final String CHANNEL = "avian_sighting_events";
+
+    private static final Logger log = LoggerFactory.getLogger(SightingEventRelay.class);
+
+    // PostgreSQL refuses payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    // A count rather than pg_notify's void, which Hibernate cannot map
+    private static final String NOTIFY = "SELECT count(*) FROM pg_notify('" + CHANNEL + "', ?)";
+
+    private final String origin = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    // Own mapper: the payload is only ever read by other instances of this class
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private SightingEventBroadcaster broadcaster;
+
+    // Lazy: only events from other instances need it, and the entity listener that sends them
+    // is created while the EntityManagerFactory that BirdService needs is being built
+    @Lazy
+    @Autowired
+    private BirdService birdService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${avian.sightings.external-changes.enabled:true}")
+    private boolean listening;
+
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        String url = dataSourceProperties.determineUrl();
+        enabled = listening && url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sends an event for a sighting written through JPA when the current transaction commits.
+     * Must be called before the commit starts, so from @PostPersist or @PreRemove.
+     * @param type SightingEventDto.CREATED or SightingEventDto.DELETED.
+     * @param sighting Copied now; its bird needs only the id.
+     */
+    public void relay(String type, SightingDto sighting) {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String event = encode(type, sighting);
+        if (event == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<String> pending = (List<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<String> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    for (String payload : payloads(events)) {
+                        entityManager.createNativeQuery(NOTIFY).setParameter(1, payload).getSingleResult();
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SightingEventRelay.this);
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Sends CREATED events for sightings inserted over plain JDBC; the caller commits.
+     */
+    public void relayCreated(Connection connection, List<SightingDto> sightings) throws SQLException {
+        if (!enabled || sightings.isEmpty()) {
+            return;
+        }
+        List<String> events = new ArrayList<>(sightings.size());
+        for (SightingDto sighting : sightings) {
+            String event = encode(SightingEventDto.CREATED, sighting);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(NOTIFY)) {
+            for (String payload : payloads(events)) {
+                statement.setString(1, payload);
+                statement.executeQuery().close();
+            }
+        }
+    }
+
+    /**
+     * Publishes the events of one notification to this instance's subscribers, unless this
+     * instance sent them, in which case they were published when the write committed.
+     */
+    public void received(String payload) {
+        try {
+            JsonNode notification = objectMapper.readTree(payload);
+            if (origin.equals(notification.path("origin").asText()) || !broadcaster.hasSubscribers()) {
+                return;
+            }
+            for (JsonNode node : notification.path("events")) {
+                SightingEventDto event = objectMapper.treeToValue(node, SightingEventDto.class);
+                SightingDto sighting = event.getSighting();
+                if (sighting.getBird() != null && sighting.getBird().getId() != null) {
+                    Long birdId = sighting.getBird().getId();
+                    // From the bird cache; a bird that is gone is reported by id only
+                    sighting.setBird(birdService.findById(birdId).orElse(sighting.getBird()));
+                }
+                broadcaster.publish(event.getType(), sighting);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring a malformed sighting event notification: {}", e.getMessage());
+        }
+    }
+
+    private String encode(String type, SightingDto sighting) {
+        SightingDto copy = new SightingDto();
+        copy.setId(sighting.getId());
+        copy.setLocation(sighting.getLocation());
+        copy.setDateTime(sighting.getDateTime());
+        copy.setLatitude(sighting.getLatitude());
+        copy.setLongitude(sighting.getLongitude());
+        if (sighting.getBird() != null) {
+            BirdDto bird = new BirdDto();
+            bird.setId(sighting.getBird().getId());
+            copy.setBird(bird);
+        }
+        try {
+            return objectMapper.writeValueAsString(new SightingEventDto(type, copy));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not relay the event for sighting {}: {}", sighting.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Packs the encoded events into as few notification payloads as the size limit allows
+    private List<String> payloads(List<String> events) {
+        String head = "{\"origin\":\"" + origin + "\",\"events\":[";
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(head);
+        int bytes = head.length() + 2;
+        for (String event : events) {
+            int eventBytes = event.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (payload.length() > head.length() && bytes + eventBytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.append("]}").toString());
+                payload = new StringBuilder(head);
+                bytes = head.length() + 2;
+            }
+            if (payload.length() > head.length()) {
+                payload.append(',');
+            }
+            payload.append(event);
+            bytes += eventBytes;
+        }
+        if (payload.length() > head.length()) {
+            payloads.add(payload.append("]}").toString());
+        }
+        return payloads;
+    }
+}
@@ -0,0 +1,198 @@
+package com.velocity.itest.avian.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the records of a sighting import. Records are numbered from 1 in input order, so a
+ * resumed import can skip the ones an earlier run committed. A record that cannot be parsed is
+ * returned with an error instead of ending the import.
+ */
+abstract class SightingImportReader implements Closeable {
+
+    /**
+     * One input record: the parsed sighting, or the reason it could not be parsed. The bird
+     * is identified by id, by name, or both.
+     */
+    static final class Record {
+        final long number;
+        final String input;
+        final SightingDto sighting;
+        final String error;
+
+        private Record(long number, String input, SightingDto sighting, String error) {
+            this.number = number;
+            this.input = input;
+            this.sighting = sighting;
+            this.error = error;
+        }
+    }
+
+    protected long number;
+
+    /**
+     * @return The next record, or null at the end of the input.
+     */
+    abstract Record next() throws IOException;
+
+    static SightingImportReader open(SightingImportService.Format format, InputStream in, ObjectMapper objectMapper)
+            throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        return format == SightingImportService.Format.NDJSON
+                ? new Ndjson(new BufferedReader(reader), objectMapper)
+                : new Csv(reader);
+    }
+
+    protected Record parsed(String input, SightingDto sighting) {
+        return new Record(number, input, sighting, null);
+    }
+
+    protected Record rejected(String input, String error) {
+        return new Record(number, input, null, error);
+    }
+
+    /**
+     * CSV with a header row. Columns are matched by name, ignoring case; the names are those of
+     * /export/sightings, so an export can be imported again. Unknown columns are ignored.
+     */
+    private static final class Csv extends SightingImportReader {
+
+        private final Reader reader;
+        private final CsvFormat.Parser parser;
+        private final int columns;
+        private final int location;
+        private final int dateTime;
+        private final int latitude;
+        private final int longitude;
+        private final int birdId;
+        private final int birdName;
+
+        private Csv(Reader reader) throws IOException {
+            this.reader = reader;
+            this.parser = new CsvFormat.Parser(reader);
+            List<String> header = parser.next();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input has no header row");
+            }
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                indexes.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            columns = header.size();
+            location = indexes.getOrDefault("location", -1);
+            dateTime = indexes.getOrDefault("datetime", -1);
+            latitude = indexes.getOrDefault("latitude", -1);
+            longitude = indexes.getOrDefault("longitude", -1);
+            birdId = indexes.getOrDefault("birdid", -1);
+            birdName = indexes.getOrDefault("birdname", -1);
+            if (birdId < 0 && birdName < 0) {
+                throw new IllegalArgumentException("CSV header must name a birdId or birdName column");
+            }
+        }
+
+        @Override
+        Record next() throws IOException {
+            List<String> fields = parser.next();
+            if (fields == null) {
+                return null;
+            }
+            number++;
+            String input = parser.input();
+            if (fields.size() != columns) {
+                return rejected(input, "Expected " + columns + " fields but found " + fields.size());
+            }
+            String value = null;
+            try {
+                SightingDto sighting = new SightingDto();
+                sighting.setLocation(field(fields, location));
+                value = field(fields, dateTime);
+                sighting.setDateTime(value == null ? null : LocalDateTime.parse(value));
+                value = field(fields, latitude);
+                sighting.setLatitude(value == null ? null : Double.valueOf(value));
+                value = field(fields, longitude);
+                sighting.setLongitude(value == null ? null : Double.valueOf(value));
+
+                BirdDto bird = new BirdDto();
+                value = field(fields, birdId);
+                bird.setId(value == null ? null : Long.valueOf(value));
+                bird.setName(field(fields, birdName));
+                sighting.setBird(bird);
+                return parsed(input, sighting);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return rejected(input, "Invalid value: " + value);
+            }
+        }
+
+        // Empty fields are absent values
+        private static String field(List<String> fields, int index) {
+            if (index < 0) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Newline-delimited JSON in the shape of SightingDto, as written by /sightings/query.
+     * Blank lines are skipped.
+     */
+    private static final class Ndjson extends SightingImportReader {
+
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+
+        private Ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Record next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            number++;
+            try {
+                SightingDto sighting = objectMapper.readValue(line, SightingDto.class);
+                if (sighting == null) {
+                    return rejected(line, "Expected a sighting object");
+                }
+                return parsed(line, sighting);
+            } catch (JsonProcessingException e) {
+                return rejected(line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
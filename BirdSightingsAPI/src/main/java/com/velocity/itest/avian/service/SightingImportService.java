@@ -0,0 +1,481 @@
+package com.velocity.itest.avian.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingImportResultDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.repository.BirdRepository;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk-loads historical sightings with PostgreSQL COPY, bypassing JPA. Input records are
+ * validated, their birds resolved against a map of all birds built once per import, and the
+ * accepted rows copied into sightings in chunks. Each chunk commits together with a checkpoint
+ * in sighting_imports (see V7__sighting_imports.sql), so an interrupted import run again under
+ * the same id continues after the last committed record. Rejected records are appended to
+ * an error file under the error directory, whose length is checkpointed along with the chunk.
+ */
+@Service
+public class SightingImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // Input records per COPY and per transaction
+    public static final int CHUNK_SIZE = 10_000;
+
+    // Import ids double as file names, so they are restricted to a safe alphabet
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+
+    // Must match allocationSize of the sightings_seq generator on the Sighting entity
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String COPY_SIGHTINGS =
+            "COPY sightings (id, bird_id, location, date_time, latitude, longitude) FROM STDIN (FORMAT csv)";
+
+    // Session-level advisory lock held for the duration of one import id
+    private static final String IMPORT_LOCK = "hashtext('sighting_import:' || ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private SightingEventBroadcaster sightingEventBroadcaster;
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @Value("${avian.import.error-dir:imports}")
+    private Path errorDir;
+
+    // Historical months get their partitions created before their rows are copied
+    @Value("${avian.sightings.partitions.enabled:true}")
+    private boolean partitioned;
+
+    public boolean isValidImportId(String importId) {
+        return importId != null && IMPORT_ID.matcher(importId).matches();
+    }
+
+    /**
+     * @return The checkpoint of an import, if any chunk of it has been committed.
+     */
+    public Optional<SightingImportResultDto> findProgress(String importId) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return loadCheckpoint(connection, importId);
+        }
+    }
+
+    /**
+     * Imports the records of the input, resuming after the checkpoint of an earlier run with
+     * the same id. Running a completed import again imports nothing.
+     * @param progress Called after every committed chunk.
+     * @throws IllegalArgumentException If the id is invalid or the input has no usable header.
+     * @throws IllegalStateException If an import with the same id is already running.
+     */
+    public SightingImportResultDto importSightings(String importId, Format format, InputStream in,
+                                                   Consumer<SightingImportResultDto> progress)
+            throws IOException, SQLException {
+        if (!isValidImportId(importId)) {
+            throw new IllegalArgumentException("Invalid import id: " + importId);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!lock(connection, importId)) {
+                throw new IllegalStateException("Import already running: " + importId);
+            }
+            try {
+                connection.setAutoCommit(false);
+                return run(connection, importId, format, in, progress);
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+                unlock(connection, importId);
+            }
+        }
+    }
+
+    private SightingImportResultDto run(Connection connection, String importId, Format format, InputStream in,
+                                        Consumer<SightingImportResultDto> progress) throws IOException, SQLException {
+        SightingImportResultDto result = loadCheckpoint(connection, importId)
+                .orElseGet(() -> new SightingImportResultDto(importId));
+        long resumeAfter = result.getRecords();
+        long errorBytes = resumeAfter > 0 ? loadErrorBytes(connection, importId) : 0;
+        result.setResumedAfter(resumeAfter);
+        result.setComplete(false);
+
+        Birds birds = new Birds(birdRepository.findAll());
+        CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+        Path errorFile = errorDir.resolve(importId + ".rejected.csv");
+        List<SightingDto> rows = new ArrayList<>(CHUNK_SIZE);
+        long pending = 0;
+        long changed = 0;
+
+        try (SightingImportReader reader = SightingImportReader.open(format, in, objectMapper);
+             ErrorFile errors = new ErrorFile(errorFile, errorBytes)) {
+            SightingImportReader.Record record;
+            while ((record = reader.next()) != null) {
+                if (record.number <= resumeAfter) {
+                    continue;
+                }
+                String error = record.error != null ? record.error : validate(record.sighting, birds);
+                if (error != null) {
+                    errors.write(record, error);
+                    result.setRejected(result.getRejected() + 1);
+                } else {
+                    rows.add(record.sighting);
+                }
+                result.setRecords(record.number);
+                if (++pending == CHUNK_SIZE) {
+                    changed += commitChunk(connection, copyManager, rows, result, errors);
+                    pending = 0;
+                    progress.accept(result);
+                }
+            }
+            result.setComplete(true);
+            changed += commitChunk(connection, copyManager, rows, result, errors);
+            if (result.getRejected() > 0) {
+                result.setErrorFile(errorFile.toString());
+            }
+            progress.accept(result);
+        } finally {
+            if (changed > 0) {
+                // Rows copied outside JPA raise no per-sighting events; clients reload instead
+                sightingEventBroadcaster.resync();
+                sightingReadModel.reload();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the accepted rows of a chunk and commits them with the checkpoint.
+     * @return The number of sightings inserted.
+     */
+    private int commitChunk(Connection connection, CopyManager copyManager, List<SightingDto> rows,
+                            SightingImportResultDto result, ErrorFile errors) throws IOException, SQLException {
+        int inserted = rows.size();
+        if (inserted > 0) {
+            if (partitioned) {
+                ensurePartitions(connection, rows);
+            }
+            List<Long> ids = allocateIds(connection, inserted);
+            copyManager.copyIn(COPY_SIGHTINGS, new ByteArrayInputStream(toCsv(rows, ids)));
+            result.setImported(result.getImported() + inserted);
+        }
+        // Rejections reach the disk before the checkpoint that skips their records commits; if
+        // that commit never happens, the resumed import cuts them off again
+        errors.flush();
+        saveCheckpoint(connection, result, errors.size());
+        connection.commit();
+        rows.clear();
+        if (inserted > 0) {
+            tableVersions.sightingsChanged();
+        }
+        return inserted;
+    }
+
+    /**
+     * @return Why the sighting cannot be imported, or null if it can. On success the bird of
+     *         the sighting carries the resolved id.
+     */
+    private static String validate(SightingDto sighting, Birds birds) {
+        BirdDto bird = sighting.getBird();
+        Long birdId = bird == null ? null : bird.getId();
+        String birdName = bird == null ? null : bird.getName();
+        if (birdId != null) {
+            if (!birds.ids.contains(birdId)) {
+                return "Bird not found: " + birdId;
+            }
+        } else if (birdName != null && !birdName.isBlank()) {
+            String key = birdName.trim().toLowerCase(Locale.ROOT);
+            if (!birds.byName.containsKey(key)) {
+                return "Bird not found: " + birdName;
+            }
+            birdId = birds.byName.get(key);
+            if (birdId == null) {
+                return "Bird name is ambiguous: " + birdName;
+            }
+            bird.setId(birdId);
+        } else {
+            return "Bird id or name is required";
+        }
+
+        return SightingIngestService.invalidFields(sighting.getLocation(), sighting.getLatitude(), sighting.getLongitude());
+    }
+
+    // Creates the monthly partitions the chunk's sightings fall into (see V6)
+    private static void ensurePartitions(Connection connection, List<SightingDto> rows) throws SQLException {
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (SightingDto row : rows) {
+            LocalDateTime dateTime = row.getDateTime();
+            if (dateTime == null) {
+                continue;
+            }
+            if (first == null || dateTime.isBefore(first)) {
+                first = dateTime;
+            }
+            if (last == null || dateTime.isAfter(last)) {
+                last = dateTime;
+            }
+        }
+        if (first == null) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT ensure_sighting_partitions(?, ?)")) {
+            statement.setObject(1, first.toLocalDate().withDayOfMonth(1));
+            statement.setObject(2, last.toLocalDate().withDayOfMonth(1));
+            statement.execute();
+        }
+    }
+
+    /**
+     * Takes whole blocks from sightings_seq, the way Hibernate's pooled optimizer does, so the
+     * imported ids never collide with ids handed out by the application.
+     */
+    private static List<Long> allocateIds(Connection connection, int count) throws SQLException {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT nextval('sightings_seq') FROM generate_series(1, ?)")) {
+                statement.setInt(1, blocks);
+                try (ResultSet his = statement.executeQuery()) {
+                    while (his.next()) {
+                        long hi = his.getLong(1);
+                        // Values below one block are the sequence's start, which Hibernate treats specially
+                        if (hi < ALLOCATION_SIZE) {
+                            continue;
+                        }
+                        for (long id = hi - ALLOCATION_SIZE + 1; id <= hi && ids.size() < count; id++) {
+                            ids.add(id);
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Text strings are always quoted, so COPY keeps empty strings apart from NULLs
+    private static byte[] toCsv(List<SightingDto> rows, List<Long> ids) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows.size() * 64);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < rows.size(); i++) {
+                SightingDto row = rows.get(i);
+                writer.write(Long.toString(ids.get(i)));
+                writer.write(',');
+                writer.write(Long.toString(row.getBird().getId()));
+                writer.write(',');
+                if (row.getLocation() != null) {
+                    CsvFormat.writeQuoted(row.getLocation(), writer);
+                }
+                writer.write(',');
+                CsvFormat.writeField(row.getDateTime(), writer);
+                writer.write(',');
+                CsvFormat.writeField(row.getLatitude(), writer);
+                writer.write(',');
+                CsvFormat.writeField(row.getLongitude(), writer);
+                writer.write('\n');
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Optional<SightingImportResultDto> loadCheckpoint(Connection connection, String importId)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT records, imported, rejected, complete FROM sighting_imports WHERE import_id = ?")) {
+            statement.setString(1, importId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return Optional.empty();
+                }
+                SightingImportResultDto result = new SightingImportResultDto(importId);
+                result.setRecords(row.getLong(1));
+                result.setImported(row.getLong(2));
+                result.setRejected(row.getLong(3));
+                result.setComplete(row.getBoolean(4));
+                return Optional.of(result);
+            }
+        }
+    }
+
+    /**
+     * @return The length of the error file as of the checkpoint, or -1 if the checkpoint does
+     *         not record it (see V11__sighting_import_error_bytes.sql).
+     */
+    private static long loadErrorBytes(Connection connection, String importId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT error_bytes FROM sighting_imports WHERE import_id = ?")) {
+            statement.setString(1, importId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return 0;
+                }
+                long errorBytes = row.getLong(1);
+                return row.wasNull() ? -1 : errorBytes;
+            }
+        }
+    }
+
+    private static void saveCheckpoint(Connection connection, SightingImportResultDto result, long errorBytes)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO sighting_imports (import_id, records, imported, rejected, complete, error_bytes, updated_at)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, now())"
+                        + " ON CONFLICT (import_id) DO UPDATE SET records = EXCLUDED.records,"
+                        + " imported = EXCLUDED.imported, rejected = EXCLUDED.rejected,"
+                        + " complete = EXCLUDED.complete, error_bytes = EXCLUDED.error_bytes,"
+                        + " updated_at = EXCLUDED.updated_at")) {
+            statement.setString(1, result.getImportId());
+            statement.setLong(2, result.getRecords());
+            statement.setLong(3, result.getImported());
+            statement.setLong(4, result.getRejected());
+            statement.setBoolean(5, result.isComplete());
+            statement.setLong(6, errorBytes);
+            statement.executeUpdate();
+        }
+    }
+
+    private static boolean lock(Connection connection, String importId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(" + IMPORT_LOCK + ")")) {
+            statement.setString(1, importId);
+            try (ResultSet locked = statement.executeQuery()) {
+                return locked.next() && locked.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection, String importId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(" + IMPORT_LOCK + ")")) {
+            statement.setString(1, importId);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Every bird by id and by lower-cased name. A name shared by several birds maps to null,
+     * so it cannot be resolved.
+     */
+    private static final class Birds {
+        private final Set<Long> ids = new HashSet<>();
+        private final Map<String, Long> byName = new HashMap<>();
+
+        private Birds(List<Bird> birds) {
+            for (Bird bird : birds) {
+                ids.add(bird.getId());
+                if (bird.getName() != null) {
+                    String key = bird.getName().trim().toLowerCase(Locale.ROOT);
+                    byName.put(key, byName.containsKey(key) ? null : bird.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejected records as CSV: record number, reason and the record as it appeared in the
+     * input. Created on the first rejection; a resumed import appends to it, after cutting off
+     * whatever was written past its checkpoint.
+     */
+    private static final class ErrorFile implements AutoCloseable {
+        private final Path path;
+        private Writer writer;
+
+        /**
+         * @param committedBytes Length of the file the checkpoint counts: 0 for a new import,
+         *                       -1 to keep the whole file.
+         */
+        private ErrorFile(Path path, long committedBytes) throws IOException {
+            this.path = path;
+            if (committedBytes == 0) {
+                Files.deleteIfExists(path);
+            } else if (committedBytes > 0 && Files.exists(path)) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(committedBytes);
+                }
+            }
+        }
+
+        private void write(SightingImportReader.Record record, String error) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(path.getParent());
+                boolean exists = Files.exists(path);
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                if (!exists) {
+                    writer.write("record,error,input\n");
+                }
+            }
+            writer.write(Long.toString(record.number));
+            writer.write(',');
+            CsvFormat.writeField(error, writer);
+            writer.write(',');
+            CsvFormat.writeField(record.input, writer);
+            writer.write('\n');
+        }
+
+        private void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        // Of what has been flushed
+        private long size() throws IOException {
+            return Files.exists(path) ? Files.size(path) : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingBatchItemResultDto;
+import com.velocity.itest.avian.dto.SightingBatchResultDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.entity.SightingIdempotencyKey;
+import com.velocity.itest.avian.mapper.SightingMapper;
+import com.velocity.itest.avian.repository.SightingRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts sightings in bulk. Referenced birds are resolved through the bird cache and the
+ * inserts go out as JDBC batches (see hibernate.jdbc.batch_size).
+ */
+@Service
+public class SightingIngestService {
+
+    // Largest number of items handled in one transaction; callers split bigger uploads
+    public static final int CHUNK_SIZE = 1000;
+
+    // Persisted entities are flushed and detached at this interval to bound the persistence context
+    private static final int FLUSH_INTERVAL = 500;
+
+    private static final int MAX_LOCATION_LENGTH = 255;
+
+    @Autowired
+    private BirdService birdService;
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    @Autowired
+    private SightingMapper sightingMapper;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @return Why the database would reject a sighting with these values, or null if it would
+     *         not. Mirrors the location column and chk_sightings_coordinates, so one bad item is
+     *         rejected on its own instead of failing the statement it is batched with.
+     */
+    public static String invalidFields(String location, Double latitude, Double longitude) {
+        if (location != null && location.length() > MAX_LOCATION_LENGTH) {
+            return "Location is longer than " + MAX_LOCATION_LENGTH + " characters";
+        }
+        if ((latitude == null) != (longitude == null)) {
+            return "Latitude and longitude must be given together";
+        }
+        if (latitude != null && !(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            return "Coordinates out of range";
+        }
+        return null;
+    }
+
+    /**
+     * Inserts one sighting, recording its Idempotency-Key in the same transaction. A key that is
+     * already in use fails the commit with a DataIntegrityViolationException.
+     * @param idempotencyKey May be null.
+     */
+    @Transactional
+    public Sighting create(Sighting sighting, String idempotencyKey) {
+        Sighting saved = sightingRepository.save(sighting);
+        if (idempotencyKey != null) {
+            entityManager.persist(new SightingIdempotencyKey(idempotencyKey, saved.getId(), LocalDateTime.now()));
+            idempotencyKeys.remember(idempotencyKey, saved.getId());
+        }
+        return saved;
+    }
+
+    /**
+     * Reads back a sighting created earlier, from the primary (read-write transaction): with
+     * read replicas, a sighting committed by another request moments ago may not have reached
+     * them yet.
+     */
+    @Transactional
+    public Optional<SightingDto> findCreated(long id) {
+        return sightingRepository.findById(id).map(sightingMapper::toDto);
+    }
+
+    /**
+     * Inserts one chunk of sightings in a single transaction.
+     * @param sightings The sightings to insert; at most CHUNK_SIZE of them.
+     * @param firstIndex Position of the first sighting in the overall upload, used in the results.
+     * @param batchKey Idempotency-Key of the upload, or null. Items already created under it
+     *                 are reported with their existing ids instead of being inserted again.
+     * @return One result per sighting, in order.
+     */
+    @Transactional
+    public SightingBatchResultDto ingest(List<SightingDto> sightings, int firstIndex, String batchKey) {
+        // Birds come from the cache (misses in one IN query); the sightings only need a reference
+        Set<Long> birdIds = sightings.stream()
+                .map(dto -> dto == null ? null : dto.getBird())
+                .filter(Objects::nonNull)
+                .map(BirdDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, BirdDto> birds = birdService.findAllById(birdIds);
+
+        Map<String, Long> created = Collections.emptyMap();
+        if (batchKey != null) {
+            List<String> itemKeys = new ArrayList<>(sightings.size());
+            for (int i = 0; i < sightings.size(); i++) {
+                itemKeys.add(IdempotencyKeys.itemKey(batchKey, firstIndex + i));
+            }
+            created = idempotencyKeys.findAll(itemKeys);
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        SightingBatchResultDto result = new SightingBatchResultDto();
+        int persisted = 0;
+        for (int i = 0; i < sightings.size(); i++) {
+            SightingDto dto = sightings.get(i);
+            int index = firstIndex + i;
+            String itemKey = batchKey == null ? null : IdempotencyKeys.itemKey(batchKey, index);
+            if (itemKey != null && created.containsKey(itemKey)) {
+                result.add(SightingBatchItemResultDto.created(index, created.get(itemKey)));
+                continue;
+            }
+            if (dto == null || dto.getBird() == null || dto.getBird().getId() == null) {
+                result.add(SightingBatchItemResultDto.rejected(index, "Bird id is required"));
+                continue;
+            }
+            Long birdId = dto.getBird().getId();
+            if (!birds.containsKey(birdId)) {
+                result.add(SightingBatchItemResultDto.rejected(index, "Bird not found: " + birdId));
+                continue;
+            }
+            String invalid = invalidFields(dto.getLocation(), dto.getLatitude(), dto.getLongitude());
+            if (invalid != null) {
+                result.add(SightingBatchItemResultDto.rejected(index, invalid));
+                continue;
+            }
+            Bird bird = entityManager.getReference(Bird.class, birdId);
+
+            Sighting sighting = new Sighting(bird, dto.getLocation(), dto.getDateTime());
+            sighting.setLatitude(dto.getLatitude());
+            sighting.setLongitude(dto.getLongitude());
+            entityManager.persist(sighting);
+            if (itemKey != null) {
+                entityManager.persist(new SightingIdempotencyKey(itemKey, sighting.getId(), now));
+                idempotencyKeys.remember(itemKey, sighting.getId());
+            }
+            // The pooled sequence assigns the id on persist, before the batched INSERT runs
+            result.add(SightingBatchItemResultDto.created(index, sighting.getId()));
+
+            if (++persisted % FLUSH_INTERVAL == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+package com.velocity.itest.avian.service;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly partitions of the sightings table (see V6__partition_sightings_by_month.sql).
+ * Partitions are created a few months ahead, so inserts never fall into the default partition.
+ * With a retention period set, partitions older than it are detached, written to a gzipped
+ * CSV file under the archive directory and then dropped. Dropping a partition changes the
+ * sightings ETag and tells live feed clients to resync.
+ */
+@Service
+@ConditionalOnProperty(name = "avian.sightings.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class SightingPartitionService {
+
+    // Names of monthly partitions; anything else is never archived or dropped
+    private static final Pattern PARTITION_NAME = Pattern.compile("sightings_y\\d{4}m\\d{2}");
+
+    // Session-level advisory lock so only one instance archives at a time
+    private static final String ARCHIVE_LOCK = "hashtext('sighting_partition_archive')";
+
+    private static final int ARCHIVE_BUFFER_SIZE = 1 << 16;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private SightingEventBroadcaster sightingEventBroadcaster;
+
+    @Value("${avian.sightings.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // Whole months of sightings to keep before the current one; 0 keeps everything
+    @Value("${avian.sightings.retention.months:0}")
+    private int retentionMonths;
+
+    @Value("${avian.sightings.retention.archive-dir:archive}")
+    private Path archiveDir;
+
+    @Scheduled(fixedDelayString = "${avian.sightings.partitions.maintenance-interval:PT1H}")
+    public void maintain() throws SQLException, IOException {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT ensure_sighting_partitions(?, ?)")) {
+                statement.setObject(1, thisMonth);
+                statement.setObject(2, thisMonth.plusMonths(monthsAhead));
+                statement.execute();
+            }
+            if (retentionMonths > 0) {
+                archiveExpired(connection, thisMonth.minusMonths(retentionMonths));
+            }
+        }
+    }
+
+    /**
+     * Detaches the partitions that ended before the cutoff, then archives and drops every
+     * detached partition. A partition is only dropped once its archive file is complete and on
+     * disk, so an interrupted run is finished by the next one.
+     */
+    private void archiveExpired(Connection connection, LocalDate cutoff) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet locked = statement.executeQuery("SELECT pg_try_advisory_lock(" + ARCHIVE_LOCK + ")")) {
+            if (!locked.next() || !locked.getBoolean(1)) {
+                return;
+            }
+        }
+        try {
+            List<String> detached = new ArrayList<>();
+            boolean dropped = false;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT detach_expired_sighting_partitions(?)")) {
+                statement.setObject(1, cutoff);
+                try (ResultSet names = statement.executeQuery()) {
+                    while (names.next()) {
+                        detached.add(names.getString(1));
+                    }
+                }
+            }
+            if (!detached.isEmpty()) {
+                // Detaching runs no statement trigger; other instances learn of it from this
+                try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, 'sightings')")) {
+                    statement.setString(1, TableVersions.CHANGE_CHANNEL);
+                    statement.execute();
+                }
+            }
+            for (String table : detached) {
+                if (!PARTITION_NAME.matcher(table).matches()) {
+                    continue;
+                }
+                archive(connection, table);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE " + table);
+                }
+                dropped = true;
+            }
+            // Like a bulk import, the drop bypasses the entity listeners: new ETag, clients re-query
+            if (dropped) {
+                tableVersions.sightingsChanged();
+                sightingEventBroadcaster.resync();
+                sightingReadModel.reload();
+            }
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_unlock(" + ARCHIVE_LOCK + ")");
+            }
+        }
+    }
+
+    /**
+     * Streams one table to archiveDir/table.csv.gz with COPY. The file is written under a
+     * temporary name, synced, and then renamed, so a complete-looking archive is always complete.
+     */
+    private void archive(Connection connection, String table) throws SQLException, IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveDir.resolve(table + ".csv.gz");
+        Path partial = archiveDir.resolve(table + ".csv.gz.part");
+
+        CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), ARCHIVE_BUFFER_SIZE)) {
+            copyManager.copyOut("COPY " + table + " TO STDOUT (FORMAT csv, HEADER)", out);
+            out.finish();
+            channel.force(true);
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
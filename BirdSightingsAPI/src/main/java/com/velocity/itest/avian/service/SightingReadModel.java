@@ -0,0 +1,928 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.BirdSightingCountDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.dto.SightingCountBucketDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.repository.SightingFilter;
+import com.velocity.itest.avian.repository.SpatialFunctions;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Optional in-memory copy of the sightings table for read-heavy deployments, enabled with
+ * avian.sightings.read-model.enabled. Sightings are held column by column in primitive arrays
+ * (ids, bird ordinals, epoch microseconds, dictionary-encoded locations, coordinates), with a
+ * posting list of rows per bird and per location. Once loaded it answers /sightings/query and
+ * the /stats aggregations without a database round-trip; until then callers use the database.
+ *
+ * The copy is loaded in the background at startup and kept current from the entity listener
+ * (SightingReadModelListener). Writes that bypass JPA, such as bulk imports and partition
+ * archival, call reload(). Deleted rows are only marked until the next reload, and a query
+ * holds the read lock for its whole scan, so writes wait for running queries.
+ *
+ * The copy only sees writes made through this instance. Sightings written by another
+ * instance of the API, by BirdSightingsReactiveAPI or directly in the database do not show up
+ * until the next reload, so enable it only where this instance is the sole writer.
+ */
+@Service
+public class SightingReadModel {
+
+    // Stored for sightings without a date; sorts after every date, like NULL in PostgreSQL
+    private static final long NO_TIME = Long.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long MICROS_PER_DAY = 86_400L * MICROS_PER_SECOND;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Sightings built per step of a query stream
+    private static final int QUERY_CHUNK = 1000;
+
+    // Rows the JDBC driver fetches per round-trip while loading
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BirdService birdService;
+
+    @Value("${avian.sightings.read-model.enabled:false}")
+    private boolean enabled;
+
+    // The rollups keep counting archived sightings, which are no longer held here, so with a
+    // retention period the /stats aggregations stay on the rollups
+    @Value("${avian.sightings.retention.months:0}")
+    private int retentionMonths;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Null until loaded, and again while a reload runs
+    private Columns columns;
+
+    // Changes committed while a load runs, replayed onto the loaded copy; null when not loading
+    private List<Change> pending;
+
+    // Bumped by every reload, so a load overtaken by a newer one is discarded
+    private long generation;
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sighting-read-model-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the copy and loads it again in the background. Queries go to the database until
+     * the load completes.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        long loading;
+        lock.writeLock().lock();
+        try {
+            columns = null;
+            pending = new ArrayList<>();
+            loading = ++generation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loader.execute(() -> load(loading));
+    }
+
+    /**
+     * Records a committed insert or update; an existing row with the same id is replaced.
+     */
+    public void upsert(long id, Long birdId, String location, LocalDateTime dateTime, Double latitude, Double longitude) {
+        apply(new Change(id, false, birdId, location, dateTime, latitude, longitude));
+    }
+
+    /**
+     * Records a committed delete.
+     */
+    public void remove(long id) {
+        apply(new Change(id, true, null, null, null, null, null));
+    }
+
+    private void apply(Change change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else if (columns != null) {
+                columns.apply(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load(long loading) {
+        Columns loaded = new Columns();
+        // A single statement sees one snapshot; changes committed after it are in pending
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                try (ResultSet rows = statement.executeQuery(
+                        "SELECT id, bird_id, location, date_time, latitude, longitude FROM sightings")) {
+                    while (rows.next()) {
+                        long birdId = rows.getLong(2);
+                        boolean hasBird = !rows.wasNull();
+                        LocalDateTime dateTime = rows.getObject(4, LocalDateTime.class);
+                        double latitude = rows.getDouble(5);
+                        boolean hasLatitude = !rows.wasNull();
+                        double longitude = rows.getDouble(6);
+                        boolean hasLongitude = !rows.wasNull();
+                        loaded.append(rows.getLong(1),
+                                hasBird ? loaded.birdOrdinal(birdId) : NONE,
+                                rows.getString(3),
+                                dateTime == null ? NO_TIME : toEpochMicros(dateTime),
+                                hasLatitude ? latitude : Double.NaN,
+                                hasLongitude ? longitude : Double.NaN);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Left unloaded, so queries keep going to the database; the next reload tries again
+            lock.writeLock().lock();
+            try {
+                if (generation == loading) {
+                    pending = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (generation != loading) {
+                return;
+            }
+            // Changes that committed before the snapshot are already in it; replaying is idempotent
+            for (Change change : pending) {
+                loaded.apply(change);
+            }
+            pending = null;
+            columns = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Same result as SightingRepository.findDtos for the filter.
+     * @return Empty if the copy is not loaded, or if the query sorts by location, which is left
+     *         to the database because Java string order does not reproduce its collation.
+     */
+    public Optional<List<SightingDto>> query(SightingFilter filter) {
+        return stream(filter).map(sightings -> sightings.collect(Collectors.toList()));
+    }
+
+    /**
+     * Same result as query, built QUERY_CHUNK sightings at a time as the stream is consumed, so
+     * a large result is never held as a whole. Only the matching row numbers are selected up
+     * front. Rows do not change once appended, so the stream shows the sightings as they were
+     * when it was created.
+     */
+    public Optional<Stream<SightingDto>> stream(SightingFilter filter) {
+        if ("location".equals(filter.getSort())) {
+            return Optional.empty();
+        }
+        Columns c;
+        int[] rows;
+        lock.readLock().lock();
+        try {
+            c = columns;
+            if (c == null) {
+                return Optional.empty();
+            }
+            int[] matches = c.match(filter);
+            int count = matches[matches.length - 1];
+            boolean byTime = "dateTime".equals(filter.getSort());
+            boolean descending = filter.getDirection() != null && filter.getDirection().isDescending();
+            int limit = filter.getLimit() != null ? Math.min(filter.getLimit(), count) : count;
+            rows = c.top(matches, count, limit, byTime, descending);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Iterator<List<SightingDto>> chunks = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < rows.length;
+            }
+
+            @Override
+            public List<SightingDto> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = Math.min(next + QUERY_CHUNK, rows.length);
+                List<SightingDto> chunk = toDtos(c, rows, next, end);
+                next = end;
+                return chunk;
+            }
+        };
+        return Optional.of(StreamSupport.stream(Spliterators.spliterator(chunks, (rows.length + QUERY_CHUNK - 1) / QUERY_CHUNK,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).flatMap(List::stream));
+    }
+
+    private List<SightingDto> toDtos(Columns c, int[] rows, int from, int to) {
+        int count = to - from;
+        long[] ids = new long[count];
+        int[] birds = new int[count];
+        int[] locations = new int[count];
+        long[] times = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        long[] birdIds;
+        String[] locationNames;
+
+        // Copy the selected cells out, so DTOs are built after the lock is released
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                int row = rows[from + i];
+                ids[i] = c.ids[row];
+                birds[i] = c.birds[row];
+                locations[i] = c.locations[row];
+                times[i] = c.times[row];
+                latitudes[i] = c.latitudes[row];
+                longitudes[i] = c.longitudes[row];
+            }
+            birdIds = Arrays.copyOf(c.birdIds, c.birdCount);
+            locationNames = Arrays.copyOf(c.locationNames, c.locationCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<Long> referenced = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (birds[i] != NONE) {
+                referenced.add(birdIds[birds[i]]);
+            }
+        }
+        Map<Long, BirdDto> birdDtos = birdService.findAllById(referenced);
+
+        List<SightingDto> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SightingDto dto = new SightingDto();
+            dto.setId(ids[i]);
+            dto.setLocation(locations[i] == NONE ? null : locationNames[locations[i]]);
+            dto.setDateTime(times[i] == NO_TIME ? null : fromEpochMicros(times[i]));
+            dto.setLatitude(Double.isNaN(latitudes[i]) ? null : latitudes[i]);
+            dto.setLongitude(Double.isNaN(longitudes[i]) ? null : longitudes[i]);
+            if (birds[i] != NONE) {
+                long birdId = birdIds[birds[i]];
+                dto.setBird(birdDtos.getOrDefault(birdId, new BirdDto(birdId, null, null, 0.0, 0.0)));
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    // The /stats aggregations below count like the rollup tables: only sightings with a bird and
+    // a date, with a missing location counted under "". Each is empty if the copy is not loaded
+    // or a retention period is set.
+
+    private Columns statsColumns() {
+        return retentionMonths > 0 ? null : columns;
+    }
+
+    public Optional<List<BirdSightingCountDto>> countsPerBird() {
+        long[] counts;
+        long[] birdIds;
+        lock.readLock().lock();
+        try {
+            Columns c = statsColumns();
+            if (c == null) {
+                return Optional.empty();
+            }
+            counts = new long[c.birdCount];
+            for (int row = 0; row < c.size; row++) {
+                if (c.counted(row)) {
+                    counts[c.birds[row]]++;
+                }
+            }
+            birdIds = Arrays.copyOf(c.birdIds, c.birdCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<Long> referenced = new HashSet<>();
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0) {
+                referenced.add(birdIds[ordinal]);
+            }
+        }
+        Map<Long, BirdDto> birds = birdService.findAllById(referenced);
+        List<BirdSightingCountDto> result = new ArrayList<>(birds.size());
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            BirdDto bird = birds.get(birdIds[ordinal]);
+            if (counts[ordinal] > 0 && bird != null) {
+                result.add(new BirdSightingCountDto(bird.getId(), bird.getName(), counts[ordinal]));
+            }
+        }
+        result.sort(Comparator.comparingLong(BirdSightingCountDto::getCount).reversed()
+                .thenComparing(BirdSightingCountDto::getBirdId));
+        return Optional.of(result);
+    }
+
+    public Optional<Long> countForBird(Long birdId) {
+        lock.readLock().lock();
+        try {
+            Columns c = statsColumns();
+            if (c == null) {
+                return Optional.empty();
+            }
+            int ordinal = c.birdOrdinals.get(birdId);
+            if (ordinal == NONE) {
+                return Optional.of(0L);
+            }
+            IntList rows = c.rowsByBird[ordinal];
+            long count = 0;
+            for (int i = 0; i < rows.size; i++) {
+                if (c.counted(rows.values[i])) {
+                    count++;
+                }
+            }
+            return Optional.of(count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<List<LocationSightingCountDto>> topLocations(int limit) {
+        // A missing location is counted under "", so it gets its own slot after the dictionary
+        long[] counts;
+        String[] names;
+        lock.readLock().lock();
+        try {
+            Columns c = statsColumns();
+            if (c == null) {
+                return Optional.empty();
+            }
+            counts = new long[c.locationCount + 1];
+            for (int row = 0; row < c.size; row++) {
+                if (c.counted(row)) {
+                    counts[c.locations[row] == NONE ? c.locationCount : c.locations[row]]++;
+                }
+            }
+            names = Arrays.copyOf(c.locationNames, c.locationCount + 1);
+            names[c.locationCount] = "";
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Two dictionary entries can both read "" (a missing and an empty location)
+        Map<String, Long> merged = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                merged.merge(names[i], counts[i], Long::sum);
+            }
+        }
+        List<LocationSightingCountDto> result = new ArrayList<>(merged.size());
+        merged.forEach((location, count) -> result.add(new LocationSightingCountDto(location, count)));
+        result.sort(Comparator.comparingLong(LocationSightingCountDto::getCount).reversed()
+                .thenComparing(LocationSightingCountDto::getLocation));
+        return Optional.of(result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result);
+    }
+
+    /**
+     * Sightings per day in date order, with the same filters as SightingDailyCountRepository.countPerDay.
+     */
+    public Optional<List<SightingCountBucketDto>> countPerDay(Long birdId, String location, LocalDate from, LocalDate to) {
+        TreeMap<Long, Long> days = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            Columns c = statsColumns();
+            if (c == null) {
+                return Optional.empty();
+            }
+            int birdOrdinal = birdId == null ? NONE : c.birdOrdinals.get(birdId);
+            if (birdId != null && birdOrdinal == NONE) {
+                return Optional.of(List.of());
+            }
+            // "" matches missing locations as well as empty ones
+            int locationId = location == null || location.isEmpty() ? NONE : c.locationIds.getOrDefault(location, NONE);
+            if (location != null && !location.isEmpty() && locationId == NONE) {
+                return Optional.of(List.of());
+            }
+            long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+            long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+
+            IntList candidates = birdId != null ? c.rowsByBird[birdOrdinal]
+                    : locationId != NONE ? c.rowsByLocation[locationId] : null;
+            int size = candidates != null ? candidates.size : c.size;
+            for (int i = 0; i < size; i++) {
+                int row = candidates != null ? candidates.values[i] : i;
+                if (!c.counted(row)
+                        || (birdId != null && c.birds[row] != birdOrdinal)
+                        || (location != null && !c.locationName(row).equals(location))) {
+                    continue;
+                }
+                long day = Math.floorDiv(c.times[row], MICROS_PER_DAY);
+                if (day >= fromDay && day <= toDay) {
+                    days.merge(day, 1L, Long::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<SightingCountBucketDto> result = new ArrayList<>(days.size());
+        days.forEach((day, count) -> result.add(new SightingCountBucketDto(LocalDate.ofEpochDay(day), count)));
+        return Optional.of(result);
+    }
+
+    // PostgreSQL timestamps have microsecond precision and round finer values
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + (dateTime.getNano() + 500) / 1000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+
+    private static final class Change {
+        private final long id;
+        private final boolean removed;
+        private final Long birdId;
+        private final String location;
+        private final LocalDateTime dateTime;
+        private final Double latitude;
+        private final Double longitude;
+
+        private Change(long id, boolean removed, Long birdId, String location, LocalDateTime dateTime,
+                       Double latitude, Double longitude) {
+            this.id = id;
+            this.removed = removed;
+            this.birdId = birdId;
+            this.location = location;
+            this.dateTime = dateTime;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /**
+     * The sightings, one array per column, indexed by row. Rows are only appended; a deleted or
+     * replaced row is marked in deleted and dropped from rowById.
+     */
+    private static final class Columns {
+        private int size;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] birds = new int[INITIAL_CAPACITY];
+        private int[] locations = new int[INITIAL_CAPACITY];
+        private long[] times = new long[INITIAL_CAPACITY];
+        private double[] latitudes = new double[INITIAL_CAPACITY];
+        private double[] longitudes = new double[INITIAL_CAPACITY];
+        private final BitSet deleted = new BitSet();
+        private final LongIntMap rowById = new LongIntMap();
+
+        // Bird ids by dense ordinal, and the rows of each bird in ascending row order
+        private final LongIntMap birdOrdinals = new LongIntMap();
+        private long[] birdIds = new long[16];
+        private IntList[] rowsByBird = new IntList[16];
+        private int birdCount;
+
+        // Location dictionary, and the rows of each location in ascending row order
+        private final Map<String, Integer> locationIds = new HashMap<>();
+        private String[] locationNames = new String[16];
+        private IntList[] rowsByLocation = new IntList[16];
+        private int locationCount;
+
+        private void apply(Change change) {
+            int existing = rowById.get(change.id);
+            if (existing != NONE) {
+                deleted.set(existing);
+                rowById.remove(change.id);
+            }
+            if (!change.removed) {
+                append(change.id,
+                        change.birdId == null ? NONE : birdOrdinal(change.birdId),
+                        change.location,
+                        change.dateTime == null ? NO_TIME : toEpochMicros(change.dateTime),
+                        change.latitude == null ? Double.NaN : change.latitude,
+                        change.longitude == null ? Double.NaN : change.longitude);
+            }
+        }
+
+        private void append(long id, int bird, String location, long time, double latitude, double longitude) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                birds = Arrays.copyOf(birds, capacity);
+                locations = Arrays.copyOf(locations, capacity);
+                times = Arrays.copyOf(times, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            int row = size++;
+            int locationId = location == null ? NONE : locationId(location);
+            ids[row] = id;
+            birds[row] = bird;
+            locations[row] = locationId;
+            times[row] = time;
+            latitudes[row] = latitude;
+            longitudes[row] = longitude;
+            rowById.put(id, row);
+            if (bird != NONE) {
+                rowsByBird[bird].add(row);
+            }
+            if (locationId != NONE) {
+                rowsByLocation[locationId].add(row);
+            }
+        }
+
+        private int birdOrdinal(long birdId) {
+            int ordinal = birdOrdinals.get(birdId);
+            if (ordinal != NONE) {
+                return ordinal;
+            }
+            if (birdCount == birdIds.length) {
+                birdIds = Arrays.copyOf(birdIds, birdCount * 2);
+                rowsByBird = Arrays.copyOf(rowsByBird, birdCount * 2);
+            }
+            ordinal = birdCount++;
+            birdIds[ordinal] = birdId;
+            rowsByBird[ordinal] = new IntList();
+            birdOrdinals.put(birdId, ordinal);
+            return ordinal;
+        }
+
+        private int locationId(String location) {
+            Integer id = locationIds.get(location);
+            if (id != null) {
+                return id;
+            }
+            if (locationCount == locationNames.length) {
+                locationNames = Arrays.copyOf(locationNames, locationCount * 2);
+                rowsByLocation = Arrays.copyOf(rowsByLocation, locationCount * 2);
+            }
+            int created = locationCount++;
+            locationNames[created] = location;
+            rowsByLocation[created] = new IntList();
+            locationIds.put(location, created);
+            return created;
+        }
+
+        private String locationName(int row) {
+            return locations[row] == NONE ? "" : locationNames[locations[row]];
+        }
+
+        // Whether the row counts towards the /stats aggregations
+        private boolean counted(int row) {
+            return !deleted.get(row) && birds[row] != NONE && times[row] != NO_TIME;
+        }
+
+        /**
+         * @return The matching rows, with their count in the last element.
+         */
+        private int[] match(SightingFilter filter) {
+            IntList candidates = null;
+            if (filter.getBirdId() != null) {
+                int ordinal = birdOrdinals.get(filter.getBirdId());
+                if (ordinal == NONE) {
+                    return new int[1];
+                }
+                candidates = rowsByBird[ordinal];
+            }
+            if (filter.getLocation() != null) {
+                Integer locationId = locationIds.get(filter.getLocation());
+                if (locationId == null) {
+                    return new int[1];
+                }
+                // Scan the shorter posting list; the other filter is checked per row
+                if (candidates == null || rowsByLocation[locationId].size < candidates.size) {
+                    candidates = rowsByLocation[locationId];
+                }
+            }
+
+            Predicate predicate = new Predicate(filter, this);
+            int size = candidates != null ? candidates.size : this.size;
+            int[] matches = new int[Math.min(size, 1024) + 1];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int row = candidates != null ? candidates.values[i] : i;
+                if (!deleted.get(row) && predicate.test(row)) {
+                    if (count == matches.length - 1) {
+                        matches = Arrays.copyOf(matches, Math.min(size, matches.length * 2) + 1);
+                    }
+                    matches[count++] = row;
+                }
+            }
+            matches[matches.length - 1] = count;
+            return matches;
+        }
+
+        /**
+         * Selects the first limit of the count rows in the query order with a bounded heap, so
+         * a small limit over many matches costs O(n log limit), then sorts them in place.
+         */
+        private int[] top(int[] rows, int count, int limit, boolean byTime, boolean descending) {
+            if (limit == 0) {
+                return new int[0];
+            }
+            // Max-heap under the query order: the root is the last of the rows kept so far
+            int[] heap = Arrays.copyOf(rows, limit);
+            for (int i = limit / 2 - 1; i >= 0; i--) {
+                siftDown(heap, i, limit, byTime, descending);
+            }
+            for (int i = limit; i < count; i++) {
+                if (compare(rows[i], heap[0], byTime, descending) < 0) {
+                    heap[0] = rows[i];
+                    siftDown(heap, 0, limit, byTime, descending);
+                }
+            }
+            for (int end = limit - 1; end > 0; end--) {
+                int last = heap[0];
+                heap[0] = heap[end];
+                heap[end] = last;
+                siftDown(heap, 0, end, byTime, descending);
+            }
+            return heap;
+        }
+
+        private void siftDown(int[] heap, int index, int length, boolean byTime, boolean descending) {
+            int row = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= length) {
+                    break;
+                }
+                if (child + 1 < length && compare(heap[child + 1], heap[child], byTime, descending) > 0) {
+                    child++;
+                }
+                if (compare(heap[child], row, byTime, descending) <= 0) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = row;
+        }
+
+        // The order of SightingFilter.toSort(): the sort column, then id, in the same direction
+        private int compare(int a, int b, boolean byTime, boolean descending) {
+            int order = byTime ? Long.compare(times[a], times[b]) : 0;
+            if (order == 0) {
+                order = Long.compare(ids[a], ids[b]);
+            }
+            return descending ? -order : order;
+        }
+    }
+
+    /**
+     * The filters of SightingSpecifications.matching, evaluated on one row. Bird and location
+     * are checked here too, since only one posting list is scanned.
+     */
+    private static final class Predicate {
+        private final Columns c;
+        private final int bird;
+        private final int location;
+        private final long start;
+        private final long end;
+        private final long afterId;
+        private final boolean box;
+        private final boolean radius;
+        private final SightingFilter filter;
+
+        private Predicate(SightingFilter filter, Columns c) {
+            this.c = c;
+            this.filter = filter;
+            this.bird = filter.getBirdId() == null ? NONE : c.birdOrdinals.get(filter.getBirdId());
+            this.location = filter.getLocation() == null ? NONE : c.locationIds.get(filter.getLocation());
+            this.start = filter.getStartDate() == null ? Long.MIN_VALUE : toEpochMicros(filter.getStartDate());
+            this.end = filter.getEndDate() == null ? Long.MAX_VALUE : toEpochMicros(filter.getEndDate());
+            this.afterId = filter.getAfterId() == null ? Long.MIN_VALUE : filter.getAfterId();
+            this.box = filter.hasBox();
+            this.radius = filter.hasRadius();
+        }
+
+        private boolean test(int row) {
+            if (bird != NONE && c.birds[row] != bird) {
+                return false;
+            }
+            if (location != NONE && c.locations[row] != location) {
+                return false;
+            }
+            long time = c.times[row];
+            // A missing date matches no date filter, as in SQL
+            if ((filter.getStartDate() != null || filter.getEndDate() != null)
+                    && (time == NO_TIME || time < start || time > end)) {
+                return false;
+            }
+            if (c.ids[row] <= afterId) {
+                return false;
+            }
+            if (!box && !radius) {
+                return true;
+            }
+            double latitude = c.latitudes[row];
+            double longitude = c.longitudes[row];
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                return false;
+            }
+            return (!box || inBox(latitude, longitude)) && (!radius || inRadius(latitude, longitude));
+        }
+
+        // Same test as SightingSpecifications.withinBox, including boxes across the antimeridian
+        private boolean inBox(double latitude, double longitude) {
+            if (latitude < filter.getMinLatitude() || latitude > filter.getMaxLatitude()) {
+                return false;
+            }
+            double min = filter.getMinLongitude();
+            double max = filter.getMaxLongitude();
+            return min <= max
+                    ? longitude >= min && longitude <= max
+                    : longitude >= min || longitude <= max;
+        }
+
+        // Haversine distance, as computed by the sighting_distance_km function (SpatialFunctions)
+        private boolean inRadius(double latitude, double longitude) {
+            double centerLatitude = filter.getLatitude();
+            double centerLongitude = filter.getLongitude();
+            double a = Math.pow(Math.sin(Math.toRadians(latitude - centerLatitude) / 2), 2)
+                    + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(centerLatitude))
+                    * Math.pow(Math.sin(Math.toRadians(longitude - centerLongitude) / 2), 2);
+            double distance = 2 * SpatialFunctions.EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+            return distance <= filter.getRadiusKm();
+        }
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Open-addressing hash map from long keys to non-negative int values, without boxing.
+     * get returns NONE for absent keys.
+     */
+    private static final class LongIntMap {
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size;
+        // Entries removed but still occupying a slot, so probe chains stay intact
+        private int removed;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            return keys;
+        }
+
+        private int get(long key) {
+            int slot = find(key);
+            return slot < 0 ? NONE : values[slot];
+        }
+
+        private void put(long key, int value) {
+            if ((size + removed + 1) * 4 > keys.length * 3) {
+                rehash(size * 4 > keys.length ? keys.length * 2 : keys.length);
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE) {
+                size++;
+            } else if (values[slot] == NONE) {
+                size++;
+                removed--;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void remove(long key) {
+            int slot = find(key);
+            if (slot >= 0) {
+                values[slot] = NONE;
+                size--;
+                removed++;
+            }
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != FREE) {
+                if (keys[slot] == key) {
+                    return values[slot] == NONE ? -1 : slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            removed = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE && oldValues[i] != NONE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.repository.SightingDailyCountRepository;
+
+/**
+ * Keeps the sighting rollup tables current. A database trigger records a delta for every
+ * sighting insert, update and delete, whichever code path made it; this folds the pending
+ * deltas into the rollups every few seconds, so the stats lag writes by at most one interval.
+ */
+@Service
+@ConditionalOnProperty(name = "avian.stats.rollups.enabled", havingValue = "true", matchIfMissing = true)
+public class SightingRollupService {
+
+    @Autowired
+    private SightingDailyCountRepository sightingDailyCountRepository;
+
+    @Scheduled(fixedDelayString = "${avian.stats.rollups.fold-interval:PT5S}")
+    @Transactional
+    public void fold() {
+        sightingDailyCountRepository.foldRollups();
+    }
+}
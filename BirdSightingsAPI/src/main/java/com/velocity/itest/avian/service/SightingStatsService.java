@@ -0,0 +1,95 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.dto.BirdSightingCountDto;
+import com.velocity.itest.avian.dto.LocationSightingCountDto;
+import com.velocity.itest.avian.dto.SightingCountBucketDto;
+import com.velocity.itest.avian.entity.BirdSightingCount;
+import com.velocity.itest.avian.repository.BirdSightingCountRepository;
+import com.velocity.itest.avian.repository.LocationSightingCountRepository;
+import com.velocity.itest.avian.repository.SightingDailyCountRepository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sighting statistics read from the rollup tables (see SightingRollupService). Every answer is
+ * an index lookup on pre-aggregated rows; the sightings table itself is never scanned.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SightingStatsService {
+
+    /**
+     * Width of the buckets returned by timeline. Weeks start on Monday.
+     */
+    public enum Bucket {
+        DAY(UnaryOperator.identity()),
+        WEEK(date -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))),
+        MONTH(date -> date.withDayOfMonth(1));
+
+        private final UnaryOperator<LocalDate> start;
+
+        Bucket(UnaryOperator<LocalDate> start) {
+            this.start = start;
+        }
+    }
+
+    @Autowired
+    private BirdSightingCountRepository birdSightingCountRepository;
+
+    @Autowired
+    private LocationSightingCountRepository locationSightingCountRepository;
+
+    @Autowired
+    private SightingDailyCountRepository sightingDailyCountRepository;
+
+    public List<BirdSightingCountDto> countsPerBird() {
+        return birdSightingCountRepository.findAllDtos();
+    }
+
+    public long countForBird(Long birdId) {
+        return birdSightingCountRepository.findById(birdId)
+                .map(BirdSightingCount::getSightingCount)
+                .orElse(0L);
+    }
+
+    public List<LocationSightingCountDto> topLocations(int limit) {
+        return locationSightingCountRepository.findTop(PageRequest.of(0, limit));
+    }
+
+    /**
+     * Sighting counts per time bucket, optionally for one bird and/or location and limited to
+     * a date range. Buckets without sightings are omitted.
+     */
+    public List<SightingCountBucketDto> timeline(Bucket bucket, Long birdId, String location, LocalDate from, LocalDate to) {
+        return toBuckets(bucket, sightingDailyCountRepository.countPerDay(birdId, location, from, to));
+    }
+
+    /**
+     * Merges per-day counts, in date order, into buckets of the given width.
+     */
+    public static List<SightingCountBucketDto> toBuckets(Bucket bucket, List<SightingCountBucketDto> days) {
+        if (bucket == Bucket.DAY) {
+            return days;
+        }
+        // Days arrive in order, so merged buckets stay in order too
+        Map<LocalDate, Long> buckets = new LinkedHashMap<>();
+        for (SightingCountBucketDto day : days) {
+            buckets.merge(bucket.start.apply(day.getStart()), day.getCount(), Long::sum);
+        }
+        List<SightingCountBucketDto> result = new ArrayList<>(buckets.size());
+        buckets.forEach((start, count) -> result.add(new SightingCountBucketDto(start, count)));
+        return result;
+    }
+}
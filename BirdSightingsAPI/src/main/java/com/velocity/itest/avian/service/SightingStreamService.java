@@ -0,0 +1,181 @@
+package com.velocity.itest.avian.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes sightings to the response as newline-delimited JSON or CSV while they are read from
+ * the database, so heap use does not grow with the size of the result.
+ */
+@Service
+public class SightingStreamService {
+
+    // Rows between flushes of the response
+    private static final int FLUSH_INTERVAL = 1000;
+
+    // Bytes buffered ahead of the response (and of the compressor, for gzipped exports)
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CSV_HEADER =
+            "id,location,dateTime,latitude,longitude,birdId,birdName,birdColor,birdWeight,birdHeight\r\n";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    /**
+     * Wraps a streaming repository query in a response body. The query is opened on the
+     * async response thread inside its own read-only transaction.
+     * @param queryName Tags the rows-returned metric recorded once the stream is drained.
+     */
+    public StreamingResponseBody toNdjson(String queryName, Supplier<Stream<SightingDto>> query) {
+        return out -> inReadOnlyTransaction(() -> {
+            try (Stream<SightingDto> sightings = query.get()) {
+                queryMetrics.recordRows(queryName, write(sightings, out));
+            }
+        });
+    }
+
+    /**
+     * Writes sightings that do not come from the database (e.g. the read model's stream),
+     * without opening a transaction.
+     */
+    public StreamingResponseBody toNdjson(String queryName, Stream<SightingDto> sightings) {
+        return out -> {
+            try (sightings) {
+                queryMetrics.recordRows(queryName, write(sightings, out));
+            }
+        };
+    }
+
+    /**
+     * Wraps a streaming repository query in a response body that writes RFC 4180 CSV with a
+     * header row. Rows are flushed every FLUSH_INTERVAL, so clients see progress on long exports.
+     * @param queryName Tags the rows-returned metric recorded once the stream is drained.
+     * @param gzip Compresses the body; the caller sets the matching content type.
+     */
+    public StreamingResponseBody toCsv(String queryName, Supplier<Stream<SightingDto>> query, boolean gzip) {
+        return out -> inReadOnlyTransaction(() -> {
+            try (Stream<SightingDto> sightings = query.get()) {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, CSV_BUFFER_SIZE, true);
+                    queryMetrics.recordRows(queryName, writeCsv(sightings, compressed));
+                    compressed.finish();
+                } else {
+                    queryMetrics.recordRows(queryName, writeCsv(sightings, out));
+                }
+            }
+        });
+    }
+
+    private void inReadOnlyTransaction(IoAction action) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private long write(Stream<SightingDto> sightings, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long count = 0;
+        try (SequenceWriter sequence = objectMapper.writerFor(SightingDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(generator)) {
+            // Projected DTOs are not managed, so nothing accumulates in the persistence context
+            for (SightingDto sighting : (Iterable<SightingDto>) sightings::iterator) {
+                sequence.write(sighting);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+        return count;
+    }
+
+    private long writeCsv(Stream<SightingDto> sightings, OutputStream out) throws IOException {
+        // Not closed: the container owns the response stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+
+        long count = 0;
+        for (SightingDto sighting : (Iterable<SightingDto>) sightings::iterator) {
+            writeCsvRow(sighting, writer);
+            if (++count % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvRow(SightingDto sighting, Writer writer) throws IOException {
+        writer.write(String.valueOf(sighting.getId()));
+        writer.write(',');
+        CsvFormat.writeField(sighting.getLocation(), writer);
+        writer.write(',');
+        CsvFormat.writeField(sighting.getDateTime(), writer);
+        writer.write(',');
+        CsvFormat.writeField(sighting.getLatitude(), writer);
+        writer.write(',');
+        CsvFormat.writeField(sighting.getLongitude(), writer);
+        BirdDto bird = sighting.getBird();
+        if (bird != null) {
+            writer.write(',');
+            CsvFormat.writeField(bird.getId(), writer);
+            writer.write(',');
+            CsvFormat.writeField(bird.getName(), writer);
+            writer.write(',');
+            CsvFormat.writeField(bird.getColor(), writer);
+            writer.write(',');
+            writer.write(String.valueOf(bird.getWeight()));
+            writer.write(',');
+            writer.write(String.valueOf(bird.getHeight()));
+        } else {
+            writer.write(",,,,,");
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,306 @@
+package com.velocity.itest.avian.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local log of sightings accepted by the write-behind buffer but not yet committed
+ * to the database. Records are appended and synced to disk in groups before the sightings are
+ * acknowledged. The log is split into segments named by the sequence number of their first
+ * record; a segment is deleted once every record in it has been committed.
+ *
+ * Each record is its payload length, a CRC-32 of the payload, and the payload. A record cut
+ * short by a crash is detected on replay and ignored; it was never acknowledged. An append
+ * that fails is cut off again before the next one, so records acknowledged later never sit
+ * behind a damaged one.
+ */
+class SightingWriteAheadLog implements AutoCloseable {
+
+    /**
+     * One logged sighting. The id is final: it was allocated from sightings_seq on acceptance.
+     */
+    static final class Entry {
+        long sequence;
+        final long id;
+        final long birdId;
+        final String location;
+        final LocalDateTime dateTime;
+        final Double latitude;
+        final Double longitude;
+        // Idempotency-Key of the request, or null
+        final String idempotencyKey;
+
+        Entry(long id, long birdId, String location, LocalDateTime dateTime, Double latitude, Double longitude,
+              String idempotencyKey) {
+            this.id = id;
+            this.birdId = birdId;
+            this.location = location;
+            this.dateTime = dateTime;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("sightings-(\\d{20})\\.log");
+
+    // Upper bound on a payload; anything larger is a corrupt length field
+    private static final int MAX_PAYLOAD = 4096;
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    // First sequence number of every live segment, oldest first; the last one is being written
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private FileChannel channel;
+    private long nextSequence = 1;
+
+    private volatile long committedSequence;
+
+    SightingWriteAheadLog(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Reads every record left by an earlier run, oldest first, stopping at the first damaged
+     * record of a segment.
+     */
+    List<Entry> replay() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> firsts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "sightings-*.log")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    firsts.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        firsts.sort(null);
+
+        List<Entry> entries = new ArrayList<>();
+        for (long first : firsts) {
+            nextSequence = Math.max(nextSequence, first);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment(first))))) {
+                Entry entry;
+                while ((entry = read(in)) != null) {
+                    entries.add(entry);
+                    nextSequence = Math.max(nextSequence, entry.sequence + 1);
+                }
+            }
+            segments.addLast(first);
+        }
+        return entries;
+    }
+
+    /**
+     * Deletes the segments read by replay, once their entries are in the database.
+     */
+    void discardReplayed() throws IOException {
+        while (!segments.isEmpty()) {
+            Files.deleteIfExists(segment(segments.pollFirst()));
+        }
+    }
+
+    /**
+     * Appends the entries, assigning their sequence numbers, and syncs them to disk.
+     */
+    void append(List<Entry> entries) throws IOException {
+        if (channel == null || channel.size() >= segmentBytes) {
+            rotate();
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(entries.size() * 96);
+        DataOutputStream out = new DataOutputStream(buffer);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(96);
+        DataOutputStream record = new DataOutputStream(payload);
+        CRC32 crc = new CRC32();
+        for (Entry entry : entries) {
+            entry.sequence = nextSequence++;
+            payload.reset();
+            write(entry, record);
+            crc.reset();
+            crc.update(payload.toByteArray());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+        }
+        long start = channel.size();
+        try {
+            writeAndSync(channel, ByteBuffer.wrap(buffer.toByteArray()));
+        } catch (IOException e) {
+            discardFrom(start, e);
+            throw e;
+        }
+    }
+
+    // Overridden by tests to fail part way through
+    void writeAndSync(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Cuts the segment back to where a failed append started. If even that fails, the segment
+     * is abandoned: the next append starts a new one, and replay stops reading the old one at
+     * the damaged record, which was never acknowledged.
+     */
+    private void discardFrom(long start, IOException failure) {
+        try {
+            channel.truncate(start);
+            channel.force(false);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            try {
+                close();
+            } catch (IOException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Marks every record up to the sequence number as committed to the database. Safe to call
+     * from any thread; the segments are deleted by the next deleteCommitted.
+     */
+    void committed(long sequence) {
+        committedSequence = Math.max(committedSequence, sequence);
+    }
+
+    /**
+     * Deletes the segments whose records are all committed. Called by the appending thread.
+     */
+    void deleteCommitted() throws IOException {
+        while (segments.size() > 1) {
+            long oldest = segments.pollFirst();
+            long successor = segments.peekFirst();
+            if (successor - 1 > committedSequence) {
+                segments.addFirst(oldest);
+                return;
+            }
+            Files.deleteIfExists(segment(oldest));
+        }
+        // The live segment goes too once it is fully committed and big enough to rotate
+        if (channel != null && channel.size() >= segmentBytes && nextSequence - 1 <= committedSequence) {
+            long live = segments.pollFirst();
+            channel.close();
+            channel = null;
+            Files.deleteIfExists(segment(live));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        close();
+        channel = FileChannel.open(segment(nextSequence), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.addLast(nextSequence);
+        // Make the new file's directory entry durable too
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the file data itself is still synced
+        }
+    }
+
+    private Path segment(long first) {
+        return directory.resolve(String.format("sightings-%020d.log", first));
+    }
+
+    private static void write(Entry entry, DataOutputStream out) throws IOException {
+        out.writeLong(entry.sequence);
+        out.writeLong(entry.id);
+        out.writeLong(entry.birdId);
+        out.writeBoolean(entry.location != null);
+        if (entry.location != null) {
+            out.writeUTF(entry.location);
+        }
+        out.writeBoolean(entry.dateTime != null);
+        if (entry.dateTime != null) {
+            out.writeLong(entry.dateTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(entry.dateTime.getNano());
+        }
+        out.writeBoolean(entry.latitude != null);
+        if (entry.latitude != null) {
+            out.writeDouble(entry.latitude);
+            out.writeDouble(entry.longitude);
+        }
+        out.writeBoolean(entry.idempotencyKey != null);
+        if (entry.idempotencyKey != null) {
+            out.writeUTF(entry.idempotencyKey);
+        }
+    }
+
+    // Null at the end of the segment or at a damaged record
+    private static Entry read(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_PAYLOAD) {
+                return null;
+            }
+            byte[] payload = in.readNBytes(length);
+            if (payload.length != length) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            return parse(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Entry parse(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        long id = in.readLong();
+        long birdId = in.readLong();
+        String location = in.readBoolean() ? in.readUTF() : null;
+        LocalDateTime dateTime = in.readBoolean()
+                ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC)
+                : null;
+        Double latitude = null;
+        Double longitude = null;
+        if (in.readBoolean()) {
+            latitude = in.readDouble();
+            longitude = in.readDouble();
+        }
+        String idempotencyKey = in.readBoolean() ? in.readUTF() : null;
+        Entry entry = new Entry(id, birdId, location, dateTime, latitude, longitude, idempotencyKey);
+        entry.sequence = sequence;
+        return entry;
+    }
+}
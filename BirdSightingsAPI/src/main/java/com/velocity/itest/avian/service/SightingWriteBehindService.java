@@ -0,0 +1,686 @@
+package com.velocity.itest.avian.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Opt-in asynchronous mode for POST /sightings (avian.sightings.write-behind.enabled). An
+ * accepted sighting gets its final id from sightings_seq, goes into a lock-free ring buffer,
+ * and is acknowledged once a log writer thread has appended it to a local write-ahead log and
+ * synced it to disk, together with every other sighting that arrived meanwhile. A flusher
+ * thread then inserts the logged sightings into PostgreSQL in group commits of up to
+ * batch-size rows, or whatever arrived within max-delay. Sightings left in the log by a crash
+ * are inserted on the next start, before any new sighting is accepted.
+ *
+ * The rows are inserted with plain JDBC, so this class does for them what the entity
+ * listeners do for JPA writes: bump the ETag, publish to the live feed and update the read
+ * model.
+ *
+ * A group the database refuses for a reason other than a lost connection, a serialization
+ * failure or a shutdown is split until the refused sightings are isolated. Those are
+ * dead-lettered: appended to dead-letter.csv in the log directory and counted in
+ * avian.sightings.write-behind.dead-lettered, and their idempotency keys are released. The
+ * health indicator goes down if the log writer thread stops; new sightings are then refused.
+ */
+@Service
+@ConditionalOnProperty(name = "avian.sightings.write-behind.enabled", havingValue = "true")
+// Created at startup even with lazy initialization, so the log is recovered before requests arrive
+@Lazy(false)
+public class SightingWriteBehindService implements HealthIndicator, MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SightingWriteBehindService.class);
+
+    // Must match allocationSize of the sightings_seq generator on the Sighting entity
+    private static final int ALLOCATION_SIZE = 50;
+
+    // Sequence blocks taken per round-trip when the local id pool runs dry
+    private static final int BLOCKS_PER_FETCH = 20;
+
+    // Most entries the log writer appends under one sync
+    private static final int MAX_LOG_BATCH = 4096;
+
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private static final String DEAD_LETTER_FILE = "dead-letter.csv";
+
+    private static final String INSERT_KEY = "INSERT INTO sighting_idempotency_keys (idempotency_key, sighting_id, created_at)"
+            + " VALUES (?, ?, ?)";
+
+    private static final String INSERT_SIGHTING = "INSERT INTO sightings (id, bird_id, location, date_time, latitude, longitude)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BirdService birdService;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private SightingEventBroadcaster sightingEventBroadcaster;
+
+    @Autowired
+    private SightingEventRelay sightingEventRelay;
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    // Sightings accepted but not yet committed; further sightings are refused beyond this
+    @Value("${avian.sightings.write-behind.capacity:65536}")
+    private int capacity;
+
+    @Value("${avian.sightings.write-behind.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${avian.sightings.write-behind.max-delay:50ms}")
+    private Duration maxDelay;
+
+    @Value("${avian.sightings.write-behind.ack-timeout:5s}")
+    private Duration ackTimeout;
+
+    @Value("${avian.sightings.write-behind.log-dir:write-behind}")
+    private Path logDir;
+
+    private MpscRingBuffer<Accepted> ring;
+    private SightingWriteAheadLog log;
+    private final BlockingQueue<List<SightingWriteAheadLog.Entry>> logged = new LinkedBlockingQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private final long[] idPool = new long[ALLOCATION_SIZE * BLOCKS_PER_FETCH];
+    private int idPoolNext;
+    private int idPoolSize;
+
+    private Thread logWriter;
+    private Thread flusher;
+    private volatile boolean running;
+    // Why the log writer thread stopped, or null while it runs
+    private volatile Throwable logWriterFailure;
+
+    private final AtomicLong cleanupFailures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    private static final class Accepted {
+        private final SightingWriteAheadLog.Entry entry;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Accepted(SightingWriteAheadLog.Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException, SQLException {
+        ring = new MpscRingBuffer<>(capacity);
+        log = new SightingWriteAheadLog(logDir, SEGMENT_BYTES);
+
+        // Whatever an earlier run acknowledged but did not commit goes in first
+        List<SightingWriteAheadLog.Entry> recovered = log.replay();
+        for (int from = 0; from < recovered.size(); from += batchSize) {
+            try {
+                insertOrSplit(recovered.subList(from, Math.min(from + batchSize, recovered.size())),
+                        new ArrayList<>(), false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while recovering the write-ahead log", e);
+            }
+        }
+        log.discardReplayed();
+        if (!recovered.isEmpty()) {
+            tableVersions.sightingsChanged();
+            sightingReadModel.reload();
+        }
+
+        running = true;
+        logWriter = new Thread(this::writeLog, "sighting-write-behind-log");
+        flusher = new Thread(this::flush, "sighting-write-behind-flusher");
+        logWriter.setDaemon(true);
+        flusher.setDaemon(true);
+        logWriter.start();
+        flusher.start();
+    }
+
+    /**
+     * Stops accepting sightings and waits for the accepted ones to be committed. Any that do
+     * not make it in time stay in the log for the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(logWriter);
+        logWriter.join(ackTimeout.toMillis());
+        flusher.join(ackTimeout.toMillis() + maxDelay.toMillis());
+        flusher.interrupt();
+    }
+
+    public boolean isPending(long id) {
+        return pendingIds.contains(id);
+    }
+
+    @Override
+    public Health health() {
+        Throwable failure = logWriterFailure;
+        Health.Builder health = failure == null ? Health.up()
+                : Health.down().withDetail("error", failure.getClass().getName() + ": " + failure.getMessage());
+        return health.withDetail("inFlight", inFlight.get())
+                .withDetail("deadLettered", deadLettered.get())
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("avian.sightings.write-behind.in-flight", inFlight, AtomicInteger::get)
+                .description("Sightings accepted but not yet committed")
+                .register(registry);
+        Gauge.builder("avian.sightings.write-behind.log-writer.running", this, s -> s.logWriterFailure == null ? 1 : 0)
+                .description("1 while the log writer thread runs; 0 once it has stopped and sightings are refused")
+                .register(registry);
+        FunctionCounter.builder("avian.sightings.write-behind.dead-lettered", deadLettered, AtomicLong::get)
+                .description("Sightings the database refused, written to the dead-letter file")
+                .register(registry);
+        FunctionCounter.builder("avian.sightings.write-behind.log.cleanup-failures", cleanupFailures, AtomicLong::get)
+                .description("Failed attempts to delete committed log segments")
+                .register(registry);
+    }
+
+    /**
+     * Accepts a sighting and waits until it is durable in the local log.
+     * @param sighting A sighting with an existing bird; its id is ignored.
+     * @param idempotencyKey Idempotency-Key of the request, or null. It is stored with the
+     *                       sighting; until then it is held in the recent-key cache.
+     * @return The id the sighting will have, or the id of the sighting already accepted under
+     *         the key, or empty if the buffer is full or the log writer has stopped. The
+     *         sighting's own id is set only when this call accepted it.
+     * @throws IllegalArgumentException If the sighting would be rejected by the database.
+     * @throws IllegalStateException If the sighting could not be logged in time.
+     */
+    public Optional<Long> submit(SightingDto sighting, String idempotencyKey) throws SQLException {
+        String error = validate(sighting);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        if (!running || logWriterFailure != null || inFlight.incrementAndGet() > capacity) {
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        }
+        Accepted accepted;
+        try {
+            long id = nextId();
+            if (idempotencyKey != null) {
+                // Reserved in the cache first, so a retry of a cached key needs no connection. A
+                // key that is not cached may have been stored before it left the cache; if the
+                // database cannot say, the reservation stands and the key's primary key refuses
+                // a duplicate when the sighting is inserted.
+                Long existing = idempotencyKeys.reserve(idempotencyKey, id);
+                if (existing == null) {
+                    existing = idempotencyKeys.findStored(idempotencyKey, id).orElse(null);
+                }
+                if (existing != null) {
+                    inFlight.decrementAndGet();
+                    return Optional.of(existing);
+                }
+            }
+            accepted = new Accepted(new SightingWriteAheadLog.Entry(id, sighting.getBird().getId(),
+                    sighting.getLocation(), sighting.getDateTime(), sighting.getLatitude(), sighting.getLongitude(),
+                    idempotencyKey));
+            sighting.setId(id);
+            pendingIds.add(id);
+            // Cannot fail: inFlight never exceeds the ring's capacity
+            ring.offer(accepted);
+        } catch (SQLException | RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        LockSupport.unpark(logWriter);
+        // The writer stopped after the check above and may never drain this one
+        Throwable failure = logWriterFailure;
+        if (failure != null) {
+            refuse(accepted, failure);
+        }
+
+        try {
+            accepted.durable.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Still on its way: the sighting may be committed later even though the caller is told it failed
+            throw new IllegalStateException("Sighting " + accepted.entry.id + " was not logged in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while logging sighting " + accepted.entry.id, e);
+        }
+        return Optional.of(accepted.entry.id);
+    }
+
+    /**
+     * @return Why the sighting would be rejected, or null if it would not. Checked up front:
+     *         once acknowledged, a sighting has to insert cleanly.
+     */
+    private String validate(SightingDto sighting) {
+        if (sighting.getBird() == null || sighting.getBird().getId() == null) {
+            return "Bird id is required";
+        }
+        if (birdService.findById(sighting.getBird().getId()).isEmpty()) {
+            return "Bird not found: " + sighting.getBird().getId();
+        }
+        return SightingIngestService.invalidFields(sighting.getLocation(), sighting.getLatitude(), sighting.getLongitude());
+    }
+
+    /**
+     * Takes whole blocks from sightings_seq the way Hibernate's pooled optimizer does, so these
+     * ids never collide with the ones it hands out.
+     */
+    private synchronized long nextId() throws SQLException {
+        if (idPoolNext == idPoolSize) {
+            idPoolNext = 0;
+            idPoolSize = 0;
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT nextval('sightings_seq') FROM generate_series(1, ?)")) {
+                statement.setInt(1, BLOCKS_PER_FETCH);
+                try (ResultSet his = statement.executeQuery()) {
+                    while (his.next()) {
+                        long hi = his.getLong(1);
+                        // Values below one block are the sequence's start, which Hibernate treats specially
+                        if (hi < ALLOCATION_SIZE) {
+                            continue;
+                        }
+                        for (long id = hi - ALLOCATION_SIZE + 1; id <= hi; id++) {
+                            idPool[idPoolSize++] = id;
+                        }
+                    }
+                }
+            }
+            if (idPoolSize == 0) {
+                return nextId();
+            }
+        }
+        return idPool[idPoolNext++];
+    }
+
+    // Log writer thread: drain the ring, append and sync as one group, then acknowledge
+    private void writeLog() {
+        List<Accepted> batch = new ArrayList<>(MAX_LOG_BATCH);
+        try {
+            while (running || !ring.isEmpty()) {
+                if (ring.drainTo(batch, MAX_LOG_BATCH) == 0) {
+                    LockSupport.parkNanos(this, maxDelay.toNanos());
+                    try {
+                        log.deleteCommitted();
+                    } catch (IOException e) {
+                        // The segments stay on disk and are tried again next time
+                        cleanupFailures.incrementAndGet();
+                    }
+                    continue;
+                }
+                List<SightingWriteAheadLog.Entry> entries = new ArrayList<>(batch.size());
+                for (Accepted accepted : batch) {
+                    entries.add(accepted.entry);
+                }
+                try {
+                    log.append(entries);
+                } catch (IOException e) {
+                    // Never acknowledged, so nothing is lost; the callers see the failure
+                    for (Accepted accepted : batch) {
+                        refuse(accepted, e);
+                    }
+                    batch.clear();
+                    continue;
+                }
+                logged.add(entries);
+                for (Accepted accepted : batch) {
+                    accepted.durable.complete(null);
+                }
+                batch.clear();
+            }
+        } catch (RuntimeException | Error e) {
+            // Refuse new sightings and fail the ones no one will log now
+            logWriterFailure = e;
+            LOG.error("Write-behind log writer stopped; new sightings are refused", e);
+            for (Accepted accepted : batch) {
+                refuse(accepted, e);
+            }
+            batch.clear();
+            while (ring.drainTo(batch, MAX_LOG_BATCH) > 0) {
+                for (Accepted accepted : batch) {
+                    refuse(accepted, e);
+                }
+                batch.clear();
+            }
+        } finally {
+            try {
+                log.close();
+            } catch (IOException e) {
+                // Everything appended was synced already
+            }
+        }
+    }
+
+    // Undoes the acceptance of a sighting that was never logged; whoever completes it first does so
+    private void refuse(Accepted accepted, Throwable cause) {
+        if (accepted.durable.completeExceptionally(cause)) {
+            pendingIds.remove(accepted.entry.id);
+            if (accepted.entry.idempotencyKey != null) {
+                idempotencyKeys.release(accepted.entry.idempotencyKey, accepted.entry.id);
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // Flusher thread: group the logged entries by size or age and commit them
+    private void flush() {
+        List<SightingWriteAheadLog.Entry> group = new ArrayList<>(batchSize);
+        try {
+            while (running || !logged.isEmpty() || logWriter.isAlive()) {
+                List<SightingWriteAheadLog.Entry> first = logged.poll(maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.addAll(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (group.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    List<SightingWriteAheadLog.Entry> next = remaining > 0
+                            ? logged.poll(remaining, TimeUnit.NANOSECONDS) : logged.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.addAll(next);
+                }
+                List<SightingWriteAheadLog.Entry> inserted = new ArrayList<>(group.size());
+                try {
+                    insertOrSplit(group, inserted, true);
+                } catch (SQLException e) {
+                    // Not thrown when retrying
+                    throw new IllegalStateException(e);
+                }
+                committed(group, inserted);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down; uncommitted entries stay in the log
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Inserts the entries, adding the ones that made it to inserted. While the database is
+     * unreachable the insert is retried, or the error thrown if retry is false. Any other
+     * error splits the entries in halves until the ones it is about are found; those are
+     * dead-lettered so the rest can be committed.
+     */
+    private void insertOrSplit(List<SightingWriteAheadLog.Entry> entries, List<SightingWriteAheadLog.Entry> inserted,
+                               boolean retry) throws SQLException, InterruptedException {
+        while (true) {
+            try {
+                insert(entries);
+                inserted.addAll(entries);
+                return;
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    if (!retry) {
+                        throw e;
+                    }
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                } else if (entries.size() == 1) {
+                    deadLetter(entries.get(0), e);
+                    return;
+                } else {
+                    int half = entries.size() / 2;
+                    insertOrSplit(entries.subList(0, half), inserted, retry);
+                    insertOrSplit(entries.subList(half, entries.size()), inserted, retry);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether the error says nothing about the rows: the connection failed (class 08),
+     *         the transaction was rolled back by the database (40) or the server is shutting
+     *         down (57P). A pool timeout has no SQLState and is a SQLTransientException.
+     */
+    static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        // A batch reports the statement's error as the next exception
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            String state = cause.getSQLState();
+            if (state != null) {
+                return state.startsWith("08") || state.startsWith("40") || state.startsWith("57P");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives up on a sighting the database will not take. It was acknowledged, so it is kept
+     * in the dead-letter file for someone to correct and import.
+     */
+    private void deadLetter(SightingWriteAheadLog.Entry entry, SQLException error) {
+        deadLettered.incrementAndGet();
+        LOG.warn("Sighting {} of bird {} was refused by the database and dead-lettered: {}",
+                entry.id, entry.birdId, describe(error));
+        try {
+            writeDeadLetter(entry, error);
+        } catch (IOException e) {
+            LOG.error("Could not write dead-lettered sighting {} (bird {}, location {}, date {}, latitude {},"
+                    + " longitude {}, idempotency key {})", entry.id, entry.birdId, entry.location, entry.dateTime,
+                    entry.latitude, entry.longitude, entry.idempotencyKey, e);
+        }
+        if (entry.idempotencyKey != null) {
+            idempotencyKeys.release(entry.idempotencyKey, entry.id);
+        }
+        pendingIds.remove(entry.id);
+    }
+
+    // Same columns as an import file, plus what identifies the sighting and why it was refused
+    private void writeDeadLetter(SightingWriteAheadLog.Entry entry, SQLException error) throws IOException {
+        Path path = logDir.resolve(DEAD_LETTER_FILE);
+        boolean exists = Files.exists(path);
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+            if (!exists) {
+                writer.write("id,bird_id,location,date_time,latitude,longitude,idempotency_key,error\n");
+            }
+            writer.write(Long.toString(entry.id));
+            writer.write(',');
+            writer.write(Long.toString(entry.birdId));
+            writer.write(',');
+            if (entry.location != null) {
+                CsvFormat.writeQuoted(entry.location, writer);
+            }
+            writer.write(',');
+            CsvFormat.writeField(entry.dateTime, writer);
+            writer.write(',');
+            CsvFormat.writeField(entry.latitude, writer);
+            writer.write(',');
+            CsvFormat.writeField(entry.longitude, writer);
+            writer.write(',');
+            CsvFormat.writeField(entry.idempotencyKey, writer);
+            writer.write(',');
+            CsvFormat.writeField(describe(error), writer);
+            writer.write('\n');
+        }
+    }
+
+    // The statement's own error rather than the batch's, on one line
+    private static String describe(SQLException error) {
+        SQLException cause = error.getNextException() != null ? error.getNextException() : error;
+        return (cause.getSQLState() + " " + cause.getMessage()).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Inserts the entries in one transaction, skipping any already in the table: after a crash
+     * between commit and log cleanup, replay sees them again.
+     */
+    private void insert(List<SightingWriteAheadLog.Entry> entries) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Set<Long> existing = existingIds(connection, entries);
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_SIGHTING)) {
+                    for (SightingWriteAheadLog.Entry entry : entries) {
+                        if (existing.contains(entry.id)) {
+                            continue;
+                        }
+                        statement.setLong(1, entry.id);
+                        statement.setLong(2, entry.birdId);
+                        statement.setString(3, entry.location);
+                        statement.setObject(4, entry.dateTime);
+                        if (entry.latitude != null) {
+                            statement.setDouble(5, entry.latitude);
+                            statement.setDouble(6, entry.longitude);
+                        } else {
+                            statement.setNull(5, Types.DOUBLE);
+                            statement.setNull(6, Types.DOUBLE);
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_KEY)) {
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    for (SightingWriteAheadLog.Entry entry : entries) {
+                        // A key already held by another sighting is refused and dead-lettered
+                        if (entry.idempotencyKey != null && !existing.contains(entry.id)) {
+                            statement.setString(1, entry.idempotencyKey);
+                            statement.setLong(2, entry.id);
+                            statement.setTimestamp(3, now);
+                            statement.addBatch();
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                // Other instances' feeds hear of the rows once they commit; this one's in committed()
+                List<SightingDto> created = new ArrayList<>(entries.size());
+                for (SightingWriteAheadLog.Entry entry : entries) {
+                    if (!existing.contains(entry.id)) {
+                        created.add(toDto(entry));
+                    }
+                }
+                sightingEventRelay.relayCreated(connection, created);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static Set<Long> existingIds(Connection connection, List<SightingWriteAheadLog.Entry> entries)
+            throws SQLException {
+        Long[] ids = new Long[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).id;
+        }
+        Set<Long> existing = new HashSet<>();
+        Array array = connection.createArrayOf("bigint", ids);
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM sightings WHERE id = ANY(?)")) {
+            statement.setArray(1, array);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    existing.add(rows.getLong(1));
+                }
+            }
+        } finally {
+            array.free();
+        }
+        return existing;
+    }
+
+    // What the entity listeners would have done for the inserted rows; the whole group is done with
+    private void committed(List<SightingWriteAheadLog.Entry> group, List<SightingWriteAheadLog.Entry> inserted) {
+        long lastSequence = 0;
+        for (SightingWriteAheadLog.Entry entry : group) {
+            lastSequence = Math.max(lastSequence, entry.sequence);
+        }
+        boolean publish = sightingEventBroadcaster.hasSubscribers();
+        for (SightingWriteAheadLog.Entry entry : inserted) {
+            sightingReadModel.upsert(entry.id, entry.birdId, entry.location, entry.dateTime,
+                    entry.latitude, entry.longitude);
+            if (publish) {
+                SightingDto dto = toDto(entry);
+                dto.setBird(birdService.findById(entry.birdId).orElse(dto.getBird()));
+                sightingEventBroadcaster.publish(SightingEventDto.CREATED, dto);
+            }
+            pendingIds.remove(entry.id);
+        }
+        tableVersions.sightingsChanged();
+        log.committed(lastSequence);
+        inFlight.addAndGet(-group.size());
+    }
+
+    // The bird by id only
+    private static SightingDto toDto(SightingWriteAheadLog.Entry entry) {
+        SightingDto dto = new SightingDto();
+        dto.setId(entry.id);
+        dto.setLocation(entry.location);
+        dto.setDateTime(entry.dateTime);
+        dto.setLatitude(entry.latitude);
+        dto.setLongitude(entry.longitude);
+        BirdDto bird = new BirdDto();
+        bird.setId(entry.birdId);
+        dto.setBird(bird);
+        return dto;
+    }
+}
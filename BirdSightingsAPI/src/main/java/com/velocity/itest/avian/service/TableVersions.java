@@ -0,0 +1,65 @@
+package com.velocity.itest.avian.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters for the birds and sightings tables, used to derive strong ETags for the
+ * list endpoints. Counters are bumped after a write through this instance commits (see
+ * TableVersionListener), and when the database announces a write made anywhere else on
+ * CHANGE_CHANNEL (see ExternalSightingChanges). A random per-instance prefix keeps tags from
+ * one run, or one instance, from matching those of another.
+ *
+ * Change listeners run before a counter moves, so by the time a reader sees the new ETag they
+ * have already acted on the write (e.g. read replica routing sends its reads to the primary).
+ */
+@Component
+public class TableVersions {
+
+    /**
+     * Channel the birds and sightings tables notify after every write statement, with the
+     * table name as payload (see V10__table_change_notifications.sql).
+     */
+    public static final String CHANGE_CHANNEL = "avian_table_changed";
+
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong birds = new AtomicLong();
+    private final AtomicLong sightings = new AtomicLong();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void birdsChanged() {
+        changeListeners.forEach(Runnable::run);
+        birds.incrementAndGet();
+        // Sighting responses embed their bird, so they change too
+        sightings.incrementAndGet();
+    }
+
+    public void sightingsChanged() {
+        changeListeners.forEach(Runnable::run);
+        sightings.incrementAndGet();
+    }
+
+    public String birdsEtag() {
+        return "\"b-" + instance + "-" + birds.get() + "\"";
+    }
+
+    public String sightingsEtag() {
+        return "\"s-" + instance + "-" + sightings.get() + "\"";
+    }
+
+    /**
+     * ETag for another representation (e.g. NDJSON) of the same sighting data; strong tags
+     * must differ between representations.
+     */
+    public String sightingsEtag(String representation) {
+        return "\"s-" + instance + "-" + sightings.get() + "-" + representation + "\"";
+    }
+}
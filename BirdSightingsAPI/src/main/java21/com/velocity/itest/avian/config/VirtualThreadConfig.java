@@ -0,0 +1,59 @@
+package com.velocity.itest.avian.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every Tomcat request, and the MVC async work behind the NDJSON streams, on its own
+ * virtual thread instead of the fixed 200-thread pool. A request blocked on the database then
+ * parks without holding a platform thread; database concurrency itself stays bounded by
+ * DbConcurrencyLimitConfig and the Hikari pool. Tomcat's connection cap is raised to
+ * avian.virtual-threads.max-connections, as a parked request costs little.
+ * <p>
+ * Only compiled by the java21 Maven profile (src/main/java21).
+ */
+@Configuration
+@ConditionalOnProperty(name = "avian.virtual-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConfig {
+
+    @Value("${avian.virtual-threads.max-connections:20000}")
+    private int maxConnections;
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // Unordered, so it runs after Boot's customizer that applies server.tomcat.max-connections
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadMaxConnectionsCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) connector.getProtocolHandler()).setMaxConnections(maxConnections);
+            }
+        });
+    }
+
+    // Replaces Boot's pooled applicationTaskExecutor, which MVC uses for StreamingResponseBody
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
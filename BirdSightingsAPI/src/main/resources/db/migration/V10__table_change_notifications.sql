@@ -0,0 +1,26 @@
+-- Announces every statement that writes birds or sightings on the avian_table_changed channel,
+-- whoever runs it: any instance of the API, BirdSightingsReactiveAPI or a session in psql.
+-- Every instance listens (ExternalSightingChanges) and moves its table versions on, so an
+-- ETag handed out before a write made elsewhere no longer matches.
+--
+-- Statement-level, and PostgreSQL folds identical notifications of one transaction into one,
+-- delivered at commit: a batch insert or a COPY costs a single notification, and none is
+-- sent for a rollback. Statement triggers on a partitioned table do not fire for statements
+-- run on a partition directly, and detaching a partition runs none at all, so
+-- SightingPartitionService notifies for the partitions it detaches itself.
+CREATE OR REPLACE FUNCTION notify_table_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('avian_table_changed', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS birds_changed ON birds;
+CREATE TRIGGER birds_changed
+    AFTER INSERT OR UPDATE OR DELETE ON birds
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_table_changed();
+
+DROP TRIGGER IF EXISTS sightings_changed ON sightings;
+CREATE TRIGGER sightings_changed
+    AFTER INSERT OR UPDATE OR DELETE ON sightings
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_table_changed();
@@ -0,0 +1,7 @@
+-- Length of an import's error file as of its checkpoint (SightingImportService). Rejections
+-- are written to the file before the chunk they belong to commits, so after a crash between
+-- the two the file holds rejections the checkpoint does not count; a resumed import cuts the
+-- file back to this length before rejecting those records again. NULL for checkpoints
+-- written before this column, whose file is kept as it is.
+
+ALTER TABLE sighting_imports ADD COLUMN IF NOT EXISTS error_bytes BIGINT;
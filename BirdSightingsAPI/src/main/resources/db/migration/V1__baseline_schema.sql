@@ -0,0 +1,25 @@
+-- Baseline schema, matching what Hibernate used to generate with ddl-auto=update.
+-- Every statement is idempotent so this also applies to databases created before migrations.
+
+CREATE TABLE IF NOT EXISTS birds (
+    id     BIGINT           NOT NULL PRIMARY KEY,
+    name   VARCHAR(255),
+    color  VARCHAR(255),
+    weight DOUBLE PRECISION NOT NULL,
+    height DOUBLE PRECISION NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sightings (
+    id        BIGINT NOT NULL PRIMARY KEY,
+    bird_id   BIGINT REFERENCES birds (id),
+    location  VARCHAR(255),
+    date_time TIMESTAMP
+);
+
+-- Pooled id sequences (allocationSize = 50 on the entities)
+CREATE SEQUENCE IF NOT EXISTS birds_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS sightings_seq START WITH 1 INCREMENT BY 50;
+
+-- Move the sequences past any ids handed out by the old IDENTITY columns
+SELECT setval('birds_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM birds) + 50, (SELECT last_value FROM birds_seq)));
+SELECT setval('sightings_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM sightings) + 50, (SELECT last_value FROM sightings_seq)));
@@ -0,0 +1,14 @@
+-- Indexes for the repository query paths; before this only the primary keys were indexed.
+
+-- findByBird, findByBirdAndLocationAndDateTimeBetween and the bird-filtered projections
+CREATE INDEX IF NOT EXISTS idx_sightings_bird_date_time ON sightings (bird_id, date_time);
+
+-- findByLocation and location + time range filters
+CREATE INDEX IF NOT EXISTS idx_sightings_location_date_time ON sightings (location, date_time);
+
+-- BirdRepository.findByName / findByNameAndColor
+CREATE INDEX IF NOT EXISTS idx_birds_name_color ON birds (name, color);
+
+-- Sightings are mostly inserted in time order, so a BRIN index covers pure time-range
+-- scans at a tiny fraction of a B-tree's size
+CREATE INDEX IF NOT EXISTS brin_sightings_date_time ON sightings USING brin (date_time);
@@ -0,0 +1,115 @@
+-- Pre-aggregated sighting counts for the /stats endpoints.
+--
+-- A trigger appends a +1/-1 delta for every sighting written, so writers never contend on
+-- shared counter rows. SightingRollupService folds the pending deltas into the rollup
+-- tables on a short schedule via fold_sighting_rollups(). Sightings without a bird or a
+-- time are not counted; a missing location is counted under ''.
+
+CREATE TABLE IF NOT EXISTS sighting_rollup_deltas (
+    bird_id       BIGINT       NOT NULL,
+    location      VARCHAR(255) NOT NULL,
+    sighting_date DATE         NOT NULL,
+    delta         INTEGER      NOT NULL
+);
+
+-- Sightings per bird, location and day; the source for time-bucketed counts
+CREATE TABLE IF NOT EXISTS sighting_daily_counts (
+    bird_id        BIGINT       NOT NULL,
+    location       VARCHAR(255) NOT NULL,
+    sighting_date  DATE         NOT NULL,
+    sighting_count BIGINT       NOT NULL,
+    PRIMARY KEY (bird_id, location, sighting_date)
+);
+CREATE INDEX IF NOT EXISTS idx_sighting_daily_counts_location_date ON sighting_daily_counts (location, sighting_date);
+CREATE INDEX IF NOT EXISTS idx_sighting_daily_counts_date ON sighting_daily_counts (sighting_date);
+
+-- Running totals, so per-bird and top-N location answers are a single index lookup
+CREATE TABLE IF NOT EXISTS sighting_bird_counts (
+    bird_id        BIGINT NOT NULL PRIMARY KEY,
+    sighting_count BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sighting_location_counts (
+    location       VARCHAR(255) NOT NULL PRIMARY KEY,
+    sighting_count BIGINT       NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_sighting_location_counts_count ON sighting_location_counts (sighting_count DESC);
+
+CREATE OR REPLACE FUNCTION record_sighting_rollup_delta() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') AND OLD.bird_id IS NOT NULL AND OLD.date_time IS NOT NULL THEN
+        INSERT INTO sighting_rollup_deltas (bird_id, location, sighting_date, delta)
+        VALUES (OLD.bird_id, COALESCE(OLD.location, ''), CAST(OLD.date_time AS DATE), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.bird_id IS NOT NULL AND NEW.date_time IS NOT NULL THEN
+        INSERT INTO sighting_rollup_deltas (bird_id, location, sighting_date, delta)
+        VALUES (NEW.bird_id, COALESCE(NEW.location, ''), CAST(NEW.date_time AS DATE), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS sightings_rollup_delta ON sightings;
+CREATE TRIGGER sightings_rollup_delta
+    AFTER INSERT OR DELETE OR UPDATE OF bird_id, location, date_time ON sightings
+    FOR EACH ROW EXECUTE FUNCTION record_sighting_rollup_delta();
+
+-- Moves every committed delta into the rollup tables and returns the number of
+-- (bird, location, day) keys that changed. The advisory lock keeps concurrent callers
+-- (other instances) from double-applying; deltas committed meanwhile wait for the next call.
+CREATE OR REPLACE FUNCTION fold_sighting_rollups() RETURNS BIGINT AS $$
+DECLARE
+    folded_count BIGINT;
+BEGIN
+    IF NOT pg_try_advisory_xact_lock(hashtext('fold_sighting_rollups')) THEN
+        RETURN 0;
+    END IF;
+
+    CREATE TEMP TABLE IF NOT EXISTS folded_sighting_deltas (
+        bird_id       BIGINT,
+        location      VARCHAR(255),
+        sighting_date DATE,
+        delta         BIGINT
+    );
+
+    WITH folded AS (
+        DELETE FROM sighting_rollup_deltas RETURNING bird_id, location, sighting_date, delta
+    )
+    INSERT INTO folded_sighting_deltas
+    SELECT bird_id, location, sighting_date, SUM(delta) FROM folded GROUP BY bird_id, location, sighting_date;
+    GET DIAGNOSTICS folded_count = ROW_COUNT;
+
+    -- Ordered upserts so concurrent folds could never deadlock on the same keys
+    INSERT INTO sighting_daily_counts AS c (bird_id, location, sighting_date, sighting_count)
+    SELECT bird_id, location, sighting_date, delta FROM folded_sighting_deltas ORDER BY bird_id, location, sighting_date
+    ON CONFLICT (bird_id, location, sighting_date) DO UPDATE SET sighting_count = c.sighting_count + EXCLUDED.sighting_count;
+
+    INSERT INTO sighting_bird_counts AS c (bird_id, sighting_count)
+    SELECT bird_id, SUM(delta) FROM folded_sighting_deltas GROUP BY bird_id ORDER BY bird_id
+    ON CONFLICT (bird_id) DO UPDATE SET sighting_count = c.sighting_count + EXCLUDED.sighting_count;
+
+    INSERT INTO sighting_location_counts AS c (location, sighting_count)
+    SELECT location, SUM(delta) FROM folded_sighting_deltas GROUP BY location ORDER BY location
+    ON CONFLICT (location) DO UPDATE SET sighting_count = c.sighting_count + EXCLUDED.sighting_count;
+
+    -- Drop keys whose sightings have all been deleted; only touched keys are checked
+    DELETE FROM sighting_daily_counts c USING folded_sighting_deltas f
+    WHERE c.bird_id = f.bird_id AND c.location = f.location AND c.sighting_date = f.sighting_date AND c.sighting_count <= 0;
+    DELETE FROM sighting_bird_counts c USING folded_sighting_deltas f
+    WHERE c.bird_id = f.bird_id AND c.sighting_count <= 0;
+    DELETE FROM sighting_location_counts c USING folded_sighting_deltas f
+    WHERE c.location = f.location AND c.sighting_count <= 0;
+
+    DROP TABLE folded_sighting_deltas;
+    RETURN folded_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Backfill from the sightings that existed before the trigger
+INSERT INTO sighting_rollup_deltas (bird_id, location, sighting_date, delta)
+SELECT bird_id, COALESCE(location, ''), CAST(date_time AS DATE), COUNT(*)
+FROM sightings
+WHERE bird_id IS NOT NULL AND date_time IS NOT NULL
+GROUP BY bird_id, COALESCE(location, ''), CAST(date_time AS DATE);
+
+SELECT fold_sighting_rollups();
@@ -0,0 +1,19 @@
+-- Optional WGS84 coordinates for sightings, with a spatial index for area and radius queries.
+--
+-- The stock postgres image has no PostGIS, so the index is a core GiST index over the
+-- point(longitude, latitude) expression. Bounding-box filters written as
+-- point(longitude, latitude) <@ box(...) are answered from it directly; radius filters use
+-- the same box as a prefilter and compute the exact great-circle distance on the few
+-- candidate rows only.
+
+ALTER TABLE sightings ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE sightings ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+
+-- Either both coordinates are known or neither, and both are in range
+ALTER TABLE sightings ADD CONSTRAINT chk_sightings_coordinates CHECK (
+    (latitude IS NULL AND longitude IS NULL)
+    OR (latitude BETWEEN -90 AND 90 AND longitude BETWEEN -180 AND 180)
+);
+
+-- The expression must stay identical to the one SpatialFunctions renders for the index to be used
+CREATE INDEX IF NOT EXISTS gist_sightings_position ON sightings USING gist (point(longitude, latitude));
@@ -0,0 +1,17 @@
+-- Indexes for typeahead search over bird names and sighting locations (SearchService).
+--
+-- Matching is on lower(...), so it is case-insensitive. Prefix matches (LIKE 'abc%') use the
+-- text_pattern_ops B-trees, which also serve one- and two-letter prefixes that trigrams
+-- cannot. Fuzzy matches (the <% word-similarity operator) use the trigram GIN indexes.
+-- Locations are searched in the rollup table, which has one row per distinct location,
+-- instead of in sightings.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_birds_name_prefix ON birds (lower(name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS trgm_birds_name ON birds USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_sighting_location_counts_prefix
+    ON sighting_location_counts (lower(location) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS trgm_sighting_location_counts_location
+    ON sighting_location_counts USING gin (lower(location) gin_trgm_ops);
@@ -0,0 +1,132 @@
+-- Range-partitions sightings by month of date_time.
+--
+-- Queries that filter on date_time only touch the matching partitions (partition pruning),
+-- each partition is vacuumed on its own, and expired months are removed by detaching their
+-- partition instead of a bulk DELETE (see SightingPartitionService).
+--
+-- Partitioned tables cannot have a primary key that leaves out the partition key, and
+-- date_time is nullable, so id is indexed without a uniqueness constraint; ids are unique
+-- because they all come from sightings_seq. Sightings without a time, or in a month that
+-- has no partition, land in sightings_default.
+--
+-- This copies every existing sighting once, inside the migration's transaction.
+
+ALTER TABLE sightings RENAME TO sightings_unpartitioned;
+
+CREATE TABLE sightings (
+    id        BIGINT NOT NULL,
+    bird_id   BIGINT REFERENCES birds (id),
+    location  VARCHAR(255),
+    date_time TIMESTAMP,
+    latitude  DOUBLE PRECISION,
+    longitude DOUBLE PRECISION,
+    CONSTRAINT chk_sightings_coordinates CHECK (
+        (latitude IS NULL AND longitude IS NULL)
+        OR (latitude BETWEEN -90 AND 90 AND longitude BETWEEN -180 AND 180)
+    )
+) PARTITION BY RANGE (date_time);
+
+CREATE TABLE sightings_default PARTITION OF sightings DEFAULT;
+
+-- Lets partition maintenance move rows between partitions without recording rollup deltas;
+-- the rows are neither new nor deleted. Only ever set transaction-locally.
+CREATE OR REPLACE FUNCTION record_sighting_rollup_delta() RETURNS trigger AS $$
+BEGIN
+    IF current_setting('avian.skip_rollup_deltas', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') AND OLD.bird_id IS NOT NULL AND OLD.date_time IS NOT NULL THEN
+        INSERT INTO sighting_rollup_deltas (bird_id, location, sighting_date, delta)
+        VALUES (OLD.bird_id, COALESCE(OLD.location, ''), CAST(OLD.date_time AS DATE), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.bird_id IS NOT NULL AND NEW.date_time IS NOT NULL THEN
+        INSERT INTO sighting_rollup_deltas (bird_id, location, sighting_date, delta)
+        VALUES (NEW.bird_id, COALESCE(NEW.location, ''), CAST(NEW.date_time AS DATE), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creates the monthly partitions sightings_yYYYYmMM for every month from from_month to
+-- to_month that does not have one yet, and returns how many were created. Rows already in
+-- sightings_default for such a month are moved into the new partition first, as attaching
+-- would fail otherwise.
+CREATE OR REPLACE FUNCTION ensure_sighting_partitions(from_month DATE, to_month DATE) RETURNS INTEGER AS $$
+DECLARE
+    month_start    DATE := date_trunc('month', from_month);
+    month_end      DATE;
+    partition_name TEXT;
+    created        INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('sighting_partitions'));
+    PERFORM set_config('avian.skip_rollup_deltas', 'on', true);
+
+    WHILE month_start <= to_month LOOP
+        month_end := month_start + INTERVAL '1 month';
+        partition_name := 'sightings_' || to_char(month_start, '"y"YYYY"m"MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE sightings INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+            EXECUTE format('WITH moved AS (DELETE FROM sightings_default WHERE date_time >= %L AND date_time < %L RETURNING *)'
+                           ' INSERT INTO %I SELECT * FROM moved', month_start, month_end, partition_name);
+            EXECUTE format('ALTER TABLE sightings ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month_start, month_end);
+            created := created + 1;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+
+    PERFORM set_config('avian.skip_rollup_deltas', 'off', true);
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches the monthly partitions that end on or before cutoff. Returns the names of all
+-- detached monthly partitions that still exist, including ones left over by an interrupted
+-- run, so the caller can archive and drop them. The rollup tables keep counting detached
+-- sightings: statistics cover the archived history too.
+CREATE OR REPLACE FUNCTION detach_expired_sighting_partitions(cutoff DATE) RETURNS SETOF TEXT AS $$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('sighting_partitions'));
+
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'sightings'::regclass
+          AND c.relname ~ '^sightings_y[0-9]{4}m[0-9]{2}$'
+          AND to_date(substr(c.relname, 12, 4) || substr(c.relname, 17, 2), 'YYYYMM') + INTERVAL '1 month' <= cutoff
+    LOOP
+        EXECUTE format('ALTER TABLE sightings DETACH PARTITION %I', partition_name);
+    END LOOP;
+
+    RETURN QUERY
+        SELECT c.relname::TEXT FROM pg_class c
+        WHERE c.relkind = 'r'
+          AND c.relnamespace = to_regnamespace(current_schema())
+          AND c.relname ~ '^sightings_y[0-9]{4}m[0-9]{2}$'
+          AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+        ORDER BY c.relname;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for every month that has sightings, through the current month and a few ahead
+SELECT ensure_sighting_partitions(
+    COALESCE((SELECT MIN(date_time) FROM sightings_unpartitioned), now())::DATE,
+    (date_trunc('month', now()) + INTERVAL '3 months')::DATE);
+
+-- Copied before the trigger exists: these sightings are already in the rollups
+INSERT INTO sightings (id, bird_id, location, date_time, latitude, longitude)
+SELECT id, bird_id, location, date_time, latitude, longitude FROM sightings_unpartitioned;
+
+DROP TABLE sightings_unpartitioned;
+
+-- The query indexes of V2 and V4, now created on every partition
+CREATE INDEX IF NOT EXISTS idx_sightings_id ON sightings (id);
+CREATE INDEX IF NOT EXISTS idx_sightings_bird_date_time ON sightings (bird_id, date_time);
+CREATE INDEX IF NOT EXISTS idx_sightings_location_date_time ON sightings (location, date_time);
+CREATE INDEX IF NOT EXISTS brin_sightings_date_time ON sightings USING brin (date_time);
+CREATE INDEX IF NOT EXISTS gist_sightings_position ON sightings USING gist (point(longitude, latitude));
+
+CREATE TRIGGER sightings_rollup_delta
+    AFTER INSERT OR DELETE OR UPDATE OF bird_id, location, date_time ON sightings
+    FOR EACH ROW EXECUTE FUNCTION record_sighting_rollup_delta();
@@ -0,0 +1,13 @@
+-- Checkpoints of bulk sighting imports (SightingImportService). Each chunk of an import is
+-- copied into sightings and recorded here in the same transaction, so after an interruption
+-- the import resumes exactly after the last committed record.
+
+CREATE TABLE IF NOT EXISTS sighting_imports (
+    import_id  VARCHAR(100) NOT NULL PRIMARY KEY,
+    -- Input records consumed, including rejected ones
+    records    BIGINT NOT NULL,
+    imported   BIGINT NOT NULL,
+    rejected   BIGINT NOT NULL,
+    complete   BOOLEAN NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,15 @@
+-- Client-supplied Idempotency-Key values of sighting writes (IdempotencyKeys). The key is
+-- recorded in the transaction that inserts the sighting, so a retried request finds it and
+-- gets the original sighting back instead of inserting a duplicate. The unique key lives here
+-- rather than on sightings because a unique index on the partitioned table would have to
+-- include date_time.
+
+CREATE TABLE IF NOT EXISTS sighting_idempotency_keys (
+    idempotency_key VARCHAR(255) NOT NULL PRIMARY KEY,
+    sighting_id     BIGINT NOT NULL,
+    created_at      TIMESTAMP NOT NULL
+);
+
+-- Expired keys are deleted by age
+CREATE INDEX IF NOT EXISTS idx_sighting_idempotency_keys_created_at
+    ON sighting_idempotency_keys (created_at);
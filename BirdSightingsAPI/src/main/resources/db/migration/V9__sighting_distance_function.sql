@@ -0,0 +1,15 @@
+-- Haversine distance in kilometres between (longitude, latitude) and (center_longitude,
+-- center_latitude), used by radius filters (SpatialFunctions.DISTANCE_KM).
+--
+-- A function rather than an inline SQL template: criteria literals are sent as bind
+-- parameters (HibernateConfig), and a template that repeats or reorders its arguments renders
+-- placeholders that no longer line up with the values Hibernate binds. Here each argument
+-- appears once, in order. Being IMMUTABLE SQL, the call is inlined by the planner.
+CREATE OR REPLACE FUNCTION sighting_distance_km(longitude DOUBLE PRECISION, latitude DOUBLE PRECISION,
+                                                center_longitude DOUBLE PRECISION, center_latitude DOUBLE PRECISION)
+RETURNS DOUBLE PRECISION AS $$
+    SELECT 2 * 6371.0088 * asin(least(1, sqrt(
+        power(sin(radians(latitude - center_latitude) / 2), 2)
+        + cos(radians(latitude)) * cos(radians(center_latitude))
+          * power(sin(radians(longitude - center_longitude) / 2), 2))))
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
@@ -0,0 +1,72 @@
+package com.velocity.itest.avian;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * PostgreSQL for tests that need the real database: the Flyway migrations with their
+ * functions, triggers and partitions, and PostgreSQL-only SQL. One embedded server is started
+ * per test JVM; every test class gets a database of its own, so rows one class commits are
+ * never seen by another.
+ *
+ * Use from a @DynamicPropertySource method, together with
+ * {@code @AutoConfigureTestDatabase(replace = Replace.NONE)} on slice tests. PostgreSQL does
+ * not run as root, so neither do these tests.
+ */
+public final class PostgresTestDatabase {
+
+    private static EmbeddedPostgres server;
+
+    private PostgresTestDatabase() {
+    }
+
+    /**
+     * Creates an empty database for the test class and points spring.datasource at it. Flyway
+     * builds the schema instead of Hibernate.
+     */
+    public static void register(DynamicPropertyRegistry registry, Class<?> testClass) {
+        String url = createDatabase(testClass.getSimpleName().toLowerCase(Locale.ROOT));
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    /**
+     * @return The JDBC URL of a new, empty database; user postgres, no password.
+     */
+    public static synchronized String createDatabase(String name) {
+        try {
+            if (server == null) {
+                server = EmbeddedPostgres.builder().start();
+                EmbeddedPostgres started = server;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        started.close();
+                    } catch (IOException e) {
+                        // The process is exiting anyway
+                    }
+                }));
+            }
+            try (Connection connection = server.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP DATABASE IF EXISTS " + name);
+                statement.execute("CREATE DATABASE " + name);
+            }
+            return server.getJdbcUrl("postgres", name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test database " + name, e);
+        }
+    }
+}
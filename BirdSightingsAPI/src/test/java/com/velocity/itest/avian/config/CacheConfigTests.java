@@ -0,0 +1,45 @@
+package com.velocity.itest.avian.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.service.BirdService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CacheConfigTests {
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictionInATransactionWaitsForTheCommit() {
+        CacheProperties properties = new CacheProperties();
+        properties.setCacheNames(List.of(BirdService.BIRD_BY_ID));
+        CacheManager cacheManager = new CacheConfig().cacheManager(properties);
+        Cache cache = cacheManager.getCache(BirdService.BIRD_BY_ID);
+        cache.put(1L, "old");
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evict(1L);
+        // A reader before the commit still sees the entry; the database still has the old row too
+        assertEquals("old", cache.get(1L).get());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertNull(cache.get(1L));
+    }
+}
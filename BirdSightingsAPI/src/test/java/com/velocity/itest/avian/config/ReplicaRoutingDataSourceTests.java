@@ -0,0 +1,155 @@
+package com.velocity.itest.avian.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTests {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(200);
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readsGoToACaughtUpReplicaAndWritesToThePrimary() throws Exception {
+        ReplicaRoutingDataSource routing = routing(0.1);
+
+        assertEquals("replica-0", readKey(routing));
+        assertEquals("primary", routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void readsGoToThePrimaryWhileNoReplicaIsCaughtUp() throws Exception {
+        assertEquals("primary", readKey(routing(1.0)));
+        assertEquals("primary", readKey(routing(Double.POSITIVE_INFINITY)));
+        // Never checked
+        ReplicaRoutingDataSource unchecked = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), MAX_LAG);
+        assertEquals("primary", readKey(unchecked));
+    }
+
+    @Test
+    void readsOfEveryThreadGoToThePrimaryForTheLagWindowAfterAWrite() throws Exception {
+        ReplicaRoutingDataSource routing = routing(0.1);
+
+        Thread writer = new Thread(routing::writeCommitted);
+        writer.start();
+        writer.join();
+        assertEquals("primary", readKey(routing));
+
+        Thread.sleep(MAX_LAG.toMillis() + 50);
+        assertEquals("replica-0", readKey(routing));
+    }
+
+    @Test
+    void writeTransactionOpensTheWindowBeforeItCommits() throws Exception {
+        ReplicaRoutingDataSource routing = routing(0.1);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertEquals("primary", routing.determineCurrentLookupKey());
+        // Connection taken but not committed: other readers are unaffected so far
+        assertEquals("replica-0", readKey(routing));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        assertEquals("primary", readKey(routing));
+    }
+
+    @Test
+    void lagIsMeasuredAgainstThePrimary() throws Exception {
+        // The lag query compares the replica with the primary's WAL position; on a server that
+        // is not in recovery it reports no lag, which checks that the SQL itself is valid
+        PGSimpleDataSource database = new PGSimpleDataSource();
+        database.setURL(PostgresTestDatabase.createDatabase("replicaroutingdatasourcetests"));
+        database.setUser("postgres");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database, Map.of("replica-0", database), MAX_LAG);
+        routing.afterPropertiesSet();
+        routing.checkLag();
+        assertEquals(0.0, routing.getLagSeconds().get("replica-0"));
+
+        // Without the primary to compare with, a replica cannot be shown to be caught up
+        DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+        routing = new ReplicaRoutingDataSource(unreachable, Map.of("replica-0", database), MAX_LAG);
+        routing.afterPropertiesSet();
+        routing.checkLag();
+        assertEquals(Double.POSITIVE_INFINITY, routing.getLagSeconds().get("replica-0"));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() throws Exception {
+        ReplicaRoutingDataSource routing = routing(0.1);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(connection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(connection, routing.getConnection());
+        assertEquals(Double.POSITIVE_INFINITY, routing.getLagSeconds().get("replica-0"));
+    }
+
+    // A routing data source whose replica has just been measured at the given lag
+    private ReplicaRoutingDataSource routing(double lagSeconds) throws SQLException {
+        Connection primaryConnection = mock(Connection.class);
+        Statement lsnStatement = mock(Statement.class);
+        ResultSet lsn = mock(ResultSet.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(primaryConnection.createStatement()).thenReturn(lsnStatement);
+        when(lsnStatement.executeQuery(anyString())).thenReturn(lsn);
+        when(lsn.next()).thenReturn(true);
+        when(lsn.getString(1)).thenReturn("0/16B3748");
+
+        Connection replicaConnection = mock(Connection.class);
+        PreparedStatement lagStatement = mock(PreparedStatement.class);
+        ResultSet lag = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.prepareStatement(anyString())).thenReturn(lagStatement);
+        when(lagStatement.executeQuery()).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        when(lag.getDouble(1)).thenReturn(lagSeconds);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), MAX_LAG);
+        routing.afterPropertiesSet();
+        routing.checkLag();
+        return routing;
+    }
+
+    private static String readKey(ReplicaRoutingDataSource routing) {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            return (String) routing.determineCurrentLookupKey();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.velocity.itest.avian.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.service.IdempotencyKeys;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// The synchronous Idempotency-Key path, with the key held by transactions still in progress
+@SpringBootTest
+@AutoConfigureMockMvc
+class SightingIdempotencyTests {
+
+    private static final long BIRD = 1001;
+    private static final long OTHER_BIRD = 1002;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SightingIdempotencyTests.class);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DELETE FROM sighting_idempotency_keys");
+        jdbcTemplate.execute("DELETE FROM sightings");
+        jdbcTemplate.execute("DELETE FROM birds");
+        jdbcTemplate.execute("INSERT INTO birds (id, name, color, weight, height) VALUES"
+                + " (" + BIRD + ", 'Eagle', 'Brown', 5.5, 75.0), (" + OTHER_BIRD + ", 'Owl', 'White', 1.5, 40.0)");
+    }
+
+    @Test
+    void retryGetsTheOriginalSightingAndAConcurrentOneIsToldToRetry() throws Exception {
+        MockHttpServletResponse first;
+        try (Connection locking = dataSource.getConnection()) {
+            locking.setAutoCommit(false);
+            // Holds the first request's insert at its foreign key check, before the commit
+            try (Statement statement = locking.createStatement()) {
+                statement.execute("SELECT 1 FROM birds WHERE id = " + BIRD + " FOR UPDATE");
+            }
+            CompletableFuture<MockHttpServletResponse> inFlight = postAsync("key-1", BIRD, "Hide");
+            awaitBlocked();
+
+            MockHttpServletResponse concurrent = postSighting("key-1", BIRD, "Hide");
+            assertEquals(409, concurrent.getStatus());
+            assertEquals("1", concurrent.getHeader(HttpHeaders.RETRY_AFTER));
+
+            locking.rollback();
+            first = inFlight.get();
+        }
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader("Idempotent-Replayed"));
+
+        MockHttpServletResponse retry = postSighting("key-1", BIRD, "Hide");
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertEquals(id(first), id(retry));
+        assertEquals(1, count());
+    }
+
+    @Test
+    void rolledBackInsertReleasesTheKey() throws Exception {
+        MockHttpServletResponse first;
+        try (Connection deleting = dataSource.getConnection()) {
+            deleting.setAutoCommit(false);
+            try (Statement statement = deleting.createStatement()) {
+                statement.execute("DELETE FROM birds WHERE id = " + BIRD);
+            }
+            // The bird is still cached, so the insert is attempted and fails once the delete commits
+            CompletableFuture<MockHttpServletResponse> inFlight = postAsync("key-2", BIRD, "Hide");
+            awaitBlocked();
+            deleting.commit();
+            first = inFlight.get();
+        }
+        assertEquals(409, first.getStatus());
+        assertNull(first.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(0, count());
+
+        MockHttpServletResponse retry = postSighting("key-2", OTHER_BIRD, "Hide");
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader("Idempotent-Replayed"));
+        assertEquals(1, count());
+    }
+
+    private CompletableFuture<MockHttpServletResponse> postAsync(String key, long birdId, String location) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return postSighting(key, birdId, location);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private MockHttpServletResponse postSighting(String key, long birdId, String location) throws Exception {
+        String body = "{\"bird\":{\"id\":" + birdId + "},\"location\":\"" + location
+                + "\",\"dateTime\":\"2024-05-01T12:00:00\"}";
+        return mockMvc.perform(post("/api/v1/sightings")
+                        .header(IdempotencyKeys.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    // Until some session of this database waits for a lock
+    private void awaitBlocked() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            Integer waiting = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity"
+                    + " WHERE datname = current_database() AND wait_event_type = 'Lock'", Integer.class);
+            if (waiting != null && waiting > 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("The first request never reached the database");
+    }
+
+    private long id(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString()).path("id").asLong();
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM sightings", Long.class);
+    }
+}
@@ -0,0 +1,35 @@
+package com.velocity.itest.avian.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SightingFilterTests {
+
+    @Test
+    void cursorAloneIsNoFilter() {
+        SightingFilter filter = new SightingFilter();
+        filter.setAfterId(0L);
+        assertFalse(filter.isValid());
+
+        filter.setAll(true);
+        assertTrue(filter.isValid());
+    }
+
+    @Test
+    void limitIsCappedAndMustBePositive() {
+        SightingFilter filter = new SightingFilter();
+        filter.setBirdId(1L);
+        assertNull(filter.getLimit());
+
+        filter.setLimit(Integer.MAX_VALUE);
+        assertTrue(filter.isValid());
+        assertEquals(SightingFilter.MAX_LIMIT, filter.getLimit());
+
+        filter.setLimit(0);
+        assertFalse(filter.isValid());
+    }
+}
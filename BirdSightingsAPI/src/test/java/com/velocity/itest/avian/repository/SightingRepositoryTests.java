@@ -0,0 +1,168 @@
+package com.velocity.itest.avian.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.entity.SightingEventListener;
+import com.velocity.itest.avian.entity.SightingReadModelListener;
+import com.velocity.itest.avian.entity.TableVersionListener;
+import com.velocity.itest.avian.service.SightingEventBroadcaster;
+import com.velocity.itest.avian.service.SightingEventRelay;
+import com.velocity.itest.avian.service.SightingReadModel;
+import com.velocity.itest.avian.service.TableVersions;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({TableVersions.class, TableVersionListener.class, SightingEventBroadcaster.class, SightingEventRelay.class,
+        SightingEventListener.class, SightingReadModelListener.class})
+class SightingRepositoryTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    // Disabled, as by default; the real one needs the service layer
+    @MockBean
+    private SightingReadModel sightingReadModel;
+
+    private Bird eagle;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        eagle = entityManager.persist(new Bird("Eagle", "Brown", 5.5, 75.0));
+        Bird sparrow = entityManager.persist(new Bird("Sparrow", "Grey", 0.05, 15.0));
+        Bird robin = entityManager.persist(new Bird("Robin", "Red", 0.1, 20.0));
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(new Sighting(eagle, "Grand Canyon", LocalDateTime.now().minusDays(i)));
+            entityManager.persist(new Sighting(sparrow, "City Park", LocalDateTime.now().minusDays(i)));
+            entityManager.persist(new Sighting(robin, "City Park", LocalDateTime.now().minusDays(i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllFetchesBirdsInOneStatement() {
+        List<Sighting> sightings = sightingRepository.findAll();
+        sightings.forEach(sighting -> assertNotNull(sighting.getBird().getName()));
+
+        assertEquals(15, sightings.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByLocationFetchesBirdsInOneStatement() {
+        List<Sighting> sightings = sightingRepository.findByLocation("City Park");
+        sightings.forEach(sighting -> assertNotNull(sighting.getBird().getName()));
+
+        assertEquals(10, sightings.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void dtoProjectionIsOneStatement() {
+        List<SightingDto> sightings = sightingRepository.findAllDtos();
+
+        assertEquals(15, sightings.size());
+        sightings.forEach(sighting -> assertNotNull(sighting.getBird().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void dtoProjectionByBirdIdIsOneStatement() {
+        List<SightingDto> sightings = sightingRepository.findDtosByBirdId(eagle.getId());
+
+        assertEquals(5, sightings.size());
+        sightings.forEach(sighting -> assertEquals("Eagle", sighting.getBird().getName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void specificationCombinesLocationAndStartDate() {
+        SightingFilter filter = new SightingFilter();
+        filter.setLocation("City Park");
+        filter.setStartDate(LocalDateTime.now().minusDays(2).minusHours(1));
+
+        List<SightingDto> sightings = sightingRepository.findDtos(
+                SightingSpecifications.matching(filter), filter.toSort(), null);
+
+        // Two birds at City Park, three days each within the window
+        assertEquals(6, sightings.size());
+        sightings.forEach(sighting -> assertEquals("City Park", sighting.getLocation()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void specificationAppliesSortAndLimitInSql() {
+        SightingFilter filter = new SightingFilter();
+        filter.setBirdId(eagle.getId());
+        filter.setSort("dateTime");
+        filter.setDirection(Sort.Direction.DESC);
+
+        List<SightingDto> sightings = sightingRepository.findDtos(
+                SightingSpecifications.matching(filter), filter.toSort(), 2);
+
+        assertEquals(2, sightings.size());
+        assertTrue(sightings.get(0).getDateTime().isAfter(sightings.get(1).getDateTime()));
+    }
+
+    @Test
+    void dateTimePagesReachSightingsWithoutATime() {
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(new Sighting(eagle, "Backyard", null));
+        }
+        entityManager.flush();
+        List<Long> expected = sightingRepository.findAll().stream()
+                .sorted(Comparator.comparing(Sighting::getDateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Sighting::getId))
+                .map(Sighting::getId)
+                .collect(Collectors.toList());
+
+        // 18 sightings in pages of 4: the fourth page ends on one without a time, the fifth is short
+        List<Long> paged = new ArrayList<>();
+        LocalDateTime afterDateTime = null;
+        Long afterId = null;
+        List<Sighting> page;
+        do {
+            page = sightingRepository.findPageByDateTime(afterDateTime, afterId, PageRequest.of(0, 4));
+            page.forEach(sighting -> paged.add(sighting.getId()));
+            if (!page.isEmpty()) {
+                afterDateTime = page.get(page.size() - 1).getDateTime();
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 4);
+
+        assertEquals(expected, paged);
+    }
+}
@@ -0,0 +1,146 @@
+package com.velocity.itest.avian.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.config.HibernateConfig;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.entity.SightingEventListener;
+import com.velocity.itest.avian.entity.SightingReadModelListener;
+import com.velocity.itest.avian.entity.TableVersionListener;
+import com.velocity.itest.avian.service.SightingEventBroadcaster;
+import com.velocity.itest.avian.service.SightingEventRelay;
+import com.velocity.itest.avian.service.SightingReadModel;
+import com.velocity.itest.avian.service.SightingStatsService;
+import com.velocity.itest.avian.service.TableVersions;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// The rollup trigger and fold must keep every statistic equal to counting the sightings table
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({HibernateConfig.class, TableVersions.class, TableVersionListener.class, SightingEventBroadcaster.class,
+        SightingEventRelay.class, SightingEventListener.class, SightingReadModelListener.class, SightingStatsService.class})
+class SightingRollupTests {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SightingRollupTests.class);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SightingDailyCountRepository sightingDailyCountRepository;
+
+    @Autowired
+    private SightingStatsService sightingStatsService;
+
+    @MockBean
+    private SightingReadModel sightingReadModel;
+
+    @Test
+    void statsMatchRawCountsAfterInsertsUpdatesAndDeletes() {
+        Bird eagle = entityManager.persist(new Bird("Eagle", "Brown", 5.5, 75.0));
+        Bird sparrow = entityManager.persist(new Bird("Sparrow", "Grey", 0.05, 15.0));
+        Bird owl = entityManager.persist(new Bird("Owl", "White", 1.5, 40.0));
+
+        // Missing locations, dates and birds, and several sightings sharing a key
+        Sighting moved = sighting(eagle, "Grand Canyon", NOON);
+        sighting(eagle, "Grand Canyon", NOON.plusHours(3));
+        sighting(eagle, "Flagstaff", NOON.plusDays(1));
+        Sighting renamed = sighting(sparrow, "Grand Canyon", NOON);
+        Sighting deleted = sighting(sparrow, "Backyard", NOON.minusDays(8));
+        sighting(sparrow, "Backyard", NOON.minusDays(8));
+        Sighting dated = sighting(sparrow, null, null);
+        Sighting undated = sighting(owl, null, NOON.plusMonths(1));
+        Sighting lastOfItsBird = sighting(owl, "Flagstaff", NOON.plusDays(1));
+        sighting(null, "Backyard", NOON);
+        entityManager.flush();
+        assertMatchesRawCounts(eagle.getId());
+
+        // Each kind of change to a counted column, into and out of the counted set
+        Sighting moving = reload(moved);
+        moving.setBird(entityManager.find(Bird.class, sparrow.getId()));
+        moving.setDateTime(NOON.plusDays(2));
+        reload(renamed).setLocation("Page");
+        reload(dated).setDateTime(NOON.minusDays(1));
+        reload(undated).setDateTime(null);
+        entityManager.remove(reload(deleted));
+        entityManager.remove(reload(lastOfItsBird));
+        entityManager.flush();
+        assertMatchesRawCounts(owl.getId());
+    }
+
+    private void assertMatchesRawCounts(Long birdId) {
+        sightingDailyCountRepository.foldRollups();
+        entityManager.clear();
+
+        List<String> perBird = raw("SELECT bird_id, count(*) FROM sightings"
+                + " WHERE bird_id IS NOT NULL AND date_time IS NOT NULL GROUP BY bird_id ORDER BY count(*) DESC, bird_id");
+        assertFalse(perBird.isEmpty());
+        assertEquals(perBird, sightingStatsService.countsPerBird().stream()
+                .map(c -> c.getBirdId() + "|" + c.getCount()).collect(Collectors.toList()), "per bird");
+        assertEquals(raw("SELECT count(*) FROM sightings WHERE bird_id = " + birdId + " AND date_time IS NOT NULL").get(0),
+                String.valueOf(sightingStatsService.countForBird(birdId)), "one bird");
+
+        assertEquals(raw("SELECT coalesce(location, ''), count(*) FROM sightings"
+                        + " WHERE bird_id IS NOT NULL AND date_time IS NOT NULL"
+                        + " GROUP BY coalesce(location, '') ORDER BY count(*) DESC, coalesce(location, '')"),
+                sightingStatsService.topLocations(100).stream()
+                        .map(c -> c.getLocation() + "|" + c.getCount()).collect(Collectors.toList()), "per location");
+
+        String counted = " FROM sightings WHERE bird_id IS NOT NULL AND date_time IS NOT NULL";
+        String perDay = " GROUP BY cast(date_time AS date) ORDER BY cast(date_time AS date)";
+        assertEquals(raw("SELECT cast(date_time AS date), count(*)" + counted + perDay),
+                days(null, null), "per day");
+        assertEquals(raw("SELECT cast(date_time AS date), count(*)" + counted + " AND bird_id = " + birdId + perDay),
+                days(birdId, null), "per day for one bird");
+        assertEquals(raw("SELECT cast(date_time AS date), count(*)" + counted + " AND location = 'Grand Canyon'" + perDay),
+                days(null, "Grand Canyon"), "per day at one location");
+    }
+
+    private List<String> days(Long birdId, String location) {
+        return sightingStatsService.timeline(SightingStatsService.Bucket.DAY, birdId, location, null, null).stream()
+                .map(b -> b.getStart() + "|" + b.getCount())
+                .collect(Collectors.toList());
+    }
+
+    // Each row's columns joined with '|', in query order
+    @SuppressWarnings("unchecked")
+    private List<String> raw(String sql) {
+        List<Object> rows = entityManager.getEntityManager().createNativeQuery(sql).getResultList();
+        return rows.stream()
+                .map(row -> row instanceof Object[]
+                        ? Arrays.stream((Object[]) row).map(String::valueOf).collect(Collectors.joining("|"))
+                        : String.valueOf(row))
+                .collect(Collectors.toList());
+    }
+
+    // Checking the counts clears the persistence context
+    private Sighting reload(Sighting sighting) {
+        return entityManager.find(Sighting.class, sighting.getId());
+    }
+
+    private Sighting sighting(Bird bird, String location, LocalDateTime dateTime) {
+        return entityManager.persist(new Sighting(bird, location, dateTime));
+    }
+}
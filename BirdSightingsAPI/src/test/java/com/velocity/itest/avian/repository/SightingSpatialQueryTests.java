@@ -0,0 +1,124 @@
+package com.velocity.itest.avian.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.config.HibernateConfig;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.entity.SightingEventListener;
+import com.velocity.itest.avian.entity.SightingReadModelListener;
+import com.velocity.itest.avian.entity.TableVersionListener;
+import com.velocity.itest.avian.service.SightingEventBroadcaster;
+import com.velocity.itest.avian.service.SightingEventRelay;
+import com.velocity.itest.avian.service.SightingReadModel;
+import com.velocity.itest.avian.service.TableVersions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Box and radius filters render PostgreSQL geometry SQL, so these run against PostgreSQL, with
+// the production Hibernate settings (functions registered, criteria literals bound)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({HibernateConfig.class, TableVersions.class, TableVersionListener.class, SightingEventBroadcaster.class,
+        SightingEventRelay.class, SightingEventListener.class, SightingReadModelListener.class})
+class SightingSpatialQueryTests {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SightingSpatialQueryTests.class);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    @MockBean
+    private SightingReadModel sightingReadModel;
+
+    private Bird eagle;
+
+    @BeforeEach
+    void setUp() {
+        eagle = entityManager.persist(new Bird("Eagle", "Brown", 5.5, 75.0));
+        // Grand Canyon Village, then points roughly 40, 80 and 150 km away
+        sighting("Grand Canyon", 36.0544, -112.1401);
+        sighting("Flagstaff area", 35.6900, -112.1401);
+        sighting("Page area", 36.0544, -111.2500);
+        sighting("Las Vegas area", 36.1699, -113.8000);
+        // Either side of the antimeridian, about 22 km apart
+        sighting("Taveuni", -16.8000, 179.9000);
+        sighting("Taveuni east", -16.8000, -179.9000);
+        sighting("Vanua Levu", -16.8000, 179.0000);
+        entityManager.persist(new Sighting(eagle, "No coordinates", LocalDateTime.now()));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void radiusUsesTheCentreAndRadiusAsGiven() {
+        assertEquals(Set.of("Grand Canyon", "Flagstaff area"), locationsWithinRadius(36.0544, -112.1401, 60));
+        assertEquals(Set.of("Grand Canyon", "Flagstaff area", "Page area"),
+                locationsWithinRadius(36.0544, -112.1401, 100));
+        // Latitude and longitude are not interchangeable: a swapped centre would match nothing
+        assertEquals(Set.of("Flagstaff area"), locationsWithinRadius(35.6900, -112.1401, 1));
+    }
+
+    @Test
+    void radiusCrossesTheAntimeridian() {
+        assertEquals(Set.of("Taveuni", "Taveuni east"), locationsWithinRadius(-16.8000, 179.9000, 50));
+        assertEquals(Set.of("Taveuni", "Taveuni east"), locationsWithinRadius(-16.8000, -179.9000, 50));
+    }
+
+    @Test
+    void boxCombinesWithOtherFilters() {
+        SightingFilter filter = new SightingFilter();
+        filter.setBirdId(eagle.getId());
+        filter.setMinLatitude(35.0);
+        filter.setMaxLatitude(37.0);
+        filter.setMinLongitude(-113.0);
+        filter.setMaxLongitude(-111.0);
+
+        List<SightingDto> sightings = sightingRepository.findDtos(
+                SightingSpecifications.matching(filter), Sort.by("id"), null);
+
+        assertEquals(Set.of("Grand Canyon", "Flagstaff area", "Page area"), locations(sightings));
+    }
+
+    private Set<String> locationsWithinRadius(double latitude, double longitude, double radiusKm) {
+        SightingFilter filter = new SightingFilter();
+        filter.setLatitude(latitude);
+        filter.setLongitude(longitude);
+        filter.setRadiusKm(radiusKm);
+        return locations(sightingRepository.findDtos(SightingSpecifications.matching(filter), Sort.by("id"), null));
+    }
+
+    private static Set<String> locations(List<SightingDto> sightings) {
+        return sightings.stream().map(SightingDto::getLocation).collect(Collectors.toSet());
+    }
+
+    private void sighting(String location, double latitude, double longitude) {
+        Sighting sighting = new Sighting(eagle, location, LocalDateTime.now());
+        sighting.setLatitude(latitude);
+        sighting.setLongitude(longitude);
+        entityManager.persist(sighting);
+    }
+}
@@ -0,0 +1,76 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// What other writers announce must reach everything derived from the tables
+class ExternalSightingChangesTests {
+
+    private final TableVersions tableVersions = mock(TableVersions.class);
+    private final SightingEventBroadcaster sightingEventBroadcaster = mock(SightingEventBroadcaster.class);
+    private final SightingReadModel sightingReadModel = mock(SightingReadModel.class);
+    private final ExternalSightingChanges changes = new ExternalSightingChanges();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        changes.stop();
+    }
+
+    @Test
+    void notificationInvalidatesTheSightingsTable() throws Exception {
+        notifyUntilHeard(ExternalSightingChanges.CHANNEL, "", sightingReadModel);
+
+        verify(tableVersions, timeout(1000).atLeastOnce()).sightingsChanged();
+        verify(sightingEventBroadcaster, timeout(1000).atLeastOnce()).resync();
+        verify(sightingReadModel, timeout(1000).atLeastOnce()).reload();
+    }
+
+    // What the table triggers send after a write made through any instance
+    @Test
+    void tableNotificationMovesTheVersionOnWithoutReloading() throws Exception {
+        notifyUntilHeard(TableVersions.CHANGE_CHANNEL, "birds", tableVersions);
+
+        verify(tableVersions, atLeastOnce()).birdsChanged();
+        verify(sightingReadModel, never()).reload();
+        verify(sightingEventBroadcaster, never()).resync();
+    }
+
+    private void notifyUntilHeard(String channel, String payload, Object listener) throws Exception {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(PostgresTestDatabase.createDatabase("externalsightingchangestests"));
+        properties.setUsername("postgres");
+        ReflectionTestUtils.setField(changes, "dataSourceProperties", properties);
+        ReflectionTestUtils.setField(changes, "tableVersions", tableVersions);
+        ReflectionTestUtils.setField(changes, "sightingEventBroadcaster", sightingEventBroadcaster);
+        ReflectionTestUtils.setField(changes, "sightingReadModel", sightingReadModel);
+        ReflectionTestUtils.setField(changes, "sightingEventRelay", mock(SightingEventRelay.class));
+        ReflectionTestUtils.setField(changes, "minInterval", Duration.ofMillis(10));
+        changes.start();
+
+        // The listener connects in the background; notify until it has heard one
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        try (Connection connection = DriverManager.getConnection(properties.getUrl(), "postgres", null);
+             Statement statement = connection.createStatement()) {
+            while (mockingDetails(listener).getInvocations().isEmpty() && System.nanoTime() < deadline) {
+                statement.execute("SELECT pg_notify('" + channel + "', '" + payload + "')");
+                Thread.sleep(50);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingBufferTests {
+
+    @Test
+    void refusesOffersOnceFullUntilDrained() {
+        // Rounded up to four slots
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(1, ring.drainTo(drained, 1));
+        assertTrue(ring.offer(4));
+        assertFalse(ring.offer(5));
+        assertEquals(List.of(0), drained);
+    }
+
+    @Test
+    void keepsOrderAcrossTheWrap() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        // Ten laps of a four-slot ring, never quite full and never quite empty
+        for (int lap = 0; lap < 10; lap++) {
+            while (ring.offer(next)) {
+                next++;
+            }
+            ring.drainTo(drained, 3);
+        }
+        while (ring.drainTo(drained, 4) > 0) {
+            // Drain the rest
+        }
+        assertTrue(ring.isEmpty());
+        assertEquals(next, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    void deliversEveryElementOfConcurrentProducers() throws InterruptedException {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 5_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        while (drained.size() < producers * perProducer) {
+            if (ring.drainTo(drained, 16) == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Each producer's elements arrive in the order it offered them
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int element : drained) {
+            int producer = element / perProducer;
+            assertTrue(element % perProducer > last[producer]);
+            last[producer] = element % perProducer;
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
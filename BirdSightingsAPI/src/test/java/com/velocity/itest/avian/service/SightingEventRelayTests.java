@@ -0,0 +1,154 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.dto.SightingEventDto;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Sightings written through one instance must reach the feeds of the others, once
+class SightingEventRelayTests {
+
+    private static final int SIGHTINGS = 100;
+
+    private String url;
+    private Connection listening;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        url = PostgresTestDatabase.createDatabase("sightingeventrelaytests");
+        listening = DriverManager.getConnection(url, "postgres", null);
+        try (Statement statement = listening.createStatement()) {
+            statement.execute("LISTEN " + SightingEventRelay.CHANNEL);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        listening.close();
+    }
+
+    @Test
+    void committedEventsReachOtherInstancesOnly() throws Exception {
+        SightingEventBroadcaster writerFeed = feed();
+        SightingEventBroadcaster otherFeed = feed();
+        SightingEventRelay writer = relay(writerFeed);
+        SightingEventRelay other = relay(otherFeed);
+
+        List<SightingDto> sightings = new ArrayList<>();
+        for (int i = 0; i < SIGHTINGS; i++) {
+            sightings.add(sighting(i));
+        }
+        try (Connection connection = DriverManager.getConnection(url, "postgres", null)) {
+            connection.setAutoCommit(false);
+            writer.relayCreated(connection, sightings);
+            connection.rollback();
+            assertTrue(notifications(1).isEmpty(), "a rolled back write sends nothing");
+
+            writer.relayCreated(connection, sightings);
+            connection.commit();
+        }
+
+        // Long locations: more than one notification's worth
+        List<String> payloads = notifications(SIGHTINGS);
+        assertTrue(payloads.size() > 1);
+        for (String payload : payloads) {
+            writer.received(payload);
+            other.received(payload);
+        }
+
+        verify(writerFeed, never()).publish(anyString(), any());
+        ArgumentCaptor<SightingDto> published = ArgumentCaptor.forClass(SightingDto.class);
+        verify(otherFeed, times(SIGHTINGS)).publish(eq(SightingEventDto.CREATED),
+                published.capture());
+        for (int i = 0; i < SIGHTINGS; i++) {
+            SightingDto sighting = published.getAllValues().get(i);
+            assertEquals(sightings.get(i).getId(), sighting.getId());
+            assertEquals(sightings.get(i).getLocation(), sighting.getLocation());
+            assertEquals(sightings.get(i).getDateTime(), sighting.getDateTime());
+            assertEquals("Eagle", sighting.getBird().getName());
+        }
+    }
+
+    // Payloads received until the relayed events add up to at least the given number, or a quiet second
+    private List<String> notifications(int events) throws SQLException {
+        List<String> payloads = new ArrayList<>();
+        int received = 0;
+        while (received < events) {
+            PGNotification[] batch = listening.unwrap(PGConnection.class).getNotifications(1000);
+            if (batch == null || batch.length == 0) {
+                break;
+            }
+            for (PGNotification notification : batch) {
+                payloads.add(notification.getParameter());
+                received += notification.getParameter().split("\"type\"").length - 1;
+            }
+        }
+        return payloads;
+    }
+
+    private SightingEventRelay relay(SightingEventBroadcaster feed) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        BirdDto eagle = new BirdDto();
+        eagle.setId(1L);
+        eagle.setName("Eagle");
+        BirdService birdService = mock(BirdService.class);
+        when(birdService.findById(1L)).thenReturn(Optional.of(eagle));
+
+        SightingEventRelay relay = new SightingEventRelay();
+        ReflectionTestUtils.setField(relay, "dataSourceProperties", properties);
+        ReflectionTestUtils.setField(relay, "broadcaster", feed);
+        ReflectionTestUtils.setField(relay, "birdService", birdService);
+        ReflectionTestUtils.setField(relay, "listening", true);
+        relay.init();
+        return relay;
+    }
+
+    private static SightingEventBroadcaster feed() {
+        SightingEventBroadcaster feed = mock(SightingEventBroadcaster.class);
+        when(feed.hasSubscribers()).thenReturn(true);
+        return feed;
+    }
+
+    private static SightingDto sighting(int i) {
+        SightingDto sighting = new SightingDto();
+        sighting.setId(1000L + i);
+        sighting.setLocation("Grand Canyon, South Rim, Mather Point overlook, east of the visitor centre #" + i);
+        sighting.setDateTime(LocalDateTime.of(2024, 5, 1, 12, 0).plusMinutes(i));
+        sighting.setLatitude(36.0617);
+        sighting.setLongitude(-112.1075);
+        BirdDto bird = new BirdDto();
+        bird.setId(1L);
+        sighting.setBird(bird);
+        return sighting;
+    }
+}
@@ -0,0 +1,181 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.config.HibernateConfig;
+import com.velocity.itest.avian.dto.SightingImportResultDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.entity.SightingEventListener;
+import com.velocity.itest.avian.entity.SightingReadModelListener;
+import com.velocity.itest.avian.entity.TableVersionListener;
+import com.velocity.itest.avian.repository.BirdRepository;
+import com.velocity.itest.avian.repository.SightingRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Imports commit on connections of their own, next to JPA, so nothing here runs in a test transaction
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({HibernateConfig.class, JacksonAutoConfiguration.class, TableVersions.class, TableVersionListener.class,
+        SightingEventBroadcaster.class, SightingEventRelay.class, SightingEventListener.class,
+        SightingReadModelListener.class, SightingImportService.class})
+class SightingImportServiceTests {
+
+    private static final String HEADER = "birdName,location,dateTime,latitude,longitude\n";
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SightingImportServiceTests.class);
+    }
+
+    @TempDir
+    Path errorDir;
+
+    @Autowired
+    private SightingImportService importService;
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private SightingReadModel sightingReadModel;
+
+    private Bird eagle;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DELETE FROM sightings");
+        jdbcTemplate.execute("DELETE FROM sighting_imports");
+        jdbcTemplate.execute("DELETE FROM birds");
+        eagle = birdRepository.save(new Bird("Eagle", "Brown", 5.5, 75.0));
+        ReflectionTestUtils.setField(importService, "errorDir", errorDir);
+    }
+
+    @Test
+    void resumedImportSkipsCommittedRecordsAndRejectsEachRecordOnce() throws Exception {
+        int records = SightingImportService.CHUNK_SIZE + 3;
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= records; i++) {
+            String bird = i == 2 || i == SightingImportService.CHUNK_SIZE + 2 ? "Dodo" : "Eagle";
+            csv.append(bird).append(",Spot ").append(i).append(',').append(NOON.plusMinutes(i)).append(",,\n");
+        }
+        byte[] input = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        // Interrupted once the first chunk has committed
+        assertThrows(IllegalStateException.class, () -> importService.importSightings("resumed",
+                SightingImportService.Format.CSV, new ByteArrayInputStream(input), progress -> {
+                    throw new IllegalStateException("Interrupted");
+                }));
+        SightingImportResultDto interrupted = importService.findProgress("resumed").orElseThrow();
+        assertEquals(SightingImportService.CHUNK_SIZE, interrupted.getRecords());
+        assertEquals(SightingImportService.CHUNK_SIZE - 1, count("SELECT count(*) FROM sightings"));
+
+        // As if the next chunk's rejections had been written but its commit had never happened
+        Path errorFile = errorDir.resolve("resumed.rejected.csv");
+        Files.writeString(errorFile, (SightingImportService.CHUNK_SIZE + 2) + ",Bird not found: Dodo,Dodo\n",
+                StandardOpenOption.APPEND);
+
+        SightingImportResultDto result = importService.importSightings("resumed", SightingImportService.Format.CSV,
+                new ByteArrayInputStream(input), progress -> {
+                });
+
+        assertEquals(SightingImportService.CHUNK_SIZE, result.getResumedAfter());
+        assertEquals(records, result.getRecords());
+        assertEquals(records - 2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertTrue(result.isComplete());
+        assertEquals(records - 2, count("SELECT count(*) FROM sightings"));
+        assertEquals(records - 2, count("SELECT count(DISTINCT location) FROM sightings"));
+        assertEquals(List.of("record", "2", String.valueOf(SightingImportService.CHUNK_SIZE + 2)),
+                Files.readAllLines(errorFile).stream().map(line -> line.split(",")[0]).collect(Collectors.toList()));
+    }
+
+    @Test
+    void rejectedRecordsLandInTheErrorFileAsTheyWereRead() throws Exception {
+        String csv = HEADER
+                + "Eagle,Grand Canyon,2024-05-01T12:00,36.05,-112.14\n"
+                + "Dodo,Grand Canyon,2024-05-01T12:00,,\n"
+                + "Eagle,North Pole,2024-05-01T12:00,95,0\n"
+                + "Eagle,Flagstaff,2024-05-01T12:00\n"
+                + "Eagle,Page,yesterday,,\n"
+                + "Dodo,\"Page, Arizona\",2024-05-01T12:00,,\n";
+
+        SightingImportResultDto result = importService.importSightings("rejections", SightingImportService.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), progress -> {
+                });
+
+        assertEquals(6, result.getRecords());
+        assertEquals(1, result.getImported());
+        assertEquals(5, result.getRejected());
+        Path errorFile = errorDir.resolve("rejections.rejected.csv");
+        assertEquals(errorFile.toString(), result.getErrorFile());
+        assertEquals(List.of(
+                "record,error,input",
+                "2,Bird not found: Dodo,\"Dodo,Grand Canyon,2024-05-01T12:00,,\"",
+                "3,Coordinates out of range,\"Eagle,North Pole,2024-05-01T12:00,95,0\"",
+                "4,Expected 5 fields but found 3,\"Eagle,Flagstaff,2024-05-01T12:00\"",
+                "5,Invalid value: yesterday,\"Eagle,Page,yesterday,,\"",
+                "6,Bird not found: Dodo,\"Dodo,\"\"Page, Arizona\"\",2024-05-01T12:00,,\""),
+                Files.readAllLines(errorFile));
+    }
+
+    @Test
+    void importedIdsNeverCollideWithIdsHandedOutByJpa() throws Exception {
+        // JPA holds a block of ids it has not used up while each import takes blocks of its own
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 30; i++) {
+                sightingRepository.save(new Sighting(eagle, "Saved " + round + "-" + i, NOON.plusMinutes(i)));
+            }
+            StringBuilder csv = new StringBuilder(HEADER);
+            for (int i = 0; i < 70; i++) {
+                csv.append("Eagle,Imported ").append(round).append('-').append(i).append(',')
+                        .append(NOON.plusMinutes(i)).append(",,\n");
+            }
+            importService.importSightings("ids-" + round, SightingImportService.Format.CSV,
+                    new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), progress -> {
+                    });
+        }
+
+        assertEquals(300, count("SELECT count(*) FROM sightings"));
+        assertEquals(300, count("SELECT count(DISTINCT id) FROM sightings"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,190 @@
+package com.velocity.itest.avian.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+// Partitions are PostgreSQL-only, so runs against PostgreSQL; the other collaborators are mocks
+class SightingPartitionServiceTests {
+
+    private static final long BIRD = 1;
+    private static final DateTimeFormatter PARTITION = DateTimeFormatter.ofPattern("'sightings_y'yyyy'm'MM");
+    private static final String ARCHIVE_HEADER = "id,bird_id,location,date_time,latitude,longitude";
+
+    @TempDir
+    Path archiveDir;
+
+    private final LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+    private PGSimpleDataSource dataSource;
+    private TableVersions tableVersions;
+    private SightingEventBroadcaster sightingEventBroadcaster;
+    private SightingReadModel sightingReadModel;
+    private SightingPartitionService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setURL(PostgresTestDatabase.createDatabase("sightingpartitionservicetests"));
+        dataSource.setUser("postgres");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        execute("INSERT INTO birds (id, name, color, weight, height) VALUES (" + BIRD + ", 'Eagle', 'Brown', 5.5, 75.0)");
+
+        tableVersions = mock(TableVersions.class);
+        sightingEventBroadcaster = mock(SightingEventBroadcaster.class);
+        sightingReadModel = mock(SightingReadModel.class);
+        service = new SightingPartitionService();
+        ReflectionTestUtils.setField(service, "dataSource", dataSource);
+        ReflectionTestUtils.setField(service, "tableVersions", tableVersions);
+        ReflectionTestUtils.setField(service, "sightingEventBroadcaster", sightingEventBroadcaster);
+        ReflectionTestUtils.setField(service, "sightingReadModel", sightingReadModel);
+        ReflectionTestUtils.setField(service, "monthsAhead", 6);
+        ReflectionTestUtils.setField(service, "retentionMonths", 2);
+        ReflectionTestUtils.setField(service, "archiveDir", archiveDir);
+    }
+
+    @Test
+    void maintainArchivesAndDropsExpiredPartitionsWithoutTouchingTheRollups() throws Exception {
+        // Left detached by an interrupted run, half-way through its archive file
+        LocalDate leftover = thisMonth.minusMonths(8);
+        ensurePartitions(leftover, leftover);
+        insert(1, leftover);
+        insert(2, leftover);
+        // No partitions yet for these months, so all of them land in sightings_default
+        insert(3, thisMonth.minusMonths(6));
+        insert(4, thisMonth.minusMonths(4));
+        insert(5, thisMonth.minusMonths(3));
+        insert(6, thisMonth.minusMonths(2));
+        insert(7, thisMonth.minusMonths(1));
+        insert(8, null);
+        insert(9, thisMonth.plusMonths(5));
+        List<String> rollups = rollups();
+
+        execute("ALTER TABLE sightings DETACH PARTITION " + partition(leftover));
+        Files.writeString(archiveDir.resolve(partition(leftover) + ".csv.gz.part"), "interrupted");
+        // As an import of historical sightings does
+        ensurePartitions(thisMonth.minusMonths(6), thisMonth.minusMonths(1));
+        assertEquals(List.of(8L, 9L), ids("SELECT id FROM ONLY sightings_default ORDER BY id"));
+        assertEquals(List.of(3L), ids("SELECT id FROM " + partition(thisMonth.minusMonths(6))));
+
+        service.maintain();
+
+        // Expired by the retention period: every month up to three months ago
+        assertArchived(leftover, 1L, 2L);
+        assertArchived(thisMonth.minusMonths(6), 3L);
+        assertArchived(thisMonth.minusMonths(5));
+        assertArchived(thisMonth.minusMonths(4), 4L);
+        assertArchived(thisMonth.minusMonths(3), 5L);
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            assertFalse(files.anyMatch(file -> file.toString().endsWith(".part")));
+        }
+
+        assertEquals(List.of(6L, 7L, 8L, 9L), ids("SELECT id FROM sightings ORDER BY id"));
+        assertEquals(List.of(6L), ids("SELECT id FROM " + partition(thisMonth.minusMonths(2))));
+        // Moved out of sightings_default once maintain created its month
+        assertEquals(List.of(9L), ids("SELECT id FROM " + partition(thisMonth.plusMonths(5))));
+        assertEquals(List.of(8L), ids("SELECT id FROM ONLY sightings_default"));
+        // Statistics cover the archived history; moving rows between partitions is no change
+        assertEquals(rollups, rollups());
+
+        verify(tableVersions).sightingsChanged();
+        verify(sightingEventBroadcaster).resync();
+        verify(sightingReadModel).reload();
+    }
+
+    private void assertArchived(LocalDate month, Long... ids) throws Exception {
+        String table = partition(month);
+        assertEquals(List.of("f"), rows("SELECT to_regclass('" + table + "') IS NOT NULL"), table + " dropped");
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archiveDir.resolve(table + ".csv.gz"))), StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        assertEquals(ARCHIVE_HEADER, lines.get(0));
+        List<String> expected = new ArrayList<>();
+        for (Long id : ids) {
+            expected.add(id + "," + BIRD + ",Location " + id + "," + month.withDayOfMonth(15) + " 12:00:00,,");
+        }
+        assertEquals(expected, lines.subList(1, lines.size()), table);
+    }
+
+    // Every rollup table, folded first
+    private List<String> rollups() throws SQLException {
+        execute("SELECT fold_sighting_rollups()");
+        List<String> rollups = new ArrayList<>();
+        rollups.addAll(rows("SELECT bird_id, location, sighting_date, sighting_count FROM sighting_daily_counts"
+                + " ORDER BY bird_id, location, sighting_date"));
+        rollups.addAll(rows("SELECT bird_id, sighting_count FROM sighting_bird_counts ORDER BY bird_id"));
+        rollups.addAll(rows("SELECT location, sighting_count FROM sighting_location_counts ORDER BY location"));
+        return rollups;
+    }
+
+    private void ensurePartitions(LocalDate from, LocalDate to) throws SQLException {
+        execute("SELECT ensure_sighting_partitions('" + from + "', '" + to + "')");
+    }
+
+    private void insert(long id, LocalDate month) throws SQLException {
+        String dateTime = month == null ? "NULL" : "'" + month.withDayOfMonth(15) + " 12:00'";
+        execute("INSERT INTO sightings (id, bird_id, location, date_time) VALUES (" + id + ", " + BIRD
+                + ", 'Location " + id + "', " + dateTime + ")");
+    }
+
+    private String partition(LocalDate month) {
+        return PARTITION.format(month);
+    }
+
+    private List<Long> ids(String sql) throws SQLException {
+        return rows(sql).stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    // Each row's columns joined with '|', in query order
+    private List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            int columns = result.getMetaData().getColumnCount();
+            while (result.next()) {
+                List<String> values = new ArrayList<>(columns);
+                for (int i = 1; i <= columns; i++) {
+                    values.add(result.getString(i));
+                }
+                rows.add(String.join("|", values));
+            }
+        }
+        return rows;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
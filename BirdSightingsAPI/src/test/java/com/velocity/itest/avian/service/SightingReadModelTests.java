@@ -0,0 +1,221 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.entity.Bird;
+import com.velocity.itest.avian.entity.Sighting;
+import com.velocity.itest.avian.repository.BirdRepository;
+import com.velocity.itest.avian.repository.SightingFilter;
+import com.velocity.itest.avian.repository.SightingRepository;
+import com.velocity.itest.avian.repository.SightingSpecifications;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every filter, sort and limit must give what the database gives, row for row
+@SpringBootTest(properties = "avian.sightings.read-model.enabled=true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SightingReadModelTests {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SightingReadModelTests.class);
+    }
+
+    @Autowired
+    private SightingReadModel sightingReadModel;
+
+    @Autowired
+    private SightingRepository sightingRepository;
+
+    @Autowired
+    private BirdRepository birdRepository;
+
+    private Bird eagle;
+    private Bird sparrow;
+    private List<Long> ids;
+
+    @BeforeAll
+    void load() throws InterruptedException {
+        eagle = birdRepository.save(new Bird("Eagle", "Brown", 5.5, 75.0));
+        sparrow = birdRepository.save(new Bird("Sparrow", "Grey", 0.05, 15.0));
+        List<Sighting> sightings = new ArrayList<>();
+        // Sub-second times, equal times, missing dates, locations and coordinates, and both sides
+        // of the antimeridian
+        sightings.add(sighting(eagle, "Grand Canyon", NOON.plusNanos(123_456_000), 36.0544, -112.1401));
+        sightings.add(sighting(eagle, "Flagstaff area", NOON.plusNanos(123_457_000), 35.6900, -112.1401));
+        sightings.add(sighting(sparrow, "Grand Canyon", NOON, 36.0600, -112.1000));
+        sightings.add(sighting(sparrow, "Page area", NOON.minusDays(3), 36.0544, -111.2500));
+        sightings.add(sighting(eagle, "Las Vegas area", NOON.plusDays(2), 36.1699, -113.8000));
+        sightings.add(sighting(eagle, "Taveuni", NOON.plusDays(1), -16.8000, 179.9000));
+        sightings.add(sighting(sparrow, "Taveuni east", NOON.plusDays(1), -16.8000, -179.9000));
+        sightings.add(sighting(sparrow, "Backyard", null, null, null));
+        sightings.add(sighting(eagle, null, NOON.minusMonths(1), null, null));
+        sightings.add(sighting(sparrow, "Backyard", NOON, null, null));
+        sightings.add(sighting(eagle, "Grand Canyon", NOON.plusSeconds(1), 36.0544, -112.1401));
+        sightings = sightingRepository.saveAll(sightings);
+        ids = sightings.stream().map(Sighting::getId).sorted().collect(Collectors.toList());
+
+        sightingReadModel.reload();
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!sightingReadModel.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(sightingReadModel.isReady());
+    }
+
+    @Test
+    void allSightings() {
+        assertSameAsDatabase(filter -> filter.setAll(true), ids.size());
+    }
+
+    @Test
+    void bird() {
+        assertSameAsDatabase(filter -> filter.setBirdId(eagle.getId()), 6);
+        assertSameAsDatabase(filter -> filter.setBirdId(-1L), 0);
+    }
+
+    @Test
+    void location() {
+        assertSameAsDatabase(filter -> filter.setLocation("Grand Canyon"), 3);
+        assertSameAsDatabase(filter -> filter.setLocation("Nowhere"), 0);
+        assertSameAsDatabase(filter -> {
+            filter.setBirdId(sparrow.getId());
+            filter.setLocation("Backyard");
+        }, 2);
+    }
+
+    @Test
+    void timeRange() {
+        // Bounds inside a second, and sightings without a date
+        assertSameAsDatabase(filter -> {
+            filter.setStartDate(NOON.plusNanos(123_456_000));
+            filter.setEndDate(NOON.plusDays(1));
+        }, 5);
+        assertSameAsDatabase(filter -> filter.setStartDate(NOON.plusNanos(123_456_500)), 5);
+        assertSameAsDatabase(filter -> filter.setEndDate(NOON), 4);
+    }
+
+    @Test
+    void afterId() {
+        assertSameAsDatabase(filter -> {
+            filter.setAll(true);
+            filter.setAfterId(ids.get(4));
+        }, ids.size() - 5);
+        assertSameAsDatabase(filter -> {
+            filter.setBirdId(eagle.getId());
+            filter.setAfterId(ids.get(4));
+            filter.setLimit(2);
+        }, 2);
+    }
+
+    @Test
+    void box() {
+        assertSameAsDatabase(filter -> {
+            filter.setMinLatitude(35.0);
+            filter.setMaxLatitude(37.0);
+            filter.setMinLongitude(-113.0);
+            filter.setMaxLongitude(-111.0);
+        }, 5);
+        // Across the antimeridian
+        assertSameAsDatabase(filter -> {
+            filter.setMinLatitude(-20.0);
+            filter.setMaxLatitude(-10.0);
+            filter.setMinLongitude(179.0);
+            filter.setMaxLongitude(-179.0);
+        }, 2);
+    }
+
+    @Test
+    void radius() {
+        assertSameAsDatabase(filter -> {
+            filter.setLatitude(36.0544);
+            filter.setLongitude(-112.1401);
+            filter.setRadiusKm(60.0);
+        }, 4);
+        assertSameAsDatabase(filter -> {
+            filter.setLatitude(-16.8000);
+            filter.setLongitude(179.9000);
+            filter.setRadiusKm(50.0);
+            filter.setBirdId(sparrow.getId());
+        }, 1);
+    }
+
+    @Test
+    void sortAndLimit() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            assertSameAsDatabase(filter -> {
+                filter.setAll(true);
+                filter.setSort("dateTime");
+                filter.setDirection(direction);
+            }, ids.size());
+            assertSameAsDatabase(filter -> {
+                filter.setAll(true);
+                filter.setSort("dateTime");
+                filter.setDirection(direction);
+                filter.setLimit(4);
+            }, 4);
+            assertSameAsDatabase(filter -> {
+                filter.setLocation("Grand Canyon");
+                filter.setDirection(direction);
+                filter.setLimit(2);
+            }, 2);
+        }
+        assertSameAsDatabase(filter -> {
+            filter.setAll(true);
+            filter.setLimit(0);
+        }, 0);
+    }
+
+    @Test
+    void sortByLocationIsLeftToTheDatabase() {
+        SightingFilter filter = new SightingFilter();
+        filter.setAll(true);
+        filter.setSort("location");
+        assertTrue(sightingReadModel.query(filter).isEmpty());
+        assertTrue(sightingReadModel.stream(filter).isEmpty());
+    }
+
+    private void assertSameAsDatabase(Consumer<SightingFilter> criteria, int expectedCount) {
+        SightingFilter filter = new SightingFilter();
+        criteria.accept(filter);
+        List<String> expected = rows(sightingRepository.findDtos(
+                SightingSpecifications.matching(filter), filter.toSort(), filter.getLimit()).stream());
+        assertEquals(expectedCount, expected.size(), "database");
+        assertEquals(expected, rows(sightingReadModel.query(filter).orElseThrow().stream()), "query");
+        assertEquals(expected, rows(sightingReadModel.stream(filter).orElseThrow()), "stream");
+    }
+
+    // Everything a response shows, in order
+    private static List<String> rows(Stream<SightingDto> sightings) {
+        return sightings.map(s -> s.getId() + "|" + s.getLocation() + "|" + s.getDateTime() + "|" + s.getLatitude()
+                + "|" + s.getLongitude() + "|" + (s.getBird() == null ? null : s.getBird().getId() + "|" + s.getBird().getName()))
+                .collect(Collectors.toList());
+    }
+
+    private static Sighting sighting(Bird bird, String location, LocalDateTime dateTime, Double latitude, Double longitude) {
+        Sighting sighting = new Sighting(bird, location, dateTime);
+        sighting.setLatitude(latitude);
+        sighting.setLongitude(longitude);
+        return sighting;
+    }
+}
@@ -0,0 +1,164 @@
+package com.velocity.itest.avian.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SightingWriteAheadLogTests {
+
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysWhatWasAppended() throws IOException {
+        LocalDateTime seen = LocalDateTime.of(2024, 5, 17, 6, 30, 15, 123_000_000);
+        try (SightingWriteAheadLog log = new SightingWriteAheadLog(directory, SEGMENT_BYTES)) {
+            log.replay();
+            log.append(List.of(
+                    new SightingWriteAheadLog.Entry(101, 7, "Marsh, \"north\" hide", seen, 52.5, -1.25, "key-1"),
+                    new SightingWriteAheadLog.Entry(102, 8, null, null, null, null, null)));
+            log.append(List.of(entry(103)));
+        }
+
+        SightingWriteAheadLog reopened = new SightingWriteAheadLog(directory, SEGMENT_BYTES);
+        List<SightingWriteAheadLog.Entry> replayed = reopened.replay();
+
+        assertEquals(List.of(1L, 2L, 3L), sequences(replayed));
+        SightingWriteAheadLog.Entry first = replayed.get(0);
+        assertEquals(101, first.id);
+        assertEquals(7, first.birdId);
+        assertEquals("Marsh, \"north\" hide", first.location);
+        assertEquals(seen, first.dateTime);
+        assertEquals(52.5, first.latitude);
+        assertEquals(-1.25, first.longitude);
+        assertEquals("key-1", first.idempotencyKey);
+        SightingWriteAheadLog.Entry second = replayed.get(1);
+        assertNull(second.location);
+        assertNull(second.dateTime);
+        assertNull(second.latitude);
+        assertNull(second.idempotencyKey);
+
+        // Sequence numbers carry on after the replayed ones
+        reopened.discardReplayed();
+        reopened.append(List.of(entry(104)));
+        reopened.close();
+        assertEquals(List.of(4L), sequences(new SightingWriteAheadLog(directory, SEGMENT_BYTES).replay()));
+    }
+
+    @Test
+    void replayStopsAtATornTail() throws IOException {
+        try (SightingWriteAheadLog log = new SightingWriteAheadLog(directory, SEGMENT_BYTES)) {
+            log.replay();
+            log.append(List.of(entry(101), entry(102)));
+            log.append(List.of(entry(103)));
+        }
+        // A crash part way through the last record
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        assertEquals(List.of(101L, 102L), ids(new SightingWriteAheadLog(directory, SEGMENT_BYTES).replay()));
+    }
+
+    @Test
+    void appendAfterAFailedAppendIsReplayed() throws IOException {
+        TornLog log = new TornLog(directory);
+        log.replay();
+        log.append(List.of(entry(101)));
+        log.failNext = true;
+        assertThrows(IOException.class, () -> log.append(List.of(entry(102), entry(103))));
+        // Acknowledged after the failure, so replay must not stop in front of it
+        log.append(List.of(entry(104)));
+        log.close();
+
+        assertEquals(List.of(101L, 104L), ids(new SightingWriteAheadLog(directory, SEGMENT_BYTES).replay()));
+    }
+
+    @Test
+    void appendAfterAFailedTruncateGoesToANewSegment() throws IOException {
+        TornLog log = new TornLog(directory);
+        log.replay();
+        log.append(List.of(entry(101)));
+        log.failNext = true;
+        log.failTruncate = true;
+        assertThrows(IOException.class, () -> log.append(List.of(entry(102))));
+        log.append(List.of(entry(103)));
+        log.close();
+
+        assertEquals(2, segments().size());
+        assertEquals(List.of(101L, 103L), ids(new SightingWriteAheadLog(directory, SEGMENT_BYTES).replay()));
+    }
+
+    // Writes half of the next append and then fails, optionally making the channel unusable
+    private static final class TornLog extends SightingWriteAheadLog {
+        private boolean failNext;
+        private boolean failTruncate;
+
+        private TornLog(Path directory) {
+            super(directory, SEGMENT_BYTES);
+        }
+
+        @Override
+        void writeAndSync(FileChannel channel, ByteBuffer bytes) throws IOException {
+            if (!failNext) {
+                super.writeAndSync(channel, bytes);
+                return;
+            }
+            failNext = false;
+            bytes.limit(bytes.limit() / 2);
+            super.writeAndSync(channel, bytes);
+            if (failTruncate) {
+                failTruncate = false;
+                channel.close();
+            }
+            throw new IOException("No space left on device");
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "sightings-*.log")) {
+            files.forEach(segments::add);
+        }
+        assertTrue(segments.size() > 0);
+        return segments;
+    }
+
+    private static SightingWriteAheadLog.Entry entry(long id) {
+        return new SightingWriteAheadLog.Entry(id, 1, "Location " + id, LocalDateTime.of(2024, 1, 1, 12, 0), null, null,
+                null);
+    }
+
+    private static List<Long> ids(List<SightingWriteAheadLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.id).collect(Collectors.toList());
+    }
+
+    private static List<Long> sequences(List<SightingWriteAheadLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.sequence).collect(Collectors.toList());
+    }
+}
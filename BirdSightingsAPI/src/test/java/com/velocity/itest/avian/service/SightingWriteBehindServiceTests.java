@@ -0,0 +1,205 @@
+package com.velocity.itest.avian.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.velocity.itest.avian.PostgresTestDatabase;
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Inserts with PostgreSQL-only SQL, so runs against PostgreSQL; the other collaborators are mocks
+class SightingWriteBehindServiceTests {
+
+    private static final long BIRD = 1;
+    private static final long MISSING_BIRD = 999;
+
+    @TempDir
+    Path logDir;
+
+    private PGSimpleDataSource dataSource;
+    private IdempotencyKeys idempotencyKeys;
+    private SightingReadModel sightingReadModel;
+    private SightingWriteBehindService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setURL(PostgresTestDatabase.createDatabase("sightingwritebehindservicetests"));
+        dataSource.setUser("postgres");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        execute("INSERT INTO birds (id, name, color, weight, height) VALUES (" + BIRD + ", 'Eagle', 'Brown', 5.5, 75.0)");
+
+        BirdService birdService = mock(BirdService.class);
+        BirdDto bird = new BirdDto();
+        bird.setId(BIRD);
+        // Validation lets the missing bird through, as it would if the bird were deleted meanwhile
+        when(birdService.findById(anyLong())).thenReturn(Optional.of(bird));
+        idempotencyKeys = mock(IdempotencyKeys.class);
+        when(idempotencyKeys.reserve(anyString(), anyLong())).thenReturn(null);
+        sightingReadModel = mock(SightingReadModel.class);
+
+        service = new SightingWriteBehindService();
+        ReflectionTestUtils.setField(service, "dataSource", dataSource);
+        ReflectionTestUtils.setField(service, "birdService", birdService);
+        ReflectionTestUtils.setField(service, "tableVersions", mock(TableVersions.class));
+        ReflectionTestUtils.setField(service, "sightingEventBroadcaster", mock(SightingEventBroadcaster.class));
+        ReflectionTestUtils.setField(service, "sightingEventRelay", mock(SightingEventRelay.class));
+        ReflectionTestUtils.setField(service, "sightingReadModel", sightingReadModel);
+        ReflectionTestUtils.setField(service, "idempotencyKeys", idempotencyKeys);
+        ReflectionTestUtils.setField(service, "capacity", 1024);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "maxDelay", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(service, "ackTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "logDir", logDir);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void startReplaysTheLogAndDeadLettersWhatTheDatabaseRefuses() throws Exception {
+        try (SightingWriteAheadLog log = new SightingWriteAheadLog(logDir, 1024 * 1024)) {
+            log.replay();
+            log.append(List.of(entry(1_000_001, BIRD, null), entry(1_000_002, MISSING_BIRD, "key-2"),
+                    entry(1_000_003, BIRD, "key-3")));
+            log.append(List.of(entry(1_000_004, MISSING_BIRD, null), entry(1_000_005, BIRD, null)));
+        }
+
+        service.start();
+
+        assertEquals(List.of(1_000_001L, 1_000_003L, 1_000_005L), sightingIds());
+        assertEquals(List.of(1_000_003L), keyedSightingIds());
+        assertDeadLettered(1_000_002L, 1_000_004L);
+        verify(idempotencyKeys).release("key-2", 1_000_002L);
+        verify(sightingReadModel).reload();
+        // Nothing is left to replay on the next start
+        assertTrue(new SightingWriteAheadLog(logDir, 1024 * 1024).replay().isEmpty());
+    }
+
+    @Test
+    void flushCommitsTheRestOfAGroupAroundARefusedSighting() throws Exception {
+        service.start();
+
+        long good = service.submit(sighting(BIRD), null).orElseThrow();
+        long refused = service.submit(sighting(MISSING_BIRD), "key-refused").orElseThrow();
+        long alsoGood = service.submit(sighting(BIRD), null).orElseThrow();
+        awaitCommitted(good, refused, alsoGood);
+
+        assertEquals(List.of(good, alsoGood), sightingIds());
+        assertDeadLettered(refused);
+        verify(idempotencyKeys).release("key-refused", refused);
+        assertEquals(1L, service.health().getDetails().get("deadLettered"));
+        assertEquals(0, service.health().getDetails().get("inFlight"));
+    }
+
+    @Test
+    void keyTakenWhileTheDatabaseCouldNotBeAskedIsDeadLettered() throws Exception {
+        execute("INSERT INTO sightings (id, bird_id, location) VALUES (500, " + BIRD + ", 'Hide')");
+        execute("INSERT INTO sighting_idempotency_keys (idempotency_key, sighting_id, created_at)"
+                + " VALUES ('key-taken', 500, now())");
+        service.start();
+
+        // Neither the cache nor the (mocked) database knew the key
+        long duplicate = service.submit(sighting(BIRD), "key-taken").orElseThrow();
+        awaitCommitted(duplicate);
+
+        assertEquals(List.of(500L), sightingIds());
+        List<String> lines = Files.readAllLines(logDir.resolve("dead-letter.csv"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith(duplicate + "," + BIRD + ","), lines.get(1));
+        // Unique violation
+        assertTrue(lines.get(1).contains("23505"), lines.get(1));
+        verify(idempotencyKeys).release("key-taken", duplicate);
+    }
+
+    private void awaitCommitted(long... ids) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        for (long id : ids) {
+            while (service.isPending(id) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(service.isPending(id), "Sighting " + id + " still pending");
+        }
+    }
+
+    private void assertDeadLettered(Long... ids) throws Exception {
+        List<String> lines = Files.readAllLines(logDir.resolve("dead-letter.csv"), StandardCharsets.UTF_8);
+        assertEquals(ids.length + 1, lines.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(lines.get(i + 1).startsWith(ids[i] + "," + MISSING_BIRD + ","), lines.get(i + 1));
+            // Foreign key violation
+            assertTrue(lines.get(i + 1).contains("23503"), lines.get(i + 1));
+        }
+    }
+
+    private List<Long> sightingIds() throws SQLException {
+        return ids("SELECT id FROM sightings ORDER BY id");
+    }
+
+    private List<Long> keyedSightingIds() throws SQLException {
+        return ids("SELECT sighting_id FROM sighting_idempotency_keys ORDER BY sighting_id");
+    }
+
+    private List<Long> ids(String sql) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static SightingWriteAheadLog.Entry entry(long id, long birdId, String idempotencyKey) {
+        return new SightingWriteAheadLog.Entry(id, birdId, "Location " + id, LocalDateTime.of(2024, 6, 1, 8, 0), null,
+                null, idempotencyKey);
+    }
+
+    private static SightingDto sighting(long birdId) {
+        BirdDto bird = new BirdDto();
+        bird.setId(birdId);
+        SightingDto sighting = new SightingDto();
+        sighting.setBird(bird);
+        sighting.setLocation("Hide " + birdId);
+        sighting.setDateTime(LocalDateTime.of(2024, 6, 1, 8, 0));
+        return sighting;
+    }
+}
@@ -0,0 +1,62 @@
+package com.velocity.itest.avian.dto;
+
+public class BirdDto {
+    private Long id;
+    private String name;
+    private String color;
+    private double weight;
+    private double height;
+    
+    // Default constructor
+    public BirdDto() {
+    }
+
+    public BirdDto(Long id, String name, String color, double weight, double height) {
+        this.id = id;
+        this.name = name;
+        this.color = color;
+        this.weight = weight;
+        this.height = height;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public void setHeight(double height) {
+        this.height = height;
+    }
+}
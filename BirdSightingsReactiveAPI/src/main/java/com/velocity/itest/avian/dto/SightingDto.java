@@ -0,0 +1,82 @@
+package com.velocity.itest.avian.dto;
+
+import java.time.LocalDateTime;
+
+public class SightingDto {
+    private Long id;
+    private String location;
+    private LocalDateTime dateTime;
+    private Double latitude;
+    private Double longitude;
+    private BirdDto bird;
+
+    // Default constructor
+    public SightingDto() {
+    }
+
+    /**
+     * Flat constructor used when mapping joined sighting/bird rows. The bird columns come from an
+     * outer join, so they are boxed and a null bird id means the sighting has no bird.
+     */
+    public SightingDto(Long id, String location, LocalDateTime dateTime, Double latitude, Double longitude,
+                       Long birdId, String birdName, String birdColor, Double birdWeight, Double birdHeight) {
+        this.id = id;
+        this.location = location;
+        this.dateTime = dateTime;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        if (birdId != null) {
+            this.bird = new BirdDto(birdId, birdName, birdColor,
+                    birdWeight != null ? birdWeight : 0.0, birdHeight != null ? birdHeight : 0.0);
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    public void setDateTime(LocalDateTime dateTime) {
+        this.dateTime = dateTime;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public BirdDto getBird() {
+        return bird;
+    }
+
+    public void setBird(BirdDto bird) {
+        this.bird = bird;
+    }
+}
\ No newline at end of file
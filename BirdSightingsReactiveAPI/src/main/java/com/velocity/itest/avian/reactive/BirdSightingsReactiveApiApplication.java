@@ -0,0 +1,13 @@
+package com.velocity.itest.avian.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class BirdSightingsReactiveApiApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(BirdSightingsReactiveApiApplication.class, args);
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.velocity.itest.avian.reactive.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import com.velocity.itest.avian.dto.SightingBatchResultDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.reactive.repository.ReactiveSightingRepository;
+import com.velocity.itest.avian.reactive.repository.SightingFilter;
+import com.velocity.itest.avian.reactive.service.ReactiveSightingIngestService;
+
+import java.util.List;
+
+/**
+ * Sighting endpoints of BirdSightingsAPI on WebFlux. Lists are returned as a Flux, so rows are
+ * pulled from the database only as fast as the client reads the response.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class ReactiveSightingController {
+
+    @Autowired
+    private ReactiveSightingRepository sightingRepository;
+
+    @Autowired
+    private ReactiveSightingIngestService sightingIngestService;
+
+    @GetMapping(value = "/sightings", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<SightingDto> getAllSightings() {
+        return sightingRepository.findDtos(new SightingFilter());
+    }
+
+    /**
+     * Queries sightings by any combination of bird, location and time range, ordered by id. A
+     * query without filters is rejected unless all=true is passed explicitly.
+     */
+    @GetMapping(value = "/sightings/query", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Flux<SightingDto>> querySightings(SightingFilter filter) {
+        if (!(filter.hasCriteria() || filter.isAll()) || (filter.getLimit() != null && filter.getLimit() <= 0)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(sightingRepository.findDtos(filter), HttpStatus.OK);
+    }
+
+    @PostMapping("/sightings")
+    public Mono<ResponseEntity<SightingDto>> createSighting(@RequestBody SightingDto sighting) {
+        return sightingIngestService.ingest(List.of(sighting), 0)
+                .flatMap(result -> {
+                    Long id = result.getItems().get(0).getId();
+                    if (id == null) {
+                        // Rejected: no bird, an unknown bird or invalid fields
+                        return Mono.just(new ResponseEntity<SightingDto>(null, HttpStatus.BAD_REQUEST));
+                    }
+                    return sightingRepository.findBirdById(sighting.getBird().getId()).map(bird -> {
+                        sighting.setId(id);
+                        sighting.setBird(bird);
+                        return new ResponseEntity<>(sighting, HttpStatus.CREATED);
+                    });
+                })
+                .onErrorReturn(new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    /**
+     * Inserts many sightings in one request. The body is either a JSON array or
+     * newline-delimited JSON; it is decoded as a stream and committed in chunks, and the
+     * next chunk is only read once the previous one has been written.
+     */
+    @PostMapping(value = "/sightings/batch",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<SightingBatchResultDto>> createSightings(@RequestBody Flux<SightingDto> sightings) {
+        SightingBatchResultDto result = new SightingBatchResultDto();
+        return sightings.buffer(ReactiveSightingIngestService.CHUNK_SIZE)
+                .index()
+                .concatMap(chunk -> sightingIngestService.ingest(chunk.getT2(),
+                        (int) (chunk.getT1() * ReactiveSightingIngestService.CHUNK_SIZE)))
+                .doOnNext(result::addAll)
+                .then(Mono.fromSupplier(() -> new ResponseEntity<>(result, HttpStatus.OK)))
+                // Chunks before the malformed item have already been committed
+                .onErrorResume(e -> e instanceof ServerWebInputException || e instanceof DecodingException,
+                        e -> Mono.just(new ResponseEntity<>(result, HttpStatus.BAD_REQUEST)));
+    }
+
+    @DeleteMapping("/sightings/{id}")
+    public Mono<ResponseEntity<HttpStatus>> deleteSighting(@PathVariable Long id) {
+        return sightingRepository.deleteById(id)
+                .map(deleted -> new ResponseEntity<HttpStatus>(HttpStatus.NO_CONTENT))
+                .onErrorReturn(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+}
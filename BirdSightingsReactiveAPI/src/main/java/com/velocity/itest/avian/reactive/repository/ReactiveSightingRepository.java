@@ -0,0 +1,183 @@
+package com.velocity.itest.avian.reactive.repository;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking access to the birds and sightings tables of BirdSightingsAPI. Queries project
+ * straight into DTOs; there are no entities or persistence context.
+ */
+@Repository
+public class ReactiveSightingRepository {
+
+    private static final String SELECT_DTOS = "SELECT s.id, s.location, s.date_time, s.latitude, s.longitude, "
+            + "b.id AS bird_id, b.name, b.color, b.weight, b.height "
+            + "FROM sightings s LEFT JOIN birds b ON b.id = s.bird_id";
+
+    // Rows the driver requests per round trip; the next batch is only fetched on demand
+    private static final int FETCH_SIZE = 1000;
+
+    // BirdSightingsAPI listens here to refresh its ETags, read model and live feed after our writes
+    private static final String CHANGE_CHANNEL = "avian_sightings_changed";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Streams the matching sightings in id order. Rows are read from the database only as
+     * fast as the subscriber (ultimately the HTTP response) consumes them.
+     */
+    public Flux<SightingDto> findDtos(SightingFilter filter) {
+        // Absent filters are left out of the SQL entirely so each combination can use its index
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (filter.getBirdId() != null) {
+            conditions.add("s.bird_id = :birdId");
+            params.put("birdId", filter.getBirdId());
+        }
+        if (filter.getLocation() != null && !filter.getLocation().isEmpty()) {
+            conditions.add("s.location = :location");
+            params.put("location", filter.getLocation());
+        }
+        if (filter.getStartDate() != null) {
+            conditions.add("s.date_time >= :startDate");
+            params.put("startDate", filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            conditions.add("s.date_time <= :endDate");
+            params.put("endDate", filter.getEndDate());
+        }
+        if (filter.getAfterId() != null) {
+            conditions.add("s.id > :afterId");
+            params.put("afterId", filter.getAfterId());
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_DTOS);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY s.id");
+        if (filter.getLimit() != null) {
+            sql.append(" LIMIT :limit");
+            params.put("limit", filter.getLimit());
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            spec = spec.bind(param.getKey(), param.getValue());
+        }
+        return spec.filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map((row, metadata) -> toDto(row))
+                .all();
+    }
+
+    public Mono<BirdDto> findBirdById(long id) {
+        return databaseClient.sql("SELECT id, name, color, weight, height FROM birds WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> new BirdDto(row.get("id", Long.class), row.get("name", String.class),
+                        row.get("color", String.class), row.get("weight", Double.class), row.get("height", Double.class)))
+                .one();
+    }
+
+    /**
+     * @return The subset of the given ids that belong to existing birds, in one query.
+     */
+    public Mono<Set<Long>> findExistingBirdIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        return databaseClient.sql("SELECT id FROM birds WHERE id = ANY(:ids)")
+                .bind("ids", ids.toArray(new Long[0]))
+                .map((row, metadata) -> row.get("id", Long.class))
+                .all()
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Inserts the sightings, which must already carry their ids and existing bird ids, as one
+     * batch of bound executions of a single prepared statement, pipelined over one connection.
+     */
+    public Mono<Void> insertAll(List<SightingDto> sightings) {
+        if (sightings.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(
+                    "INSERT INTO sightings (id, bird_id, location, date_time, latitude, longitude)"
+                    + " VALUES ($1, $2, $3, $4, $5, $6)");
+            for (int i = 0; i < sightings.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                SightingDto sighting = sightings.get(i);
+                statement.bind(0, sighting.getId()).bind(1, sighting.getBird().getId());
+                if (sighting.getLocation() != null) {
+                    statement.bind(2, sighting.getLocation());
+                } else {
+                    statement.bindNull(2, String.class);
+                }
+                if (sighting.getDateTime() != null) {
+                    statement.bind(3, sighting.getDateTime());
+                } else {
+                    statement.bindNull(3, LocalDateTime.class);
+                }
+                // Each as given: chk_sightings_coordinates rejects one without the other
+                if (sighting.getLatitude() != null) {
+                    statement.bind(4, sighting.getLatitude());
+                } else {
+                    statement.bindNull(4, Double.class);
+                }
+                if (sighting.getLongitude() != null) {
+                    statement.bind(5, sighting.getLongitude());
+                } else {
+                    statement.bindNull(5, Double.class);
+                }
+            }
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).then(notifyChanged());
+    }
+
+    public Mono<Boolean> deleteById(long id) {
+        return databaseClient.sql("DELETE FROM sightings WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows > 0 ? notifyChanged().thenReturn(true) : Mono.just(false));
+    }
+
+    /**
+     * Tells BirdSightingsAPI that the sightings table changed. Sent after the write commits; if
+     * it is lost, the write still stands and the API catches up when it next reconnects.
+     */
+    private Mono<Void> notifyChanged() {
+        return databaseClient.sql("SELECT pg_notify('" + CHANGE_CHANNEL + "', '')")
+                .then()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private static SightingDto toDto(Row row) {
+        return new SightingDto(row.get("id", Long.class), row.get("location", String.class),
+                row.get("date_time", LocalDateTime.class), row.get("latitude", Double.class),
+                row.get("longitude", Double.class), row.get("bird_id", Long.class),
+                row.get("name", String.class), row.get("color", String.class),
+                row.get("weight", Double.class), row.get("height", Double.class));
+    }
+}
@@ -0,0 +1,100 @@
+package com.velocity.itest.avian.reactive.repository;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters and limit for a sighting query, bound from the request parameters of
+ * /sightings/query. Same parameters as BirdSightingsAPI; results are always ordered by id.
+ */
+public class SightingFilter {
+
+    // Larger limits are cut to this, as in BirdSightingsAPI
+    public static final int MAX_LIMIT = 10_000;
+
+    private Long birdId;
+    private String location;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime endDate;
+
+    // Keyset cursor: only sightings with a larger id are returned
+    private Long afterId;
+
+    private Integer limit;
+
+    // Must be set to run a query without any filter, i.e. a full scan of the table
+    private boolean all;
+
+    /**
+     * @return true if at least one filter narrows the result. afterId does not count: a cursor
+     *         of 0 would pass any query off as a filtered one.
+     */
+    public boolean hasCriteria() {
+        return birdId != null || (location != null && !location.isEmpty()) || startDate != null || endDate != null;
+    }
+
+    // Getters and Setters
+    public Long getBirdId() {
+        return birdId;
+    }
+
+    public void setBirdId(Long birdId) {
+        this.birdId = birdId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    /**
+     * @return The requested limit, at most MAX_LIMIT, or null for none.
+     */
+    public Integer getLimit() {
+        return limit == null ? null : Math.min(limit, MAX_LIMIT);
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+}
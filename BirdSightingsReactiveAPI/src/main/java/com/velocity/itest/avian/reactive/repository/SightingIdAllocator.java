@@ -0,0 +1,59 @@
+package com.velocity.itest.avian.reactive.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out sighting ids from sightings_seq the way Hibernate's pooled optimizer does in
+ * BirdSightingsAPI: each nextval value hi reserves the block (hi - ALLOCATION_SIZE, hi]. Both
+ * services can therefore insert into the same table without colliding.
+ */
+@Component
+public class SightingIdAllocator {
+
+    // Must match allocationSize of the sightings_seq generator on the Sighting entity
+    static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * @return count fresh ids.
+     */
+    public Mono<List<Long>> allocate(int count) {
+        if (count == 0) {
+            return Mono.just(List.of());
+        }
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        return databaseClient.sql("SELECT nextval('sightings_seq') AS hi FROM generate_series(1, :blocks)")
+                .bind("blocks", blocks)
+                .map((row, metadata) -> row.get("hi", Long.class))
+                .all()
+                .collectList()
+                .flatMap(his -> {
+                    List<Long> ids = new ArrayList<>(count);
+                    for (Long hi : his) {
+                        // Values below one block are the sequence's start; Hibernate treats them
+                        // specially, so they are skipped rather than risk an overlap
+                        if (hi < ALLOCATION_SIZE) {
+                            continue;
+                        }
+                        for (long id = hi - ALLOCATION_SIZE + 1; id <= hi && ids.size() < count; id++) {
+                            ids.add(id);
+                        }
+                    }
+                    if (ids.size() == count) {
+                        return Mono.just(ids);
+                    }
+                    return allocate(count - ids.size()).map(more -> {
+                        ids.addAll(more);
+                        return ids;
+                    });
+                });
+    }
+}
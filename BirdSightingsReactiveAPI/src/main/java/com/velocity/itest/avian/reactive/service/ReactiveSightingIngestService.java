@@ -0,0 +1,120 @@
+package com.velocity.itest.avian.reactive.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+
+import com.velocity.itest.avian.dto.BirdDto;
+import com.velocity.itest.avian.dto.SightingBatchItemResultDto;
+import com.velocity.itest.avian.dto.SightingBatchResultDto;
+import com.velocity.itest.avian.dto.SightingDto;
+import com.velocity.itest.avian.reactive.repository.ReactiveSightingRepository;
+import com.velocity.itest.avian.reactive.repository.SightingIdAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts sightings in bulk without blocking: bird ids are checked in one query, ids come
+ * from the shared sequence, and the inserts go out as one batched statement per chunk.
+ */
+@Service
+public class ReactiveSightingIngestService {
+
+    // Largest number of items handled in one transaction; callers split bigger uploads
+    public static final int CHUNK_SIZE = 1000;
+
+    private static final int MAX_LOCATION_LENGTH = 255;
+
+    @Autowired
+    private ReactiveSightingRepository sightingRepository;
+
+    @Autowired
+    private SightingIdAllocator idAllocator;
+
+    /**
+     * @return Why the database would reject a sighting with these values, or null if it would
+     *         not. The same checks as SightingIngestService.invalidFields in BirdSightingsAPI,
+     *         so one bad item is rejected on its own instead of failing its whole chunk.
+     */
+    public static String invalidFields(String location, Double latitude, Double longitude) {
+        if (location != null && location.length() > MAX_LOCATION_LENGTH) {
+            return "Location is longer than " + MAX_LOCATION_LENGTH + " characters";
+        }
+        if ((latitude == null) != (longitude == null)) {
+            return "Latitude and longitude must be given together";
+        }
+        if (latitude != null && !(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            return "Coordinates out of range";
+        }
+        return null;
+    }
+
+    /**
+     * Inserts one chunk of sightings in a single transaction.
+     * @param sightings The sightings to insert; at most CHUNK_SIZE of them.
+     * @param firstIndex Position of the first sighting in the overall upload, used in the results.
+     * @return One result per sighting, in order.
+     */
+    @Transactional
+    public Mono<SightingBatchResultDto> ingest(List<SightingDto> sightings, int firstIndex) {
+        Set<Long> birdIds = sightings.stream()
+                .map(dto -> dto == null ? null : dto.getBird())
+                .filter(Objects::nonNull)
+                .map(BirdDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        return sightingRepository.findExistingBirdIds(birdIds).flatMap(existing -> {
+            // Results are filled in order; accepted items get their id once the ids are allocated
+            SightingBatchItemResultDto[] results = new SightingBatchItemResultDto[sightings.size()];
+            List<Integer> accepted = new ArrayList<>(sightings.size());
+            for (int i = 0; i < sightings.size(); i++) {
+                SightingDto dto = sightings.get(i);
+                int index = firstIndex + i;
+                if (dto == null || dto.getBird() == null || dto.getBird().getId() == null) {
+                    results[i] = SightingBatchItemResultDto.rejected(index, "Bird id is required");
+                    continue;
+                }
+                if (!existing.contains(dto.getBird().getId())) {
+                    results[i] = SightingBatchItemResultDto.rejected(index, "Bird not found: " + dto.getBird().getId());
+                    continue;
+                }
+                String invalid = invalidFields(dto.getLocation(), dto.getLatitude(), dto.getLongitude());
+                if (invalid != null) {
+                    results[i] = SightingBatchItemResultDto.rejected(index, invalid);
+                    continue;
+                }
+                accepted.add(i);
+            }
+
+            return idAllocator.allocate(accepted.size()).flatMap(ids -> {
+                List<SightingDto> rows = new ArrayList<>(accepted.size());
+                for (int j = 0; j < accepted.size(); j++) {
+                    int i = accepted.get(j);
+                    SightingDto source = sightings.get(i);
+                    SightingDto row = new SightingDto();
+                    row.setId(ids.get(j));
+                    row.setLocation(source.getLocation());
+                    row.setDateTime(source.getDateTime());
+                    row.setLatitude(source.getLatitude());
+                    row.setLongitude(source.getLongitude());
+                    row.setBird(source.getBird());
+                    rows.add(row);
+                    results[i] = SightingBatchItemResultDto.created(firstIndex + i, row.getId());
+                }
+                return sightingRepository.insertAll(rows);
+            }).then(Mono.fromSupplier(() -> {
+                SightingBatchResultDto result = new SightingBatchResultDto();
+                for (SightingBatchItemResultDto item : results) {
+                    result.add(item);
+                }
+                return result;
+            }));
+        });
+    }
+}
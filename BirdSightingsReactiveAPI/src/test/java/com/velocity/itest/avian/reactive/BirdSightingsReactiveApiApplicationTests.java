@@ -0,0 +1,13 @@
+package com.velocity.itest.avian.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class BirdSightingsReactiveApiApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}